@@ -0,0 +1,243 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Compares an instance of the API running requests on platform threads with one running them on virtual threads.
+ * <p>
+ * Both instances are sent the same requests, with the same number in flight at once, first to register a packet and
+ * then to search participants, each after a warm-up. The throughput, latency percentiles and failures of each are
+ * logged side by side. Registering writes new participants, so run it against a disposable local database only.
+ * <p>
+ * Run it through the {@code loadBenchmark} Gradle task. The instances and load can be set with the
+ * {@code loadBenchmark.platformUrl}, {@code loadBenchmark.virtualUrl}, {@code loadBenchmark.concurrency},
+ * {@code loadBenchmark.requests} and {@code loadBenchmark.warmUpRequests} system properties. Searching requires an
+ * administrator's bearer token in {@code loadBenchmark.token}, and is skipped without one.
+ */
+public class LoadBenchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadBenchmark.class);
+
+    private static final String PLATFORM_URL = System.getProperty("loadBenchmark.platformUrl", "http://localhost:8080");
+    private static final String VIRTUAL_URL = System.getProperty("loadBenchmark.virtualUrl", "http://localhost:8081");
+    private static final String TOKEN = System.getProperty("loadBenchmark.token", "");
+    private static final int CONCURRENCY = Integer.getInteger("loadBenchmark.concurrency", 200);
+    private static final int REQUESTS = Integer.getInteger("loadBenchmark.requests", 5_000);
+    private static final int WARM_UP_REQUESTS = Integer.getInteger("loadBenchmark.warmUpRequests", 500);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final String CSRF_COOKIE = "XSRF-TOKEN";
+    private static final String CSRF_HEADER = "X-XSRF-TOKEN";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+
+    public static void main(String[] args) throws Exception {
+        new LoadBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        Map<String, Instance> instances = Map.of("platform", new Instance(PLATFORM_URL), "virtual", new Instance(VIRTUAL_URL));
+        long eventInfoId = instances.get("platform").latestEventInfoId();
+
+        compare("registration packet", instances, instance -> registrationPacket(instance, eventInfoId));
+        if (TOKEN.isBlank()) {
+            LOGGER.warn("Skipped searching, as no bearer token was given in loadBenchmark.token.");
+        } else {
+            for (Instance instance : instances.values()) {
+                instance.primeCsrfToken();
+            }
+            compare("participant search", instances, this::participantSearch);
+        }
+    }
+
+    private void compare(String scenario, Map<String, Instance> instances, Function<Instance, HttpRequest> requests) throws Exception {
+        for (String threads : List.of("platform", "virtual")) {
+            Instance instance = instances.get(threads);
+            measure(instance, requests, WARM_UP_REQUESTS);
+            Result result = measure(instance, requests, REQUESTS);
+            LOGGER.info("{} on {} threads: {} requests/s, p50 {} ms, p95 {} ms, p99 {} ms, max {} ms, {} of {} failed.",
+                    scenario, threads, Math.round(result.throughput()), result.percentile(50), result.percentile(95),
+                    result.percentile(99), result.percentile(100), result.failures(), REQUESTS);
+        }
+    }
+
+    /**
+     * Sends the given number of requests, keeping {@link #CONCURRENCY} of them in flight at once.
+     */
+    private Result measure(Instance instance, Function<Instance, HttpRequest> requests, int count) throws Exception {
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        long[] latencies = new long[count];
+        AtomicLong failures = new AtomicLong();
+        List<Future<?>> sent = new ArrayList<>(count);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                HttpRequest request = requests.apply(instance);
+                inFlight.acquire();
+                sent.add(executor.submit(() -> {
+                    long sentAt = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = instance.client().send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 300) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        latencies[index] = System.nanoTime() - sentAt;
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> future : sent) {
+                future.get();
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        Arrays.sort(latencies);
+        return new Result(latencies, failures.get(), count * 1_000_000_000.0 / elapsed.toNanos());
+    }
+
+    private HttpRequest registrationPacket(Instance instance, long eventInfoId) {
+        long n = sequence.incrementAndGet();
+        ObjectNode packet = objectMapper.createObjectNode();
+        packet.putObject("participant")
+                .put("nameFirst", "Load")
+                .put("nameLast", "Benchmark" + n)
+                .put("sponsor", "Sponsor")
+                .put("dob", "1980-01-01")
+                .put("addrStreet_1", n + " Main St")
+                .put("addrCity", "City")
+                .put("addrStateAbbr", "TX")
+                .put("addrZip", "75001")
+                .put("addrEmail", "load-benchmark-" + n + "@example.com")
+                .put("phoneDigits", 5550000000L + n % 1_000_000L)
+                .put("emergencyContactRelationshipType", "FRIEND")
+                .put("nameEmergency", "Contact")
+                .put("phoneEmergency", 5550000000L);
+        packet.putArray("guests");
+        packet.putObject("registration")
+                .put("donationPledge", 20)
+                .put("signature", "Load Benchmark" + n)
+                .put("eventInfoId", eventInfoId);
+        return instance.post("/v1/registrationPacket", packet, false);
+    }
+
+    private HttpRequest participantSearch(Instance instance) {
+        ObjectNode search = objectMapper.createObjectNode();
+        search.putObject("searchConfiguration")
+                .put("exactMatch", false)
+                .put("sortColumn", "id")
+                .put("sortAsc", false)
+                .put("offset", 0)
+                .put("max", 25);
+        search.putObject("searchCriteria").put("nameLast", "Benchmark" + sequence.get() % 100);
+        return instance.post("/v1/participant/search", search, true);
+    }
+
+    private final class Instance {
+        private final String baseUrl;
+        private final CookieManager cookies = new CookieManager();
+        private final HttpClient client;
+
+        private Instance(String baseUrl) {
+            this.baseUrl = baseUrl;
+            this.client = HttpClient.newBuilder()
+                    .cookieHandler(cookies)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+        }
+
+        HttpClient client() {
+            return client;
+        }
+
+        long latestEventInfoId() throws IOException, InterruptedException {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/v1/event/info/latest")).timeout(REQUEST_TIMEOUT).GET().build(), HttpResponse.BodyHandlers.ofString());
+            JsonNode id = response.statusCode() == 200 ? objectMapper.readTree(response.body()).path("id") : null;
+            if (id == null || !id.canConvertToLong()) {
+                throw new IllegalStateException("%s has no latest event to register for.".formatted(baseUrl));
+            }
+            return id.asLong();
+        }
+
+        /**
+         * Has the instance issue a CSRF token, which it does when rejecting a request without one.
+         */
+        void primeCsrfToken() throws IOException, InterruptedException {
+            client.send(post("/v1/participant/search", objectMapper.createObjectNode(), true), HttpResponse.BodyHandlers.discarding());
+            if (csrfToken() == null) {
+                throw new IllegalStateException("%s didn't issue a CSRF token.".formatted(baseUrl));
+            }
+        }
+
+        private String csrfToken() {
+            return cookies.getCookieStore().get(URI.create(baseUrl)).stream()
+                    .filter(cookie -> cookie.getName().equals(CSRF_COOKIE))
+                    .map(HttpCookie::getValue)
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        HttpRequest post(String path, JsonNode body, boolean authenticated) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+            if (authenticated) {
+                request.header("Authorization", "Bearer " + TOKEN);
+                String csrfToken = csrfToken();
+                if (csrfToken != null) {
+                    request.header(CSRF_HEADER, masked(csrfToken));
+                }
+            }
+            return request.build();
+        }
+
+        /**
+         * Masks the CSRF token the way the instance expects it in the header: encoded after random bytes of the same
+         * length, XORed with them. Masking with zeroes leaves it as it is.
+         */
+        private static String masked(String csrfToken) {
+            byte[] token = csrfToken.getBytes(StandardCharsets.UTF_8);
+            byte[] combined = new byte[token.length * 2];
+            System.arraycopy(token, 0, combined, token.length, token.length);
+            return Base64.getUrlEncoder().encodeToString(combined);
+        }
+    }
+
+    private record Result(long[] sortedLatencies, long failures, double throughput) {
+
+        long percentile(int percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return Duration.ofNanos(sortedLatencies[Math.max(0, index)]).toMillis();
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package net.briclabs.evcoordinator;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jooq.DSLContext;
 import org.jooq.conf.RenderQuotedNames;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringBootConfiguration;
 import org.springframework.boot.autoconfigure.jooq.DefaultConfigurationCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -22,17 +27,97 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 @SpringBootConfiguration
 @EnableWebSecurity
+@EnableScheduling
 @ComponentScan
 public class ApiConfig {
 
-    ApiConfig() {
+    private final boolean virtualThreads;
+
+    ApiConfig(@Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
     }
 
     @Bean
     public DefaultConfigurationCustomizer configurationCustomizer() {
-        return c -> c.settings().withRenderQuotedNames(RenderQuotedNames.EXPLICIT_DEFAULT_UNQUOTED);
+        return c -> {
+            c.settings().withRenderQuotedNames(RenderQuotedNames.EXPLICIT_DEFAULT_UNQUOTED);
+            // Snapshots of the latest lookups, and the participants resolved for callers, are invalidated once the
+            // transactions writing what they hold commit.
+            c.setTransactionListener(LatestSnapshotCache.transactionListener());
+        };
+    }
+
+    @Bean
+    public InitializingBean latestSnapshotCacheSettings(@Value("${app.cache.latest.max-staleness}") Duration maxStaleness) {
+        return () -> LatestSnapshotCache.setMaxStaleness(maxStaleness);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HistoryWriter historyWriter(
+            ObjectMapper objectMapper,
+            DSLContext dslContext,
+            @Value("${app.history.mode}") HistoryWriter.Mode mode,
+            @Value("${app.history.queue-capacity}") int queueCapacity,
+            @Value("${app.history.batch-size}") int batchSize,
+            @Value("${app.history.flush-interval}") Duration flushInterval) {
+        HistoryWriter historyWriter = mode == HistoryWriter.Mode.RELAXED
+                ? HistoryWriter.relaxed(objectMapper, dslContext, queueCapacity, batchSize, flushInterval, backgroundThreads("history-writer"))
+                : HistoryWriter.durable();
+        HistoryWriter.install(historyWriter);
+        return historyWriter;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ChangeFeedListener changeFeedListener(
+            ObjectMapper objectMapper,
+            SimpMessagingTemplate messagingTemplate,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${app.change-feed.poll-timeout}") Duration pollTimeout,
+            @Value("${app.change-feed.reconnect-delay}") Duration reconnectDelay) {
+        return ChangeFeedListener.start(objectMapper, url, username, password, pollTimeout, reconnectDelay, backgroundThreads("change-feed-listener"), change -> messagingTemplate.convertAndSend(ChangeFeedConfig.destinationOf(change), change));
+    }
+
+    /**
+     * Sends the statistics stream's events to its clients. Virtual threads are cheap enough for each client being sent
+     * to get its own, whereas platform threads are pooled.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService statisticsStreamSenders(@Value("${app.statistics.stream.senders}") int senders) {
+        return virtualThreads
+                ? Executors.newThreadPerTaskExecutor(backgroundThreads("statistics-stream-sender"))
+                : Executors.newFixedThreadPool(senders, backgroundThreads("statistics-stream-sender"));
+    }
+
+    @Bean(destroyMethod = "close")
+    public PublicReadLogic publicReadLogic(
+            ObjectMapper objectMapper,
+            DSLContext dslContext,
+            @Value("${app.public-reads.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${app.public-reads.pool-size}") int poolSize,
+            @Value("${app.public-reads.max-acquire-time}") Duration maxAcquireTime) {
+        // The pool isn't exposed as a bean, since an R2DBC connection factory would have the JDBC data source back off.
+        return PublicReadLogic.connect(objectMapper, url, username, password, poolSize, maxAcquireTime, dslContext.settings());
+    }
+
+    /**
+     * Creates the threads of a background task, which are virtual while requests run on virtual threads too, and
+     * otherwise daemon platform threads, so they never hold up shutting down.
+     */
+    private ThreadFactory backgroundThreads(String name) {
+        return virtualThreads
+                ? Thread.ofVirtual().name(name).factory()
+                : Thread.ofPlatform().name(name).daemon(true).factory();
     }
 
     @Bean
@@ -55,6 +140,7 @@ public class ApiConfig {
         http
                 .authorizeHttpRequests(authorizeHttpRequests -> authorizeHttpRequests
                         .requestMatchers("/v1/statistics/latest").permitAll()
+                        .requestMatchers("/v1/statistics/latest/stream").permitAll()
                         .requestMatchers("/v1/configuration/latest").permitAll()
                         .requestMatchers("/v1/event/info/latest").permitAll()
                         .requestMatchers("/v1/registration").permitAll()
@@ -64,6 +150,8 @@ public class ApiConfig {
                         .requestMatchers("/v1/staticLookups/eventStatus").permitAll()
                         .requestMatchers("/v1/staticLookups/guestRelationshipType").permitAll()
                         .requestMatchers("/v1/staticLookups/usStateAbbreviations").permitAll()
+                        // The change feed authenticates the STOMP CONNECT frame, as browsers can't set headers on the handshake.
+                        .requestMatchers(ChangeFeedConfig.ENDPOINT).permitAll()
                         .anyRequest().authenticated())
                 .oauth2ResourceServer(httpSecurityOAuth2ResourceServerConfigurer -> httpSecurityOAuth2ResourceServerConfigurer
                         .jwt(Customizer.withDefaults()))
@@ -0,0 +1,157 @@
+package net.briclabs.evcoordinator;
+
+import net.briclabs.evcoordinator.controller.ApiController;
+import net.briclabs.evcoordinator.model.ChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.time.Duration;
+
+/**
+ * Serves the changes notified by the database to administrators over STOMP, on the {@value #ENDPOINT} WebSocket
+ * endpoint. Each change is published to {@code /topic/changes/{table}/{eventInfoId}}, or to
+ * {@code /topic/changes/{table}} for records which don't belong to an event. Subscriptions may use patterns, such as
+ * {@code /topic/changes/REGISTRATION/**} for the registrations of every event, or one matching any table followed by
+ * the ID of an event, for every change to that event.
+ * <p>
+ * Browsers can't set headers on the WebSocket handshake, so the bearer token is passed in the {@code Authorization}
+ * header of the STOMP {@code CONNECT} frame instead.
+ * <p>
+ * Subscribers which can't keep up are disconnected, once sending them a message takes longer than the send time limit,
+ * or once more than the send buffer size limit is waiting to be sent to them. Changes published while every outbound
+ * thread is busy and the outbound queue is full are dropped.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class ChangeFeedConfig implements WebSocketMessageBrokerConfigurer {
+
+    public static final String ENDPOINT = "/" + ApiController.V1 + "/changes";
+
+    private static final String TOPIC_PREFIX = "/topic";
+    private static final String CHANGES_DESTINATION = TOPIC_PREFIX + "/changes";
+    private static final String ADMIN_AUTHORITY = "evcoordinator:admin";
+
+    private final JwtDecoder jwtDecoder;
+    private final JwtAuthenticationConverter jwtAuthenticationConverter;
+    private final String corsOrigins;
+    private final Duration sendTimeLimit;
+    private final DataSize sendBufferSizeLimit;
+    private final int outboundThreads;
+    private final int outboundQueueCapacity;
+
+    public ChangeFeedConfig(
+            JwtDecoder jwtDecoder,
+            JwtAuthenticationConverter jwtAuthenticationConverter,
+            @Value("${app.cors.origins}") String corsOrigins,
+            @Value("${app.change-feed.send-time-limit}") Duration sendTimeLimit,
+            @Value("${app.change-feed.send-buffer-size-limit}") DataSize sendBufferSizeLimit,
+            @Value("${app.change-feed.outbound-threads}") int outboundThreads,
+            @Value("${app.change-feed.outbound-queue-capacity}") int outboundQueueCapacity) {
+        this.jwtDecoder = jwtDecoder;
+        this.jwtAuthenticationConverter = jwtAuthenticationConverter;
+        this.corsOrigins = corsOrigins;
+        this.sendTimeLimit = sendTimeLimit;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.outboundThreads = outboundThreads;
+        this.outboundQueueCapacity = outboundQueueCapacity;
+    }
+
+    /**
+     * Determines the destination to which a change is published.
+     *
+     * @param change the change.
+     * @return the destination.
+     */
+    public static String destinationOf(ChangeEvent change) {
+        return change.eventInfoId() == null
+                ? "%s/%s".formatted(CHANGES_DESTINATION, change.table())
+                : "%s/%s/%d".formatted(CHANGES_DESTINATION, change.table(), change.eventInfoId());
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint(ENDPOINT).setAllowedOriginPatterns(corsOrigins);
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker(TOPIC_PREFIX);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration
+                .setSendTimeLimit((int) sendTimeLimit.toMillis())
+                .setSendBufferSizeLimit((int) sendBufferSizeLimit.toBytes());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundThreads)
+                .maxPoolSize(outboundThreads)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null || accessor.getCommand() == null) {
+                    return message;
+                }
+                if (accessor.getCommand() == StompCommand.CONNECT) {
+                    accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization")));
+                } else if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+                    if (accessor.getUser() == null) {
+                        throw new MessagingException("Not connected.");
+                    }
+                    String destination = accessor.getDestination();
+                    if (destination == null || !(destination.equals(CHANGES_DESTINATION) || destination.startsWith(CHANGES_DESTINATION + "/"))) {
+                        throw new MessagingException("Cannot subscribe to '%s'.".formatted(destination));
+                    }
+                } else if (accessor.getCommand() == StompCommand.SEND) {
+                    throw new MessagingException("Messages cannot be sent to the change feed.");
+                }
+                return message;
+            }
+        });
+    }
+
+    private AbstractAuthenticationToken authenticate(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new MessagingException("A bearer token is required.");
+        }
+        AbstractAuthenticationToken authentication;
+        try {
+            authentication = jwtAuthenticationConverter.convert(jwtDecoder.decode(authorization.substring("Bearer ".length())));
+        } catch (JwtException e) {
+            throw new MessagingException("The bearer token is invalid.", e);
+        }
+        if (authentication == null || authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).noneMatch(ADMIN_AUTHORITY::equals)) {
+            throw new MessagingException("The change feed is only available to administrators.");
+        }
+        return authentication;
+    }
+}
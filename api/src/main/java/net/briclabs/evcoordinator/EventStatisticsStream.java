@@ -0,0 +1,249 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Streams the statistics of the latest current event to every connected client as Server-Sent Events. A client is sent
+ * a {@value #SNAPSHOT} event with the statistics when it connects, then a {@value #CHANGES} event holding only the
+ * fields which changed, at most once per interval.
+ * <p>
+ * The statistics are read once per interval for every client, through the snapshot the statistics logic shares, and
+ * only while clients are connected. Connected clients hold no thread, only their emitter. A comment is sent after a
+ * while without changes, so connections the clients closed are noticed and let go.
+ * <p>
+ * Working out what to send is serialized with a lock rather than {@code synchronized}, since it reads the database,
+ * which would pin the carrier of a virtual thread for as long as it blocks. Sending happens once the lock is released:
+ * each client has a short queue of events, drained by the senders, so a stalled client holds up neither the others
+ * nor the scheduler. A client falling further behind than its queue holds is disconnected rather than skipped ahead,
+ * since the changes it missed would leave it with the wrong statistics. It reconnects and starts over from a snapshot.
+ */
+@Component
+public class EventStatisticsStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventStatisticsStream.class);
+
+    static final String SNAPSHOT = "snapshot";
+    static final String CHANGES = "changes";
+
+    private final ObjectMapper objectMapper;
+    private final EventStatisticsLogic eventStatisticsLogic;
+    private final Duration heartbeatInterval;
+    private final Duration timeout;
+    private final int maxPendingEvents;
+    private final Executor senders;
+    private final Map<SseEmitter, Client> clients = new ConcurrentHashMap<>();
+    private final Lock lock = new ReentrantLock();
+
+    private JsonNode lastSent;
+    private Instant lastSentAt = Instant.now();
+
+    public EventStatisticsStream(
+            ObjectMapper objectMapper,
+            DSLContext dslContext,
+            @Value("${app.statistics.stream.heartbeat-interval}") Duration heartbeatInterval,
+            @Value("${app.statistics.stream.timeout}") Duration timeout,
+            @Value("${app.statistics.stream.max-pending-events}") int maxPendingEvents,
+            @Qualifier("statisticsStreamSenders") Executor senders) {
+        this.objectMapper = objectMapper;
+        this.eventStatisticsLogic = new EventStatisticsLogic(objectMapper, dslContext);
+        this.heartbeatInterval = heartbeatInterval;
+        this.timeout = timeout;
+        this.maxPendingEvents = maxPendingEvents;
+        this.senders = senders;
+    }
+
+    /**
+     * Connects a client, sending it the current statistics right away.
+     *
+     * @return the emitter through which the client is sent the statistics.
+     * @throws IOException if the current statistics couldn't be rendered.
+     */
+    public SseEmitter subscribe() throws IOException {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Client client = new Client(emitter, new ArrayBlockingQueue<>(maxPendingEvents));
+        emitter.onCompletion(() -> clients.remove(emitter));
+        emitter.onTimeout(() -> clients.remove(emitter));
+        emitter.onError(e -> clients.remove(emitter));
+        lock.lock();
+        try {
+            if (lastSent == null) {
+                lastSent = fetchLatest();
+            }
+            // Queued before the client is added, so the snapshot comes ahead of any changes published after it.
+            String json = objectMapper.writeValueAsString(lastSent);
+            client.pending().add(() -> SseEmitter.event().name(SNAPSHOT).data(json, MediaType.APPLICATION_JSON));
+            clients.put(emitter, client);
+        } finally {
+            lock.unlock();
+        }
+        send(client);
+        return emitter;
+    }
+
+    /**
+     * Sends the fields of the statistics which changed since they were last sent to every connected client, or a
+     * comment should nothing have been sent for a while.
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.stream.interval}")
+    public void publish() {
+        Supplier<SseEmitter.SseEventBuilder> event;
+        lock.lock();
+        try {
+            event = nextEvent();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to publish the latest event statistics.", e);
+            return;
+        } finally {
+            lock.unlock();
+        }
+        if (event != null) {
+            broadcast(event);
+        }
+    }
+
+    /**
+     * Works out what to send next, bringing what was last sent up to date.
+     *
+     * @return the event to send, or {@code null} if there's nothing to send.
+     */
+    private Supplier<SseEmitter.SseEventBuilder> nextEvent() throws IOException {
+        if (clients.isEmpty()) {
+            // Nothing is read while no one is connected, so the next client is sent fresh statistics.
+            lastSent = null;
+            return null;
+        }
+        JsonNode latest = fetchLatest();
+        if (!Objects.equals(latest, lastSent)) {
+            String name;
+            JsonNode data;
+            if (latest instanceof ObjectNode latestFields && lastSent instanceof ObjectNode lastSentFields) {
+                name = CHANGES;
+                data = changedFields(lastSentFields, latestFields);
+            } else {
+                name = SNAPSHOT;
+                data = latest;
+            }
+            String json = objectMapper.writeValueAsString(data);
+            lastSent = latest;
+            lastSentAt = Instant.now();
+            return () -> SseEmitter.event().name(name).data(json, MediaType.APPLICATION_JSON);
+        } else if (lastSentAt.plus(heartbeatInterval).isBefore(Instant.now())) {
+            lastSentAt = Instant.now();
+            return () -> SseEmitter.event().comment("");
+        }
+        return null;
+    }
+
+    private JsonNode fetchLatest() {
+        return eventStatisticsLogic.fetchLatest().<JsonNode>map(objectMapper::valueToTree).orElse(NullNode.getInstance());
+    }
+
+    private ObjectNode changedFields(ObjectNode before, ObjectNode after) {
+        ObjectNode changed = objectMapper.createObjectNode();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = after.fields(); fields.hasNext(); ) {
+            var field = fields.next();
+            if (!Objects.equals(before.get(field.getKey()), field.getValue())) {
+                changed.set(field.getKey(), field.getValue());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Queues an event for every connected client. The event's text is rendered once, but an event builder can only be
+     * sent once, so each client is sent one of its own.
+     */
+    private void broadcast(Supplier<SseEmitter.SseEventBuilder> event) {
+        for (Client client : clients.values()) {
+            if (client.pending().offer(event)) {
+                send(client);
+            } else {
+                LOGGER.debug("Disconnecting a statistics stream client more than {} events behind.", maxPendingEvents);
+                disconnect(client, null);
+            }
+        }
+    }
+
+    /**
+     * Has a sender drain the client's queue, unless one already is.
+     */
+    private void send(Client client) {
+        if (client.sending().compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(client));
+            } catch (RejectedExecutionException e) {
+                client.sending().set(false);
+                disconnect(client, e);
+            }
+        }
+    }
+
+    private void drain(Client client) {
+        do {
+            Supplier<SseEmitter.SseEventBuilder> event;
+            while ((event = client.pending().poll()) != null) {
+                try {
+                    client.emitter().send(event.get());
+                } catch (IOException | IllegalStateException e) {
+                    // The client is gone.
+                    disconnect(client, e);
+                    return;
+                }
+            }
+            client.sending().set(false);
+            // An event queued after the queue was found empty, but before letting go of it, is sent too.
+        } while (!client.pending().isEmpty() && client.sending().compareAndSet(false, true));
+    }
+
+    private void disconnect(Client client, Throwable cause) {
+        clients.remove(client.emitter());
+        client.pending().clear();
+        if (cause == null) {
+            client.emitter().complete();
+        } else {
+            client.emitter().completeWithError(cause);
+        }
+    }
+
+    /**
+     * A connected client, with the events waiting to be sent to it.
+     *
+     * @param emitter the emitter through which the client is sent events.
+     * @param pending the events waiting to be sent, in order.
+     * @param sending whether a sender is draining the events.
+     */
+    private record Client(SseEmitter emitter, BlockingQueue<Supplier<SseEmitter.SseEventBuilder>> pending, AtomicBoolean sending) {
+
+        Client(SseEmitter emitter, BlockingQueue<Supplier<SseEmitter.SseEventBuilder>> pending) {
+            this(emitter, pending, new AtomicBoolean());
+        }
+    }
+}
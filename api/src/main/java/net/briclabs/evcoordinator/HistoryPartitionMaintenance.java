@@ -0,0 +1,69 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the monthly partitions of the history ahead of time, and detaches the ones past the retention policy.
+ * Runs once at startup, then on the configured interval. Reports an error whenever history lands in the default
+ * partition, as that means the partitions weren't created in time.
+ */
+@Component
+public class HistoryPartitionMaintenance {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HistoryPartitionMaintenance.class);
+
+    /**
+     * What becomes of the partitions past the retention policy.
+     */
+    public enum RetentionAction {
+        /** Moves them to the archive schema, out of the way of searches. */
+        ARCHIVE,
+        /** Drops them. */
+        DROP
+    }
+
+    private final HistoryLogic historyLogic;
+    private final int monthsAhead;
+    private final int retainedMonths;
+    private final RetentionAction retentionAction;
+
+    public HistoryPartitionMaintenance(
+            ObjectMapper objectMapper,
+            DSLContext dslContext,
+            @Value("${app.history.partitions.months-ahead}") int monthsAhead,
+            @Value("${app.history.partitions.retained-months}") int retainedMonths,
+            @Value("${app.history.partitions.retention-action}") RetentionAction retentionAction) {
+        this.historyLogic = new HistoryLogic(objectMapper, dslContext);
+        this.monthsAhead = monthsAhead;
+        this.retainedMonths = retainedMonths;
+        this.retentionAction = retentionAction;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.history.partitions.maintenance-interval}")
+    public void maintain() {
+        try {
+            int created = historyLogic.createPartitions(monthsAhead);
+            if (created > 0) {
+                LOGGER.info("Created {} history partitions.", created);
+            }
+            int unpartitioned = historyLogic.countUnpartitioned();
+            if (unpartitioned > 0) {
+                LOGGER.error("{} history entries were recorded in the default partition, as the monthly partitions weren't created in time.", unpartitioned);
+            }
+            if (retainedMonths > 0) {
+                int detached = historyLogic.detachExpiredPartitions(retainedMonths, retentionAction == RetentionAction.DROP);
+                if (detached > 0) {
+                    LOGGER.info("Detached {} history partitions past the retention of {} months ({}).", detached, retainedMonths, retentionAction);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to maintain the history partitions.", e);
+        }
+    }
+}
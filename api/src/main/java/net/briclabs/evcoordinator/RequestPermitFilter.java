@@ -0,0 +1,90 @@
+package net.briclabs.evcoordinator;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpHeaders;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how many requests run at once while requests run on virtual threads.
+ * <p>
+ * Platform threads bounded requests by the size of Tomcat's pool, but virtual threads don't, so a burst would otherwise
+ * have every request waiting on the connection pool until they time out on it all at once. Requests instead wait here,
+ * in the order they arrived, for one of fewer permits than the pool has connections, leaving the rest to the background
+ * tasks. Requests which can't get a permit in time are answered with {@code 503 Service Unavailable}.
+ * <p>
+ * A request's permit is released once its thread returns, but what it started asynchronously, such as streaming an
+ * export within a transaction, may hold a connection for far longer. Such work runs on virtual threads which take a
+ * permit of their own before starting, waiting for as long as it takes, so it's bounded along with the requests.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class RequestPermitFilter extends OncePerRequestFilter implements WebMvcConfigurer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestPermitFilter.class);
+
+    private final Semaphore permits;
+    private final Duration timeout;
+
+    public RequestPermitFilter(
+            @Value("${app.threads.virtual.request-permits}") int permits,
+            @Value("${app.threads.virtual.request-permit-timeout}") Duration timeout) {
+        this.permits = new Semaphore(permits, true);
+        this.timeout = timeout;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        if (!acquired) {
+            LOGGER.warn("Rejected {} {} after waiting {} for a request permit.", request.getMethod(), request.getRequestURI(), timeout);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1L, timeout.toSeconds())));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mvc-async-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(task -> () -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+        configurer.setTaskExecutor(executor);
+    }
+}
@@ -2,18 +2,28 @@ package net.briclabs.evcoordinator.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.briclabs.evcoordinator.ParticipantLogic;
-import net.briclabs.evcoordinator.generated.tables.pojos.Participant;
 import org.jooq.DSLContext;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
-import java.util.Optional;
+import java.time.Duration;
+import java.time.Instant;
 
 public abstract class ApiController {
 
     public static final String V1 = "v1";
 
+    private static final String ACTOR_ID_ATTRIBUTE = ApiController.class.getName() + ".actorId";
+
+    /**
+     * How long the participant resolved for a token without an expiry is remembered.
+     */
+    private static final Duration UNEXPIRING_TOKEN_RESOLUTION_LIFETIME = Duration.ofMinutes(5);
+
     protected final DSLContext jooq;
 
     private final ParticipantLogic participantLogic;
@@ -27,31 +37,42 @@ public abstract class ApiController {
      * Retrieves the ID of the authenticated participant.
      * If no authenticated participant is found or the ID is null,
      * the method returns -1.
+     * <p>
+     * The participant is resolved once per request, and the resolution is remembered across requests until the
+     * caller's token expires.
      *
      * @return the ID of the authenticated participant if present; otherwise, -1.
      */
     protected long getActorId() {
-        var participant = getAuthenticatedParticipant();
-        return participant.isEmpty() || participant.get().getId() == null ? -1L : participant.get().getId();
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null) {
+            return resolveAuthenticatedParticipantId();
+        }
+        if (requestAttributes.getAttribute(ACTOR_ID_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long actorId) {
+            return actorId;
+        }
+        long actorId = resolveAuthenticatedParticipantId();
+        requestAttributes.setAttribute(ACTOR_ID_ATTRIBUTE, actorId, RequestAttributes.SCOPE_REQUEST);
+        return actorId;
     }
 
     /**
-     * Retrieves the authenticated participant based on the current security context.
+     * Resolves the ID of the authenticated participant based on the current security context.
      * If the user is authenticated and their email address is present in the authentication token,
-     * it fetches the participant associated with that email address.
+     * it resolves the participant associated with that email address.
      *
-     * @return an {@code Optional} containing the authenticated participant if present;
-     *         otherwise, an empty {@code Optional}.
+     * @return the ID of the authenticated participant if present; otherwise, -1.
      */
-    private Optional<Participant> getAuthenticatedParticipant() {
+    private long resolveAuthenticatedParticipantId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.isAuthenticated() && authentication instanceof JwtAuthenticationToken jwtAuthenticationToken) {
-            var authenticatedUserEmailAddress = jwtAuthenticationToken.getTokenAttributes().get("email").toString();
-            var fetchedParticipants = participantLogic.fetchParticipantByEmail(authenticatedUserEmailAddress);
-            if (fetchedParticipants.count() > 0) {
-                return Optional.of(fetchedParticipants.list().get(0));
+            Jwt token = jwtAuthenticationToken.getToken();
+            String authenticatedUserEmailAddress = token.getClaimAsString("email");
+            if (authenticatedUserEmailAddress != null) {
+                Instant expiresAt = token.getExpiresAt() == null ? Instant.now().plus(UNEXPIRING_TOKEN_RESOLUTION_LIFETIME) : token.getExpiresAt();
+                return participantLogic.resolveActorId(token.getSubject(), authenticatedUserEmailAddress, expiresAt);
             }
         }
-        return Optional.empty();
+        return -1L;
     }
 }
@@ -1,13 +1,23 @@
 package net.briclabs.evcoordinator.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.LatestSnapshotCache;
 import net.briclabs.evcoordinator.ListWithCount;
 import net.briclabs.evcoordinator.Logic;
+import net.briclabs.evcoordinator.model.ExportFormat;
 import net.briclabs.evcoordinator.model.SearchRequest;
 import org.jooq.DSLContext;
 import org.jooq.impl.TableImpl;
 import org.jooq.impl.TableRecordImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
 import java.io.Serializable;
 
@@ -18,7 +28,11 @@ public abstract class ReadController<
         RL extends Logic<RR, RP, RT>>
         extends ApiController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     protected final RL readLogic;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadController.class);
 
     public ReadController(ObjectMapper objectMapper, DSLContext dslContext, RL readLogic) {
         super(objectMapper, dslContext);
@@ -27,13 +41,53 @@ public abstract class ReadController<
 
     /**
      * Retrieves a resource by its unique identifier.
+     * <p>
+     * The response carries an ETag computed from the resource's values. When it matches the request's
+     * {@code If-None-Match}, a 304 (Not Modified) is answered without serializing the resource.
      *
      * @param id the unique identifier of the resource to retrieve.
      * @return a {@code ResponseEntity} containing the resource represented by {@link RP}
      *         if it exists; otherwise, a {@code ResponseEntity} with a status of 404 (Not Found).
      */
     protected ResponseEntity<RP> fetchById(Long id) {
-        return readLogic.fetchById(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        return readLogic.fetchById(id)
+                .map(pojo -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(readLogic.computeETag(pojo))
+                        .body(pojo))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Answers with the value held by a cached "latest" snapshot.
+     * <p>
+     * The ETag and Last-Modified headers come from the snapshot, computed when it was loaded. So when the request's
+     * {@code If-None-Match} or {@code If-Modified-Since} shows the client's copy is current, a 304 (Not Modified) is
+     * answered without loading the row or serializing it.
+     *
+     * @param snapshot the snapshot to answer with.
+     * @return a {@code ResponseEntity} containing the snapshot's value if there is one; otherwise, a
+     *         {@code ResponseEntity} with a status of 404 (Not Found).
+     */
+    protected ResponseEntity<RP> latest(LatestSnapshotCache.Snapshot<RP> snapshot) {
+        return snapshot.value()
+                .map(pojo -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(snapshot.eTag())
+                        .lastModified(snapshot.loadedAt())
+                        .body(pojo))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Answers with the value held by a cached "latest" snapshot, as {@link #latest(LatestSnapshotCache.Snapshot)}
+     * does, once the snapshot is at hand. The request's thread is let go of in the meantime.
+     *
+     * @param snapshot a {@code Mono} emitting the snapshot to answer with.
+     * @return a {@code Mono} emitting the answer.
+     */
+    protected Mono<ResponseEntity<RP>> latest(Mono<LatestSnapshotCache.Snapshot<RP>> snapshot) {
+        return snapshot.map(this::latest);
     }
 
     /**
@@ -41,19 +95,63 @@ public abstract class ReadController<
      * It utilizes the search logic to fetch a list of results and the corresponding total count
      * of records matching the given criteria.
      *
-     * @param searchRequest the search request containing the search configuration and criteria.
+     * @param searchRequest the search request containing the search configuration, criteria and ranges.
      *                      It specifies filtering, sorting, pagination, and exact match preferences.
      * @return a {@code ResponseEntity} containing a {@link ListWithCount} of type {@link RP}, where the list
-     *         represents the search results and the count represents the total number of matching records.
+     *         represents the search results and the count represents the total number of matching records;
+     *         or a {@code ResponseEntity} with a status of 400 (Bad Request) if the continuation token or a
+     *         range bound is invalid.
      */
     protected ResponseEntity<ListWithCount<RP>> search(SearchRequest searchRequest) {
-        return ResponseEntity.ok(readLogic.fetchByCriteria(
-                searchRequest.searchConfiguration().exactMatch(),
-                searchRequest.searchCriteria(),
-                searchRequest.searchConfiguration().sortColumn(),
-                searchRequest.searchConfiguration().sortAsc(),
-                searchRequest.searchConfiguration().offset(),
-                searchRequest.searchConfiguration().max()
-        ));
+        try {
+            return ResponseEntity.ok(readLogic.fetchByCriteria(
+                    searchRequest.searchConfiguration().exactMatch(),
+                    searchRequest.searchCriteria(),
+                    searchRequest.searchRanges(),
+                    searchRequest.searchConfiguration().sortColumn(),
+                    searchRequest.searchConfiguration().sortAsc(),
+                    searchRequest.searchConfiguration().offset(),
+                    searchRequest.searchConfiguration().max(),
+                    searchRequest.searchConfiguration().continuationToken(),
+                    searchRequest.searchConfiguration().countMode(),
+                    searchRequest.searchConfiguration().rankBySimilarity()
+            ));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Rejected search request with an invalid continuation token or range bound.", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Exports every record matching the search criteria, streaming them to the client as they're read.
+     * Paging in the search configuration is ignored; its sorting and matching preferences apply.
+     *
+     * @param searchRequest the search request containing the search configuration and criteria.
+     * @param format the format in which to export the records.
+     * @return a {@code ResponseEntity} whose body writes the matching records in the requested format; or a
+     *         {@code ResponseEntity} with a status of 400 (Bad Request) if a range bound is invalid.
+     */
+    protected ResponseEntity<StreamingResponseBody> export(SearchRequest searchRequest, ExportFormat format) {
+        Logic.Export export;
+        try {
+            export = readLogic.prepareExport(
+                    searchRequest.searchConfiguration().exactMatch(),
+                    searchRequest.searchCriteria(),
+                    searchRequest.searchRanges(),
+                    searchRequest.searchConfiguration().sortColumn(),
+                    searchRequest.searchConfiguration().sortAsc()
+            );
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Rejected export request with an invalid range bound.", e);
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> export.writeTo(format, outputStream);
+        return ResponseEntity.ok()
+                .contentType(format == ExportFormat.CSV ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("export." + format.name().toLowerCase())
+                        .build()
+                        .toString())
+                .body(body);
     }
 }
@@ -1,11 +1,14 @@
 package net.briclabs.evcoordinator.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import net.briclabs.evcoordinator.Logic;
 import net.briclabs.evcoordinator.WriteLogic;
 import net.briclabs.evcoordinator.model.CreateResponse;
 import net.briclabs.evcoordinator.model.UpdateResponse;
 import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
+import org.jooq.exception.SQLStateClass;
 import org.jooq.impl.TableImpl;
 import org.jooq.impl.TableRecordImpl;
 import org.slf4j.Logger;
@@ -14,6 +17,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.io.Serializable;
+import java.time.OffsetDateTime;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
@@ -32,6 +36,11 @@ public abstract class WriteController<
     protected final WL writeLogic;
     private static final Logger LOGGER = LoggerFactory.getLogger(WriteController.class);
 
+    /**
+     * The SQL state PostgreSQL reports when a write would duplicate a unique value.
+     */
+    private static final String UNIQUE_VIOLATION = "23505";
+
     public WriteController(ObjectMapper objectMapper, DSLContext dslContext, RL readLogic, WL writeLogic) {
         super(objectMapper, dslContext, readLogic);
         this.writeLogic = writeLogic;
@@ -47,20 +56,18 @@ public abstract class WriteController<
         if (!errors.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CreateResponse(-1L, errors));
         }
-        if (writeLogic.isAlreadyRecorded(pojo)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new CreateResponse(-1L, Map.of(Logic.GENERAL_MESSAGE_KEY, "This record already exists.")));
-        }
         Optional<Long> insertedId;
         try {
-            insertedId = writeLogic.insertNew(getActorId(), pojo);
+            insertedId = writeLogic.insertNewIfAbsent(getActorId(), pojo);
         } catch (Exception e) {
+            LOGGER.error("Failed to create record.", e);
             return ResponseEntity.internalServerError().body(new CreateResponse(-1L, Map.of(Logic.GENERAL_MESSAGE_KEY, "An internal server error occurred. Please try again. If the problem persists, please contact the administrator.")));
         }
         if (insertedId.isPresent()) {
             return ResponseEntity.status(HttpStatus.CREATED).body(new CreateResponse(insertedId.get(), Collections.emptyMap()));
         }
-        LOGGER.error("Failed to create record.", new Exception());
-        return ResponseEntity.internalServerError().body(new CreateResponse(-1L, Map.of(Logic.GENERAL_MESSAGE_KEY, "Failed to create record. Please review your input and try again.")));
+        // Nothing was inserted because a record with the same content, or the same unique values, is already recorded.
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new CreateResponse(-1L, Map.of(Logic.GENERAL_MESSAGE_KEY, "This record already exists.")));
     }
 
     /**
@@ -79,7 +86,33 @@ public abstract class WriteController<
         } catch (WriteLogic.LogicException e) {
             LOGGER.error("Failed to update record.", e);
             return ResponseEntity.internalServerError().body(new UpdateResponse(0, Map.ofEntries(e.getPublicMessage())));
+        } catch (DataAccessException e) {
+            return rejectedByConstraint(e);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(new UpdateResponse(0, Map.of(Logic.GENERAL_MESSAGE_KEY, "An internal server error occurred. Please try again. If the problem persists, please contact the administrator.")));
+        }
+        if (countOfRecordsUpdated == 0) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new UpdateResponse(0, Map.of(Logic.GENERAL_MESSAGE_KEY, "No records were updated. Please review your input and try again.")));
+        }
+        return ResponseEntity.ok(new UpdateResponse(countOfRecordsUpdated, Collections.emptyMap()));
+    }
+
+    /**
+     * Partially updates an instance of this object, changing only the fields present in the request.
+     * @param id the ID of the record to update.
+     * @param changes the values of the fields to change, keyed by the properties of the POJO.
+     * @return an {@link UpdateResponse} containing the number of records updated and any messages to pass along to the consumer.
+     */
+    protected ResponseEntity<UpdateResponse> patch(Long id, ObjectNode changes) {
+        int countOfRecordsUpdated;
+        try {
+            countOfRecordsUpdated = writeLogic.patchExisting(getActorId(), id, changes);
+        } catch (WriteLogic.InvalidChangesException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new UpdateResponse(0, e.getMessages()));
+        } catch (DataAccessException e) {
+            return rejectedByConstraint(e);
         } catch (Exception e) {
+            LOGGER.error("Failed to patch record.", e);
             return ResponseEntity.internalServerError().body(new UpdateResponse(0, Map.of(Logic.GENERAL_MESSAGE_KEY, "An internal server error occurred. Please try again. If the problem persists, please contact the administrator.")));
         }
         if (countOfRecordsUpdated == 0) {
@@ -87,4 +120,37 @@ public abstract class WriteController<
         }
         return ResponseEntity.ok(new UpdateResponse(countOfRecordsUpdated, Collections.emptyMap()));
     }
+
+    /**
+     * Answers an update the database failed. Updates which would break an integrity constraint are the consumer's to
+     * fix, as validation failures are: a duplicate of a unique value, such as the content of another record, is a
+     * conflict, and any other violation, such as a missing required value, a bad request. Anything else is an internal
+     * server error.
+     * @param e the exception the update failed with.
+     * @return an {@link UpdateResponse} with a message to pass along to the consumer.
+     */
+    private ResponseEntity<UpdateResponse> rejectedByConstraint(DataAccessException e) {
+        if (e.sqlStateClass() != SQLStateClass.C23_INTEGRITY_CONSTRAINT_VIOLATION) {
+            LOGGER.error("Failed to update record.", e);
+            return ResponseEntity.internalServerError().body(new UpdateResponse(0, Map.of(Logic.GENERAL_MESSAGE_KEY, "An internal server error occurred. Please try again. If the problem persists, please contact the administrator.")));
+        }
+        LOGGER.info("Update rejected by an integrity constraint: {}", e.getMessage());
+        if (UNIQUE_VIOLATION.equals(e.sqlState())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new UpdateResponse(0, Map.of(Logic.GENERAL_MESSAGE_KEY, "This record already exists.")));
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new UpdateResponse(0, Map.of(Logic.GENERAL_MESSAGE_KEY, "The changes would leave the record incomplete or inconsistent. Please review your input and try again.")));
+    }
+
+    /**
+     * Retrieves an instance of this object as it was at the given time, rebuilt from its history.
+     * @param id the ID of the record to retrieve.
+     * @param asOf the time at which to retrieve it.
+     * @return the record as it was; or a {@code ResponseEntity} with a status of 404 (Not Found) if it didn't exist then,
+     *         or its history doesn't go back that far.
+     */
+    protected ResponseEntity<WP> fetchAsOf(Long id, OffsetDateTime asOf) {
+        return writeLogic.fetchAsOf(id, asOf)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
@@ -2,8 +2,10 @@ package net.briclabs.evcoordinator.controller.configuration;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import net.briclabs.evcoordinator.ConfigurationLogic;
 import net.briclabs.evcoordinator.ListWithCount;
+import net.briclabs.evcoordinator.PublicReadLogic;
 import net.briclabs.evcoordinator.controller.ApiController;
 import net.briclabs.evcoordinator.controller.WriteController;
 import net.briclabs.evcoordinator.generated.tables.pojos.Configuration;
@@ -13,6 +15,7 @@ import net.briclabs.evcoordinator.model.SearchRequest;
 import net.briclabs.evcoordinator.model.UpdateResponse;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,20 +23,25 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
 
 @RestController
 @CrossOrigin(
         origins = "${app.cors.origins}",
         allowedHeaders = "*",
-        methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT}
+        methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH}
 )
 @EnableMethodSecurity
 @Validated
@@ -48,9 +56,12 @@ public class ConfigurationController extends WriteController<
         net.briclabs.evcoordinator.generated.tables.Configuration,
         ConfigurationLogic> {
 
+    private final PublicReadLogic publicReadLogic;
+
     @Autowired
-    public ConfigurationController(ObjectMapper objectMapper, DSLContext dslContext) {
+    public ConfigurationController(ObjectMapper objectMapper, DSLContext dslContext, PublicReadLogic publicReadLogic) {
         super(objectMapper, dslContext, new ConfigurationLogic(objectMapper, dslContext), new ConfigurationLogic(objectMapper, dslContext));
+        this.publicReadLogic = publicReadLogic;
     }
 
     @Override
@@ -69,12 +80,27 @@ public class ConfigurationController extends WriteController<
         return super.update(pojo);
     }
 
+    @Override
+    @PatchMapping(value = "/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<UpdateResponse> patch(@PathVariable("id") Long id, @RequestBody ObjectNode changes) {
+        return super.patch(id, changes);
+    }
+
     @Override
     @GetMapping(value = "/{id}")
     public ResponseEntity<Configuration> fetchById(@PathVariable("id") Long id) {
         return super.fetchById(id);
     }
 
+    @Override
+    @GetMapping(value = "/{id}/as-of")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<Configuration> fetchAsOf(@PathVariable("id") Long id, @RequestParam("at") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
+        return super.fetchAsOf(id, asOf);
+    }
+
     @Override
     @PostMapping(path = "/search")
     public ResponseEntity<ListWithCount<Configuration>> search(@RequestBody SearchRequest searchRequest) {
@@ -82,7 +108,7 @@ public class ConfigurationController extends WriteController<
     }
 
     @GetMapping(value = "/latest")
-    public ResponseEntity<Configuration> findLatest() {
-        return readLogic.fetchLatest().map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    public Mono<ResponseEntity<Configuration>> findLatest() {
+        return latest(publicReadLogic.fetchLatestConfiguration());
     }
 }
@@ -0,0 +1,72 @@
+package net.briclabs.evcoordinator.controller.diagnostics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.HistoryLogic;
+import net.briclabs.evcoordinator.HistoryWriter;
+import net.briclabs.evcoordinator.LatestSnapshotCache;
+import net.briclabs.evcoordinator.controller.ApiController;
+import net.briclabs.evcoordinator.model.HistoryStorageReport;
+import org.jooq.DSLContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collection;
+
+@RestController
+@CrossOrigin(
+        origins = "${app.cors.origins}",
+        allowedHeaders = "*",
+        methods = { RequestMethod.GET }
+)
+@EnableMethodSecurity
+@Validated
+@RequestMapping(ApiController.V1 + "/diagnostics")
+public class DiagnosticsController extends ApiController {
+
+    private final HistoryLogic historyLogic;
+
+    public DiagnosticsController(ObjectMapper objectMapper, DSLContext dslContext) {
+        super(objectMapper, dslContext);
+        this.historyLogic = new HistoryLogic(objectMapper, dslContext);
+    }
+
+    /**
+     * Retrieves the hit, miss, and invalidation counts of the in-process caches.
+     *
+     * @return a {@code ResponseEntity} containing the statistics of each cache.
+     */
+    @GetMapping(value = "/caches")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<Collection<LatestSnapshotCache.Statistics>> caches() {
+        return ResponseEntity.ok(LatestSnapshotCache.statistics());
+    }
+
+    /**
+     * Retrieves the queue depth and flush latency of the history writer.
+     *
+     * @return a {@code ResponseEntity} containing the metrics of the history writer.
+     */
+    @GetMapping(value = "/history")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<HistoryWriter.Statistics> history() {
+        return ResponseEntity.ok(HistoryWriter.statistics());
+    }
+
+    /**
+     * Retrieves how much storage the history takes, and how much compacting it into deltas saved.
+     *
+     * @return a {@code ResponseEntity} containing the storage report of the history.
+     */
+    @GetMapping(value = "/history/storage")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<HistoryStorageReport> historyStorage() {
+        return ResponseEntity.ok(historyLogic.fetchStorageReport());
+    }
+}
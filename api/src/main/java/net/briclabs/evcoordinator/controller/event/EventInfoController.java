@@ -1,8 +1,10 @@
 package net.briclabs.evcoordinator.controller.event;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import net.briclabs.evcoordinator.EventInfoLogic;
 import net.briclabs.evcoordinator.ListWithCount;
+import net.briclabs.evcoordinator.PublicReadLogic;
 import net.briclabs.evcoordinator.controller.ApiController;
 import net.briclabs.evcoordinator.controller.WriteWithDeleteController;
 import net.briclabs.evcoordinator.generated.tables.pojos.EventInfo;
@@ -13,6 +15,7 @@ import net.briclabs.evcoordinator.model.SearchRequest;
 import net.briclabs.evcoordinator.model.UpdateResponse;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,21 +24,26 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
 
 
 @RestController
 @CrossOrigin(
         origins = "${app.cors.origins}",
         allowedHeaders = "*",
-        methods = { RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT }
+        methods = { RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH }
 )
 @EnableMethodSecurity
 @Validated
@@ -50,9 +58,12 @@ public class EventInfoController extends WriteWithDeleteController<
         net.briclabs.evcoordinator.generated.tables.EventInfo,
         EventInfoLogic> {
 
+    private final PublicReadLogic publicReadLogic;
+
     @Autowired
-    public EventInfoController(ObjectMapper objectMapper, DSLContext dslContext) {
+    public EventInfoController(ObjectMapper objectMapper, DSLContext dslContext, PublicReadLogic publicReadLogic) {
         super(objectMapper, dslContext, new EventInfoLogic(objectMapper, dslContext), new EventInfoLogic(objectMapper, dslContext));
+        this.publicReadLogic = publicReadLogic;
     }
 
     @Override
@@ -79,6 +90,14 @@ public class EventInfoController extends WriteWithDeleteController<
         return super.update(pojo);
     }
 
+    @Override
+    @PatchMapping(value = "/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<UpdateResponse> patch(@PathVariable("id") Long id, @RequestBody ObjectNode changes) {
+        return super.patch(id, changes);
+    }
+
     @Override
     @GetMapping(value = "/{id}")
     @PreAuthorize("hasAuthority('evcoordinator:admin')")
@@ -86,6 +105,13 @@ public class EventInfoController extends WriteWithDeleteController<
         return super.fetchById(id);
     }
 
+    @Override
+    @GetMapping(value = "/{id}/as-of")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<EventInfo> fetchAsOf(@PathVariable("id") Long id, @RequestParam("at") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
+        return super.fetchAsOf(id, asOf);
+    }
+
     @Override
     @PostMapping(path = "/search")
     @PreAuthorize("hasAuthority('evcoordinator:admin')")
@@ -94,7 +120,7 @@ public class EventInfoController extends WriteWithDeleteController<
     }
 
     @GetMapping(value = "/latest")
-    public ResponseEntity<EventInfo> findLatest() {
-        return readLogic.fetchLatest().map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    public Mono<ResponseEntity<EventInfo>> findLatest() {
+        return latest(publicReadLogic.fetchLatestEventInfo());
     }
 }
@@ -7,6 +7,7 @@ import net.briclabs.evcoordinator.controller.ApiController;
 import net.briclabs.evcoordinator.controller.ReadController;
 import net.briclabs.evcoordinator.generated.tables.pojos.DataHistoryWithLabels;
 import net.briclabs.evcoordinator.generated.tables.records.DataHistoryWithLabelsRecord;
+import net.briclabs.evcoordinator.model.ExportFormat;
 import net.briclabs.evcoordinator.model.SearchRequest;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,7 +22,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @CrossOrigin(
@@ -56,4 +59,11 @@ public class HistoryController extends ReadController<
     public ResponseEntity<ListWithCount<DataHistoryWithLabels>> search(@RequestBody SearchRequest searchRequest) {
         return super.search(searchRequest);
     }
+
+    @Override
+    @PostMapping(path = "/export")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<StreamingResponseBody> export(@RequestBody SearchRequest searchRequest, @RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format) {
+        return super.export(searchRequest, format);
+    }
 }
@@ -1,41 +1,59 @@
 package net.briclabs.evcoordinator.controller.participant;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import net.briclabs.evcoordinator.ListWithCount;
+import net.briclabs.evcoordinator.Logic;
+import net.briclabs.evcoordinator.ParticipantImportLogic;
 import net.briclabs.evcoordinator.ParticipantLogic;
+import net.briclabs.evcoordinator.PublicReadLogic;
 import net.briclabs.evcoordinator.controller.ApiController;
 import net.briclabs.evcoordinator.controller.WriteController;
 import net.briclabs.evcoordinator.generated.tables.pojos.Participant;
 import net.briclabs.evcoordinator.generated.tables.records.ParticipantRecord;
 import net.briclabs.evcoordinator.model.CreateResponse;
+import net.briclabs.evcoordinator.model.ExportFormat;
+import net.briclabs.evcoordinator.model.ImportResponse;
 import net.briclabs.evcoordinator.model.SearchRequest;
 import net.briclabs.evcoordinator.model.UpdateResponse;
 import org.jooq.DSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.Map;
 
 
 @RestController
 @CrossOrigin(
         origins = "${app.cors.origins}",
         allowedHeaders = "*",
-        methods = { RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT }
+        methods = { RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH }
 )
 @EnableMethodSecurity
 @Validated
@@ -52,9 +70,16 @@ public class ParticipantController extends WriteController<
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ParticipantController.class);
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final ParticipantImportLogic importLogic;
+    private final PublicReadLogic publicReadLogic;
+
     @Autowired
-    public ParticipantController(ObjectMapper objectMapper, DSLContext dslContext) {
+    public ParticipantController(ObjectMapper objectMapper, DSLContext dslContext, PublicReadLogic publicReadLogic) {
         super(objectMapper, dslContext, new ParticipantLogic(objectMapper, dslContext), new ParticipantLogic(objectMapper, dslContext));
+        this.importLogic = new ParticipantImportLogic(objectMapper, dslContext);
+        this.publicReadLogic = publicReadLogic;
     }
 
     @Override
@@ -73,6 +98,14 @@ public class ParticipantController extends WriteController<
         return super.update(pojo);
     }
 
+    @Override
+    @PatchMapping(value = "/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<UpdateResponse> patch(@PathVariable("id") Long id, @RequestBody ObjectNode changes) {
+        return super.patch(id, changes);
+    }
+
     @Override
     @GetMapping(value = "/{id}")
     @PreAuthorize("hasAuthority('evcoordinator:admin')")
@@ -80,6 +113,13 @@ public class ParticipantController extends WriteController<
         return super.fetchById(id);
     }
 
+    @Override
+    @GetMapping(value = "/{id}/as-of")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<Participant> fetchAsOf(@PathVariable("id") Long id, @RequestParam("at") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
+        return super.fetchAsOf(id, asOf);
+    }
+
     @Override
     @PostMapping(path = "/search")
     @PreAuthorize("hasAuthority('evcoordinator:admin')")
@@ -87,12 +127,36 @@ public class ParticipantController extends WriteController<
         return super.search(searchRequest);
     }
 
-    @PostMapping("/preexists")
-    public ResponseEntity<Void> preexists(@RequestBody Participant participant) {
-        if (readLogic.attendeePreexists(participant.getNameFirst(), participant.getNameLast(), participant.getAddrEmail())) {
-            return ResponseEntity.ok().build();
-        } else {
-            return ResponseEntity.notFound().build();
+    /**
+     * Imports participants in bulk from CSV or NDJSON, in the same layout the exports produce. Valid rows are imported
+     * and invalid ones are reported, rather than failing the whole import.
+     *
+     * @param input the rows to import.
+     * @param contentType the media type of the rows, which determines their format.
+     * @param format the format of the rows, overriding the one the media type determines (optional).
+     * @return a {@code ResponseEntity} containing the number of participants imported, and the messages of each row
+     *         which wasn't.
+     */
+    @PostMapping(path = "/import", consumes = { "text/csv", "application/x-ndjson" })
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<ImportResponse> importAll(InputStream input, @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, @RequestParam(value = "format", required = false) ExportFormat format) {
+        if (format == null) {
+            format = TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(contentType)) ? ExportFormat.CSV : ExportFormat.NDJSON;
         }
+        try {
+            return ResponseEntity.ok(importLogic.importAll(getActorId(), format, input));
+        } catch (IOException e) {
+            LOGGER.error("Failed to read participants to import.", e);
+            return ResponseEntity.badRequest().body(new ImportResponse(0, Map.of(Logic.GENERAL_MESSAGE_KEY, "The file could not be read. Please review your input and try again.")));
+        } catch (Exception e) {
+            LOGGER.error("Failed to import participants.", e);
+            return ResponseEntity.internalServerError().body(new ImportResponse(0, Map.of(Logic.GENERAL_MESSAGE_KEY, "An internal server error occurred. Please try again. If the problem persists, please contact the administrator.")));
+        }
+    }
+
+    @PostMapping("/preexists")
+    public Mono<ResponseEntity<Void>> preexists(@RequestBody Participant participant) {
+        return publicReadLogic.attendeePreexists(participant.getNameFirst(), participant.getNameLast(), participant.getAddrEmail())
+                .map(preexists -> preexists ? ResponseEntity.ok().<Void>build() : ResponseEntity.notFound().<Void>build());
     }
 }
@@ -56,13 +56,14 @@ public class  RegistrationPacketController extends ApiController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public ResponseEntity<CreateResponse> register(@RequestBody RegistrationPacket registration) {
-        var errors = writeLogic.validate(registration);
+        var validation = writeLogic.validatePacket(registration);
+        var errors = validation.getMessages();
         if (!errors.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CreateResponse(-1L, errors));
         }
 
         try {
-            return ResponseEntity.status(HttpStatus.CREATED).body(new CreateResponse(writeLogic.register(getActorId(), registration), Collections.emptyMap()));
+            return ResponseEntity.status(HttpStatus.CREATED).body(new CreateResponse(writeLogic.register(getActorId(), registration, validation.getPreexistingAttendeeId()), Collections.emptyMap()));
         } catch (RegistrationPacketLogic.RegistrationPacketException e) {
             LOGGER.error("Failed to process registration packet.", e);
             return ResponseEntity.internalServerError().body(new CreateResponse(-1L, Map.ofEntries(e.getPublicMessage())));
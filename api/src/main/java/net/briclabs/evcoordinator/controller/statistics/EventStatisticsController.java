@@ -2,14 +2,18 @@ package net.briclabs.evcoordinator.controller.statistics;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.briclabs.evcoordinator.EventStatisticsLogic;
+import net.briclabs.evcoordinator.EventStatisticsStream;
 import net.briclabs.evcoordinator.ListWithCount;
+import net.briclabs.evcoordinator.PublicReadLogic;
 import net.briclabs.evcoordinator.controller.ApiController;
 import net.briclabs.evcoordinator.controller.ReadController;
 import net.briclabs.evcoordinator.generated.tables.pojos.EventStatistics;
 import net.briclabs.evcoordinator.generated.tables.records.EventStatisticsRecord;
+import net.briclabs.evcoordinator.model.RebuildResponse;
 import net.briclabs.evcoordinator.model.SearchRequest;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -22,6 +26,10 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
 
 @RestController
 @CrossOrigin(
@@ -38,9 +46,14 @@ public class EventStatisticsController extends ReadController<
         net.briclabs.evcoordinator.generated.tables.EventStatistics,
         EventStatisticsLogic> {
 
+    private final EventStatisticsStream eventStatisticsStream;
+    private final PublicReadLogic publicReadLogic;
+
     @Autowired
-    public EventStatisticsController(ObjectMapper objectMapper, DSLContext dslContext) {
+    public EventStatisticsController(ObjectMapper objectMapper, DSLContext dslContext, EventStatisticsStream eventStatisticsStream, PublicReadLogic publicReadLogic) {
         super(objectMapper, dslContext, new EventStatisticsLogic(objectMapper, dslContext));
+        this.eventStatisticsStream = eventStatisticsStream;
+        this.publicReadLogic = publicReadLogic;
     }
 
     @Override
@@ -58,7 +71,30 @@ public class EventStatisticsController extends ReadController<
     }
 
     @GetMapping(value = "/latest")
-    public ResponseEntity<EventStatistics> findLatest() {
-        return readLogic.fetchLatest().map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    public Mono<ResponseEntity<EventStatistics>> findLatest() {
+        return latest(publicReadLogic.fetchLatestEventStatistics());
+    }
+
+    /**
+     * Streams the latest statistics as Server-Sent Events: all of them once connected, then only the fields which
+     * changed, at most once per interval.
+     *
+     * @return the emitter through which the statistics are streamed.
+     * @throws IOException if the current statistics couldn't be sent.
+     */
+    @GetMapping(value = "/latest/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLatest() throws IOException {
+        return eventStatisticsStream.subscribe();
+    }
+
+    /**
+     * Recomputes every event's statistics from scratch, for verifying the incrementally maintained ones.
+     *
+     * @return a {@code ResponseEntity} containing the number of events whose statistics had drifted.
+     */
+    @PostMapping(path = "/rebuild")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<RebuildResponse> rebuild() {
+        return ResponseEntity.ok(new RebuildResponse(readLogic.rebuild()));
     }
 }
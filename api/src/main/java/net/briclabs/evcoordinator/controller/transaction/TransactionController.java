@@ -1,6 +1,7 @@
 package net.briclabs.evcoordinator.controller.transaction;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import net.briclabs.evcoordinator.ListWithCount;
 import net.briclabs.evcoordinator.TransactionLogic;
 import net.briclabs.evcoordinator.controller.ApiController;
@@ -11,10 +12,12 @@ import net.briclabs.evcoordinator.generated.tables.records.TransactionWithLabels
 import net.briclabs.evcoordinator.generated.tables.records.Transaction_Record;
 import net.briclabs.evcoordinator.model.CreateResponse;
 import net.briclabs.evcoordinator.model.DeleteResponse;
+import net.briclabs.evcoordinator.model.ExportFormat;
 import net.briclabs.evcoordinator.model.SearchRequest;
 import net.briclabs.evcoordinator.model.UpdateResponse;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,21 +26,26 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.OffsetDateTime;
 
 
 @RestController
 @CrossOrigin(
         origins = "${app.cors.origins}",
         allowedHeaders = "*",
-        methods = { RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT }
+        methods = { RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH }
 )
 @EnableMethodSecurity
 @Validated
@@ -81,6 +89,14 @@ public class TransactionController extends WriteWithDeleteController<
         return super.update(pojo);
     }
 
+    @Override
+    @PatchMapping(value = "/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<UpdateResponse> patch(@PathVariable("id") Long id, @RequestBody ObjectNode changes) {
+        return super.patch(id, changes);
+    }
+
     @Override
     @GetMapping(value = "/{id}")
     @PreAuthorize("hasAuthority('evcoordinator:admin')")
@@ -88,10 +104,24 @@ public class TransactionController extends WriteWithDeleteController<
         return super.fetchById(id);
     }
 
+    @Override
+    @GetMapping(value = "/{id}/as-of")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<Transaction_> fetchAsOf(@PathVariable("id") Long id, @RequestParam("at") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
+        return super.fetchAsOf(id, asOf);
+    }
+
     @Override
     @PostMapping(path = "/search")
     @PreAuthorize("hasAuthority('evcoordinator:admin')")
     public ResponseEntity<ListWithCount<TransactionWithLabels>> search(@RequestBody SearchRequest searchRequest) {
         return super.search(searchRequest);
     }
+
+    @Override
+    @PostMapping(path = "/export")
+    @PreAuthorize("hasAuthority('evcoordinator:admin')")
+    public ResponseEntity<StreamingResponseBody> export(@RequestBody SearchRequest searchRequest, @RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format) {
+        return super.export(searchRequest, format);
+    }
 }
@@ -0,0 +1,221 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.generated.enums.EmergencyContactRelationshipType;
+import net.briclabs.evcoordinator.generated.enums.EventStatus;
+import net.briclabs.evcoordinator.generated.enums.GuestRelationshipType;
+import net.briclabs.evcoordinator.generated.enums.ParticipantType;
+import net.briclabs.evcoordinator.generated.enums.TableRef;
+import net.briclabs.evcoordinator.generated.enums.TransactionInstrument;
+import net.briclabs.evcoordinator.generated.enums.TransactionType;
+import net.briclabs.evcoordinator.generated.enums.UsStateAbbreviations;
+import net.briclabs.evcoordinator.generated.tables.pojos.Configuration;
+import net.briclabs.evcoordinator.generated.tables.pojos.DataHistoryCheckpoint;
+import net.briclabs.evcoordinator.generated.tables.pojos.EventInfo;
+import net.briclabs.evcoordinator.generated.tables.pojos.Guest;
+import net.briclabs.evcoordinator.generated.tables.pojos.Registration;
+import net.briclabs.evcoordinator.generated.tables.pojos.Transaction_;
+import net.briclabs.evcoordinator.generated.tables.records.ParticipantRecord;
+import net.briclabs.evcoordinator.model.RegistrationPacket;
+import org.jooq.DSLContext;
+import org.jooq.JSON;
+import org.jooq.JSONB;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.conf.RenderQuotedNames;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static net.briclabs.evcoordinator.generated.Tables.CONFIGURATION;
+import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY_CHECKPOINT;
+import static net.briclabs.evcoordinator.generated.Tables.EVENT_INFO;
+import static net.briclabs.evcoordinator.generated.Tables.GUEST;
+import static net.briclabs.evcoordinator.generated.Tables.PARTICIPANT;
+import static net.briclabs.evcoordinator.generated.Tables.REGISTRATION;
+import static net.briclabs.evcoordinator.generated.Tables.TRANSACTION_;
+
+/**
+ * Records shaped like the ones an event accumulates, varied enough that no two benchmark operations see the same
+ * values, along with contexts which answer queries without a database.
+ * <p>
+ * Everything is built from jOOQ records, then mapped into POJOs, since the generated POJOs are immutable.
+ */
+final class Fixtures {
+
+    static final OffsetDateTime RECORDED = OffsetDateTime.of(2025, 3, 14, 18, 30, 0, 0, ZoneOffset.UTC);
+
+    private static final String[] FIRST_NAMES = { "Avery", "Jordan", "Morgan", "Riley", "Casey", "Quinn", "Rowan", "Skyler", "Emerson", "Harper", "Dakota", "Reese" };
+    private static final String[] LAST_NAMES = { "Nguyen", "Okafor", "Lindqvist", "Ramírez", "O'Connell", "Kowalczyk", "Haddad", "Fitzgerald-Moore", "Tanaka", "Abernathy", "Delacroix", "Whitfield" };
+    private static final String[] CITIES = { "Hartford", "New Haven", "Stamford", "Waterbury", "Norwalk", "Danbury", "Middletown", "Torrington" };
+    private static final UsStateAbbreviations[] STATES = { UsStateAbbreviations.CT, UsStateAbbreviations.NY, UsStateAbbreviations.MA, UsStateAbbreviations.RI, UsStateAbbreviations.NJ };
+
+    /**
+     * A context rendering the way the API's does, which doesn't execute anything.
+     */
+    static final DSLContext RENDERING = DSL.using(SQLDialect.POSTGRES, settings());
+
+    private Fixtures() {
+    }
+
+    static Settings settings() {
+        return new Settings().withRenderQuotedNames(RenderQuotedNames.EXPLICIT_DEFAULT_UNQUOTED);
+    }
+
+    /**
+     * Creates a context answering every query with the given result, as the database would, without one.
+     */
+    static DSLContext answering(Result<?> result) {
+        MockDataProvider provider = context -> new MockResult[] { new MockResult(result.size(), result) };
+        return DSL.using(new MockConnection(provider), SQLDialect.POSTGRES, settings());
+    }
+
+    static ParticipantRecord participantRecord(int n) {
+        return RENDERING.newRecord(PARTICIPANT)
+                .with(PARTICIPANT.ID, 10_000L + n)
+                .with(PARTICIPANT.PARTICIPANT_TYPE, n % 20 == 0 ? ParticipantType.VENDOR : ParticipantType.ATTENDEE)
+                .with(PARTICIPANT.NAME_FIRST, FIRST_NAMES[n % FIRST_NAMES.length])
+                .with(PARTICIPANT.NAME_LAST, LAST_NAMES[(n / FIRST_NAMES.length) % LAST_NAMES.length])
+                .with(PARTICIPANT.NAME_NICK, n % 3 == 0 ? FIRST_NAMES[n % FIRST_NAMES.length].substring(0, 3) : null)
+                .with(PARTICIPANT.SPONSOR, FIRST_NAMES[(n + 5) % FIRST_NAMES.length] + " " + LAST_NAMES[(n + 7) % LAST_NAMES.length])
+                .with(PARTICIPANT.DOB, LocalDate.of(1958 + n % 45, 1 + n % 12, 1 + n % 28))
+                .with(PARTICIPANT.ADDR_STREET_1, (12 + n * 7) + " Old Farm Road")
+                .with(PARTICIPANT.ADDR_STREET_2, n % 4 == 0 ? "Apt " + (1 + n % 30) : null)
+                .with(PARTICIPANT.ADDR_CITY, CITIES[n % CITIES.length])
+                .with(PARTICIPANT.ADDR_STATE_ABBR, STATES[n % STATES.length])
+                .with(PARTICIPANT.ADDR_ZIP, n % 5 == 0 ? "06478-%04d".formatted(n % 10_000) : "%05d".formatted(6_000 + n % 900))
+                .with(PARTICIPANT.ADDR_EMAIL, "%s.%s%d@example.org".formatted(FIRST_NAMES[n % FIRST_NAMES.length], LAST_NAMES[(n / FIRST_NAMES.length) % LAST_NAMES.length], n).toLowerCase().replace("'", ""))
+                .with(PARTICIPANT.PHONE_DIGITS, 2_035_550_000L + n)
+                .with(PARTICIPANT.EMERGENCY_CONTACT_RELATIONSHIP_TYPE, n % 2 == 0 ? EmergencyContactRelationshipType.FAMILY : EmergencyContactRelationshipType.FRIEND)
+                .with(PARTICIPANT.NAME_EMERGENCY, FIRST_NAMES[(n + 3) % FIRST_NAMES.length] + " " + LAST_NAMES[(n + 1) % LAST_NAMES.length])
+                .with(PARTICIPANT.PHONE_EMERGENCY, 8_605_550_000L + n)
+                .with(PARTICIPANT.TIME_RECORDED, RECORDED.plusMinutes(n));
+    }
+
+    static Result<ParticipantRecord> participantRecords(int count) {
+        Result<ParticipantRecord> result = RENDERING.newResult(PARTICIPANT);
+        for (int n = 0; n < count; n++) {
+            result.add(participantRecord(n));
+        }
+        return result;
+    }
+
+    static Registration registration(int n) {
+        return RENDERING.newRecord(REGISTRATION)
+                .with(REGISTRATION.ID, 20_000L + n)
+                .with(REGISTRATION.PARTICIPANT_ID, 10_000L + n)
+                .with(REGISTRATION.DONATION_PLEDGE, BigDecimal.valueOf(25 + n % 8 * 5))
+                .with(REGISTRATION.SIGNATURE, FIRST_NAMES[n % FIRST_NAMES.length] + " " + LAST_NAMES[(n / FIRST_NAMES.length) % LAST_NAMES.length])
+                .with(REGISTRATION.EVENT_INFO_ID, 42L)
+                .into(Registration.class);
+    }
+
+    static Guest guest(int n) {
+        return RENDERING.newRecord(GUEST)
+                .with(GUEST.ID, 30_000L + n)
+                .with(GUEST.REGISTRATION_ID, 20_000L + n / 2)
+                .with(GUEST.RAW_GUEST_NAME, FIRST_NAMES[(n + 2) % FIRST_NAMES.length] + " " + LAST_NAMES[(n + 4) % LAST_NAMES.length])
+                .with(GUEST.RELATIONSHIP, GuestRelationshipType.values()[n % GuestRelationshipType.values().length])
+                .into(Guest.class);
+    }
+
+    static EventInfo eventInfo() {
+        return RENDERING.newRecord(EVENT_INFO)
+                .with(EVENT_INFO.ID, 42L)
+                .with(EVENT_INFO.EVENT_NAME, "Spring Gathering")
+                .with(EVENT_INFO.EVENT_TITLE, "Spring Gathering at the Farm")
+                .with(EVENT_INFO.DATE_START, LocalDate.now().plusMonths(2))
+                .with(EVENT_INFO.DATE_END, LocalDate.now().plusMonths(2).plusDays(3))
+                .with(EVENT_INFO.EVENT_STATUS, EventStatus.CURRENT)
+                .into(EventInfo.class);
+    }
+
+    static Transaction_ transaction(int n) {
+        return RENDERING.newRecord(TRANSACTION_)
+                .with(TRANSACTION_.ID, 40_000L + n)
+                .with(TRANSACTION_.EVENT_INFO_ID, 42L)
+                .with(TRANSACTION_.ACTOR_ID, 10_001L)
+                .with(TRANSACTION_.RECIPIENT_ID, 10_000L + n)
+                .with(TRANSACTION_.AMOUNT, new BigDecimal("37.50000000").add(BigDecimal.valueOf(n % 10)))
+                .with(TRANSACTION_.TRANSACTION_TYPE, TransactionType.INCOME)
+                .with(TRANSACTION_.INSTRUMENT_TYPE, TransactionInstrument.values()[n % TransactionInstrument.values().length])
+                .with(TRANSACTION_.MEMO, n % 3 == 0 ? null : "Donation pledged at registration #" + n)
+                .with(TRANSACTION_.TIME_RECORDED, RECORDED.plusHours(n))
+                .into(Transaction_.class);
+    }
+
+    static Configuration configuration() {
+        return RENDERING.newRecord(CONFIGURATION)
+                .with(CONFIGURATION.ID, 3L)
+                .with(CONFIGURATION.RECOMMENDED_DONATION, 40)
+                .with(CONFIGURATION.CHARITY_NAME, "Connecticut Food Bank")
+                .with(CONFIGURATION.CHARITY_URL, "https://www.ctfoodbank.org/")
+                .with(CONFIGURATION.FUND_PROCESSOR_NAME, "PayPal")
+                .with(CONFIGURATION.FUND_PROCESSOR_URL, "https://www.paypal.com/")
+                .with(CONFIGURATION.FUND_PROCESSOR_INSTRUCTIONS, JSON.json(resource("fixtures/defaultFundProcessorInstructions.json")))
+                .with(CONFIGURATION.EVENT_GUIDELINES, JSON.json(resource("fixtures/defaultEventGuidelines.json")))
+                .into(Configuration.class);
+    }
+
+    /**
+     * A checkpoint of a registration, whose JSONB data holds the registration as the history records it.
+     */
+    static DataHistoryCheckpoint checkpoint(ObjectMapper objectMapper) throws IOException {
+        return RENDERING.newRecord(DATA_HISTORY_CHECKPOINT)
+                .with(DATA_HISTORY_CHECKPOINT.ID, 7L)
+                .with(DATA_HISTORY_CHECKPOINT.TABLE_SOURCE, TableRef.REGISTRATION)
+                .with(DATA_HISTORY_CHECKPOINT.RECORD_ID, 20_000L)
+                .with(DATA_HISTORY_CHECKPOINT.HISTORY_ID, 123_456L)
+                .with(DATA_HISTORY_CHECKPOINT.TIME_RECORDED, RECORDED)
+                .with(DATA_HISTORY_CHECKPOINT.DATA, JSONB.jsonb(objectMapper.writeValueAsString(registration(0))))
+                .into(DataHistoryCheckpoint.class);
+    }
+
+    /**
+     * The body of a registration a new attendee submits with two guests.
+     */
+    static String registrationPacketJson() {
+        return resource("fixtures/registration-packet.json");
+    }
+
+    static RegistrationPacket registrationPacket(ObjectMapper objectMapper) throws IOException {
+        return objectMapper.readValue(registrationPacketJson(), RegistrationPacket.class);
+    }
+
+    /**
+     * Search criteria as the administration pages send them: a partial name and city, and an exact state.
+     */
+    static Map<String, String> participantSearchCriteria() {
+        Map<String, String> criteria = new LinkedHashMap<>();
+        criteria.put("nameLast", "kowal");
+        criteria.put("addrCity", "Haven");
+        criteria.put("addrStateAbbr", "CT");
+        criteria.put("sponsor", "");
+        criteria.put("notAField", "ignored");
+        return criteria;
+    }
+
+    private static String resource(String name) {
+        try (InputStream stream = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (stream == null) {
+                throw new IllegalStateException("Missing fixture '%s'.".formatted(name));
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package net.briclabs.evcoordinator;
+
+import net.briclabs.evcoordinator.generated.tables.pojos.Participant;
+import net.briclabs.evcoordinator.generated.tables.records.ParticipantRecord;
+import org.jooq.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.briclabs.evcoordinator.generated.Tables.PARTICIPANT;
+
+/**
+ * Measures mapping jOOQ records to the immutable POJOs and back, for a single lookup, a page of search results, and
+ * the batch an export reads at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecordMappingBenchmark {
+
+    @Param({ "1", "25", "500" })
+    int rows;
+
+    private Result<ParticipantRecord> records;
+    private List<Participant> participants;
+
+    @Setup
+    public void setUp() {
+        records = Fixtures.participantRecords(rows);
+        participants = records.into(Participant.class);
+    }
+
+    @Benchmark
+    public List<Participant> resultIntoPojos() {
+        return records.into(Participant.class);
+    }
+
+    /**
+     * Maps each row on its own, through the table's record first, as a search maps its page.
+     */
+    @Benchmark
+    public List<Participant> recordsIntoPojos() {
+        return records.stream().map(record -> record.into(PARTICIPANT).into(Participant.class)).toList();
+    }
+
+    /**
+     * Maps POJOs into records, as writes and entity tags do.
+     */
+    @Benchmark
+    public List<ParticipantRecord> pojosIntoRecords() {
+        return participants.stream().map(participant -> Fixtures.RENDERING.newRecord(PARTICIPANT, participant)).toList();
+    }
+}
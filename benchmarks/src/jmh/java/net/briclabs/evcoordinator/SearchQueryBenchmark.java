@@ -0,0 +1,73 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.generated.tables.pojos.Participant;
+import net.briclabs.evcoordinator.model.CountMode;
+import org.jooq.Condition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning search criteria into SQL and a page of results, as a participant search from the administration
+ * pages does. The database is stood in for by a context answering every query with a page of 25 participants plus the
+ * one telling whether more follow, so what's measured is resolving, rendering, binding and mapping, not the query.
+ * <p>
+ * The first page and the ones after it render different SQL, as an offset of zero isn't rendered, so both are measured.
+ * The uncached variant renders the SQL for every search, as searches did before rendered SQL was kept per query shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchQueryBenchmark {
+
+    private static final int PAGE_SIZE = 25;
+
+    @Param({ "true", "false" })
+    boolean exactCriteria;
+
+    @Param({ "0", "25" })
+    int offset;
+
+    private ParticipantLogic participantLogic;
+    private Map<String, String> criteria;
+
+    @Setup
+    public void setUp() {
+        participantLogic = new ParticipantLogic(new ObjectMapper(), Fixtures.answering(Fixtures.participantRecords(PAGE_SIZE + 1)));
+        criteria = Fixtures.participantSearchCriteria();
+    }
+
+    @Benchmark
+    public SortedMap<String, Condition> parseCriteriaIntoConditions() {
+        return participantLogic.parseCriteriaIntoConditions(exactCriteria, criteria);
+    }
+
+    @Benchmark
+    public ListWithCount<Participant> fetchByCriteria() {
+        return participantLogic.fetchByCriteria(exactCriteria, criteria, Map.of(), "nameLast", true, offset, PAGE_SIZE, null, CountMode.HAS_MORE, false);
+    }
+
+    @Benchmark
+    public ListWithCount<Participant> fetchByCriteriaUncached() {
+        Logic.forgetRenderedQueries();
+        return participantLogic.fetchByCriteria(exactCriteria, criteria, Map.of(), "nameLast", true, offset, PAGE_SIZE, null, CountMode.HAS_MORE, false);
+    }
+
+    /**
+     * Ranking adds a similarity score per text criterion, which only applies to non-exact searches.
+     */
+    @Benchmark
+    public ListWithCount<Participant> fetchByCriteriaRanked() {
+        return participantLogic.fetchByCriteria(exactCriteria, criteria, Map.of(), "nameLast", true, offset, PAGE_SIZE, null, CountMode.HAS_MORE, true);
+    }
+}
@@ -0,0 +1,78 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.generated.tables.pojos.Configuration;
+import net.briclabs.evcoordinator.generated.tables.pojos.DataHistoryCheckpoint;
+import net.briclabs.evcoordinator.generated.tables.pojos.Participant;
+import net.briclabs.evcoordinator.model.CountMode;
+import net.briclabs.evcoordinator.model.RegistrationPacket;
+import org.jooq.JSON;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the serialization the API does with the object mapper {@link JacksonConfig} configures: converting records
+ * to the JSON history keeps, writing responses, including JSON and JSONB fields written through
+ * {@link JsonSerializer} and {@link JsonbSerializer}, and reading a registration packet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ParticipantLogic participantLogic;
+    private Participant participant;
+    private Configuration configuration;
+    private DataHistoryCheckpoint checkpoint;
+    private ListWithCount<Participant> searchPage;
+    private String registrationPacketJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new JacksonConfig().objectMapper();
+        participantLogic = new ParticipantLogic(objectMapper, Fixtures.RENDERING);
+        participant = Fixtures.participantRecord(7).into(Participant.class);
+        configuration = Fixtures.configuration();
+        checkpoint = Fixtures.checkpoint(objectMapper);
+        searchPage = new ListWithCount<>(Fixtures.participantRecords(25).into(Participant.class), -1, CountMode.HAS_MORE, true, "eyJzb3J0IjoibmFtZUxhc3QifQ");
+        registrationPacketJson = Fixtures.registrationPacketJson();
+    }
+
+    @Benchmark
+    public JSON convertToJson() {
+        return participantLogic.convertToJson(participant);
+    }
+
+    /**
+     * The latest configuration, whose instructions and guidelines are JSON fields.
+     */
+    @Benchmark
+    public String writeConfiguration() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(configuration);
+    }
+
+    @Benchmark
+    public String writeCheckpoint() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(checkpoint);
+    }
+
+    @Benchmark
+    public String writeSearchPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(searchPage);
+    }
+
+    @Benchmark
+    public RegistrationPacket readRegistrationPacket() throws JsonProcessingException {
+        return objectMapper.readValue(registrationPacketJson, RegistrationPacket.class);
+    }
+}
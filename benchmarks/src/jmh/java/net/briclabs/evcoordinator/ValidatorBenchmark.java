@@ -0,0 +1,104 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.generated.tables.pojos.Configuration;
+import net.briclabs.evcoordinator.generated.tables.pojos.EventInfo;
+import net.briclabs.evcoordinator.generated.tables.pojos.Guest;
+import net.briclabs.evcoordinator.generated.tables.pojos.Participant;
+import net.briclabs.evcoordinator.generated.tables.pojos.Registration;
+import net.briclabs.evcoordinator.generated.tables.pojos.Transaction_;
+import net.briclabs.evcoordinator.model.RegistrationPacket;
+import net.briclabs.evcoordinator.validation.ConfigurationValidator;
+import net.briclabs.evcoordinator.validation.EventInfoValidator;
+import net.briclabs.evcoordinator.validation.GuestValidator;
+import net.briclabs.evcoordinator.validation.ParticipantValidator;
+import net.briclabs.evcoordinator.validation.RegistrationPacketValidator;
+import net.briclabs.evcoordinator.validation.RegistrationValidator;
+import net.briclabs.evcoordinator.validation.TransactionValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.briclabs.evcoordinator.generated.Tables.PARTICIPANT;
+
+/**
+ * Measures validating each kind of record as it's submitted. The records are valid, so every check runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidatorBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Participant participant;
+    private Registration registration;
+    private Guest guest;
+    private EventInfo eventInfo;
+    private Transaction_ transaction;
+    private Configuration configuration;
+    private RegistrationPacket registrationPacket;
+    private ParticipantLogic participantLogic;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new JacksonConfig().objectMapper();
+        participant = Fixtures.participantRecord(7).into(Participant.class);
+        registration = Fixtures.registration(7);
+        guest = Fixtures.guest(7);
+        eventInfo = Fixtures.eventInfo();
+        transaction = Fixtures.transaction(7);
+        configuration = Fixtures.configuration();
+        registrationPacket = Fixtures.registrationPacket(objectMapper);
+        // The packet's participant is new, so looking it up as a preexisting attendee finds nothing.
+        participantLogic = new ParticipantLogic(objectMapper, Fixtures.answering(Fixtures.RENDERING.newResult(PARTICIPANT.ID)));
+    }
+
+    @Benchmark
+    public Map<String, String> participant() {
+        return ParticipantValidator.of(participant, false).getMessages();
+    }
+
+    @Benchmark
+    public Map<String, String> registration() {
+        return RegistrationValidator.of(registration, false).getMessages();
+    }
+
+    @Benchmark
+    public Map<String, String> guest() {
+        return GuestValidator.of(guest, false).getMessages();
+    }
+
+    @Benchmark
+    public Map<String, String> eventInfo() {
+        return EventInfoValidator.of(eventInfo).getMessages();
+    }
+
+    @Benchmark
+    public Map<String, String> transaction() {
+        return TransactionValidator.of(transaction).getMessages();
+    }
+
+    /**
+     * Parses the fund processor instructions and event guidelines installations start with.
+     */
+    @Benchmark
+    public Map<String, String> configuration() {
+        return ConfigurationValidator.of(configuration, objectMapper).getMessages();
+    }
+
+    /**
+     * Includes looking up whether the packet's participant preexists, through a context answering without a database.
+     */
+    @Benchmark
+    public Map<String, String> registrationPacket() {
+        return RegistrationPacketValidator.of(registrationPacket, participantLogic).getMessages();
+    }
+}
@@ -0,0 +1,20 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:2
+-- Trigram indexes let the case-insensitive substring searches (ILIKE '%...%') on these columns use an index instead
+-- of scanning the table, and back the similarity ranking of search results.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS participant_name_first_trgm_idx ON participant USING gin (name_first gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS participant_name_last_trgm_idx ON participant USING gin (name_last gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS participant_name_nick_trgm_idx ON participant USING gin (name_nick gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS participant_addr_email_trgm_idx ON participant USING gin (addr_email gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS participant_addr_city_trgm_idx ON participant USING gin (addr_city gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS participant_sponsor_trgm_idx ON participant USING gin (sponsor gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS guest_raw_guest_name_trgm_idx ON guest USING gin (raw_guest_name gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS transaction_memo_trgm_idx ON transaction_ USING gin (memo gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS event_info_event_name_trgm_idx ON event_info USING gin (event_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS event_info_event_title_trgm_idx ON event_info USING gin (event_title gin_trgm_ops);
@@ -0,0 +1,18 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:3
+-- PostgreSQL doesn't index foreign keys on its own. These back the joins in the *_with_labels views, the lookups of
+-- child rows when deleting events and registrations, and the common history filters.
+CREATE INDEX IF NOT EXISTS registration_event_info_id_idx ON registration (event_info_id);
+CREATE INDEX IF NOT EXISTS registration_participant_id_idx ON registration (participant_id);
+
+CREATE INDEX IF NOT EXISTS guest_registration_id_idx ON guest (registration_id);
+CREATE INDEX IF NOT EXISTS guest_guest_profile_id_idx ON guest (guest_profile_id);
+
+CREATE INDEX IF NOT EXISTS transaction_event_info_id_idx ON transaction_ (event_info_id);
+CREATE INDEX IF NOT EXISTS transaction_actor_id_idx ON transaction_ (actor_id);
+CREATE INDEX IF NOT EXISTS transaction_recipient_id_idx ON transaction_ (recipient_id);
+
+CREATE INDEX IF NOT EXISTS data_history_actor_id_idx ON data_history (actor_id);
+CREATE INDEX IF NOT EXISTS data_history_table_source_id_idx ON data_history (table_source, id);
+CREATE INDEX IF NOT EXISTS data_history_time_recorded_idx ON data_history (time_recorded);
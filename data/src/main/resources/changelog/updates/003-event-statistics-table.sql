@@ -0,0 +1,361 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:4
+-- The statistics used to be a view recomputing every event's figures on each read. They're now kept in a table with a
+-- row per event, which triggers bring up to date in the same transaction as the writes they depend on. The number of
+-- transactions of each type is kept along with their totals, so a total can go back to NULL once its last one is gone.
+DROP VIEW IF EXISTS event_statistics;
+
+CREATE TABLE IF NOT EXISTS event_statistics (
+    event_id bigint NOT NULL,
+    event_name character varying,
+    event_title character varying,
+    event_status event_status,
+    date_start date,
+    date_end date,
+    invoices jsonb,
+    registered_attendees_count bigint,
+    unregistered_guest_count bigint,
+    total_invoiced numeric,
+    total_expenses numeric,
+    total_pledged numeric,
+    total_income numeric,
+    percentage_pledged_received numeric,
+    invoice_count bigint NOT NULL DEFAULT 0,
+    expense_count bigint NOT NULL DEFAULT 0,
+    income_count bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (event_id) );
+
+CREATE INDEX IF NOT EXISTS event_statistics_latest_idx ON event_statistics (event_status, date_start DESC, date_end DESC);
+
+-- changeset liquibase:5 splitStatements:false
+-- Computes the statistics of the given events, or of every event when no IDs are given. Figures without any rows
+-- behind them are NULL rather than zero, as they were in the view.
+CREATE OR REPLACE FUNCTION compute_event_statistics(event_ids bigint[]) RETURNS SETOF event_statistics AS $$
+    SELECT
+        e.id,
+        e.event_name,
+        e.event_title,
+        e.event_status,
+        e.date_start,
+        e.date_end,
+        invoices.itemization,
+        ra.total_count,
+        ug.total_count,
+        invoices.total_amount,
+        expenses.total_amount,
+        ra.total_pledged,
+        income.total_amount,
+        ( income.total_amount / NULLIF(ra.total_pledged, 0) ) * 100,
+        COALESCE(invoices.total_count, 0),
+        COALESCE(expenses.total_count, 0),
+        COALESCE(income.total_count, 0)
+    FROM
+        event_info e
+            LEFT JOIN LATERAL (
+                SELECT
+                    JSONB_AGG(JSONB_BUILD_OBJECT('memo', t.memo, 'amount', t.amount) ORDER BY t.id) AS itemization,
+                    SUM(t.amount) AS total_amount,
+                    COUNT(t.id) AS total_count
+                FROM transaction_ t
+                WHERE t.event_info_id = e.id AND t.transaction_type = 'INVOICE'::transaction_type
+                GROUP BY t.event_info_id
+            ) invoices ON true
+            LEFT JOIN LATERAL (
+                SELECT SUM(t.amount) AS total_amount, COUNT(t.id) AS total_count
+                FROM transaction_ t
+                WHERE t.event_info_id = e.id AND t.transaction_type = 'EXPENSE'::transaction_type
+                GROUP BY t.event_info_id
+            ) expenses ON true
+            LEFT JOIN LATERAL (
+                SELECT SUM(t.amount) AS total_amount, COUNT(t.id) AS total_count
+                FROM transaction_ t
+                WHERE t.event_info_id = e.id AND t.transaction_type = 'INCOME'::transaction_type
+                GROUP BY t.event_info_id
+            ) income ON true
+            LEFT JOIN LATERAL (
+                SELECT COUNT(a.participant_id) AS total_count, SUM(a.donation_pledge) AS total_pledged
+                FROM registration a
+                WHERE a.event_info_id = e.id
+                GROUP BY a.event_info_id
+            ) ra ON true
+            LEFT JOIN LATERAL (
+                SELECT COUNT(g.id) AS total_count
+                FROM registration r
+                    JOIN guest g ON g.registration_id = r.id
+                WHERE r.event_info_id = e.id
+                    AND g.relationship IN ('ADULT'::guest_relationship_type, 'CHILD'::guest_relationship_type)
+                    AND (g.guest_profile_id IS NULL
+                        OR NOT EXISTS (SELECT 1 FROM registration r2 WHERE r2.event_info_id = e.id AND r2.participant_id = g.guest_profile_id))
+                GROUP BY r.event_info_id
+            ) ug ON true
+    WHERE
+        event_ids IS NULL OR e.id = ANY(event_ids);
+$$ LANGUAGE sql STABLE;
+
+-- changeset liquibase:6 splitStatements:false
+-- Recomputes the statistics of the given events, for the changes which can't be applied as deltas. Their rows are
+-- locked first, so the recomputation waits for writers which already applied their deltas to commit and sees what they
+-- did, while writers yet to apply theirs wait for it and apply them on top.
+CREATE OR REPLACE FUNCTION refresh_event_statistics(event_ids bigint[]) RETURNS void AS $$
+BEGIN
+    IF event_ids IS NULL OR cardinality(event_ids) = 0 THEN
+        RETURN;
+    END IF;
+    PERFORM 1 FROM event_statistics WHERE event_id = ANY(event_ids) ORDER BY event_id FOR UPDATE;
+    DELETE FROM event_statistics s
+        WHERE s.event_id = ANY(event_ids) AND NOT EXISTS (SELECT 1 FROM event_info e WHERE e.id = s.event_id);
+    INSERT INTO event_statistics
+        SELECT * FROM compute_event_statistics(event_ids)
+    ON CONFLICT (event_id) DO UPDATE SET
+        event_name = EXCLUDED.event_name,
+        event_title = EXCLUDED.event_title,
+        event_status = EXCLUDED.event_status,
+        date_start = EXCLUDED.date_start,
+        date_end = EXCLUDED.date_end,
+        invoices = EXCLUDED.invoices,
+        registered_attendees_count = EXCLUDED.registered_attendees_count,
+        unregistered_guest_count = EXCLUDED.unregistered_guest_count,
+        total_invoiced = EXCLUDED.total_invoiced,
+        total_expenses = EXCLUDED.total_expenses,
+        total_pledged = EXCLUDED.total_pledged,
+        total_income = EXCLUDED.total_income,
+        percentage_pledged_received = EXCLUDED.percentage_pledged_received,
+        invoice_count = EXCLUDED.invoice_count,
+        expense_count = EXCLUDED.expense_count,
+        income_count = EXCLUDED.income_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- changeset liquibase:7 splitStatements:false
+-- Recomputes every event's statistics from scratch, returning how many events' stored statistics had drifted from
+-- what the recomputation produced.
+CREATE OR REPLACE FUNCTION rebuild_event_statistics() RETURNS integer AS $$
+DECLARE
+    drifted integer;
+BEGIN
+    LOCK TABLE event_statistics IN EXCLUSIVE MODE;
+    SELECT COUNT(DISTINCT d.event_id) INTO drifted FROM (
+        (SELECT * FROM event_statistics EXCEPT ALL SELECT * FROM compute_event_statistics(NULL))
+        UNION ALL
+        (SELECT * FROM compute_event_statistics(NULL) EXCEPT ALL SELECT * FROM event_statistics)
+    ) d;
+    DELETE FROM event_statistics;
+    INSERT INTO event_statistics SELECT * FROM compute_event_statistics(NULL);
+    RETURN drifted;
+END;
+$$ LANGUAGE plpgsql;
+
+-- changeset liquibase:8 splitStatements:false
+-- Adds the given differences to the statistics of an event, rather than recomputing them, so a write costs as much as
+-- the rows it changed. Each figure is NULL once nothing is behind it, as it would be when recomputed. Only the event's
+-- row is updated, which is all concurrent writers to the same event wait on, and only until the writer commits.
+CREATE OR REPLACE FUNCTION apply_event_statistics_delta(
+        target_event_id bigint,
+        attendees bigint, pledged numeric,
+        unregistered_guests bigint,
+        invoices bigint, invoiced numeric,
+        expenses bigint, expensed numeric,
+        incomes bigint, received numeric) RETURNS void AS $$
+BEGIN
+    UPDATE event_statistics s SET
+        registered_attendees_count = NULLIF(COALESCE(s.registered_attendees_count, 0) + attendees, 0),
+        total_pledged = CASE WHEN COALESCE(s.registered_attendees_count, 0) + attendees = 0 THEN NULL ELSE COALESCE(s.total_pledged, 0) + pledged END,
+        unregistered_guest_count = NULLIF(COALESCE(s.unregistered_guest_count, 0) + unregistered_guests, 0),
+        invoice_count = s.invoice_count + invoices,
+        total_invoiced = CASE WHEN s.invoice_count + invoices = 0 THEN NULL ELSE COALESCE(s.total_invoiced, 0) + invoiced END,
+        expense_count = s.expense_count + expenses,
+        total_expenses = CASE WHEN s.expense_count + expenses = 0 THEN NULL ELSE COALESCE(s.total_expenses, 0) + expensed END,
+        income_count = s.income_count + incomes,
+        total_income = CASE WHEN s.income_count + incomes = 0 THEN NULL ELSE COALESCE(s.total_income, 0) + received END,
+        percentage_pledged_received =
+            ( CASE WHEN s.income_count + incomes = 0 THEN NULL ELSE COALESCE(s.total_income, 0) + received END
+                / NULLIF(CASE WHEN COALESCE(s.registered_attendees_count, 0) + attendees = 0 THEN NULL ELSE COALESCE(s.total_pledged, 0) + pledged END, 0) ) * 100
+    WHERE s.event_id = target_event_id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Counts transactions into, or with a direction of -1 out of, the statistics of their events. The itemization of the
+-- invoices is rebuilt for the events whose invoices changed, from those invoices alone.
+CREATE OR REPLACE FUNCTION count_transactions_into_event_statistics(
+        event_ids bigint[], transaction_types transaction_type[], amounts numeric[], direction integer) RETURNS void AS $$
+BEGIN
+    PERFORM apply_event_statistics_delta(c.event_id, 0, 0, 0, c.invoices, c.invoiced, c.expenses, c.expensed, c.incomes, c.received)
+    FROM (
+        SELECT
+            t.event_id,
+            direction * COUNT(*) FILTER (WHERE t.transaction_type = 'INVOICE'::transaction_type) AS invoices,
+            direction * COALESCE(SUM(t.amount) FILTER (WHERE t.transaction_type = 'INVOICE'::transaction_type), 0) AS invoiced,
+            direction * COUNT(*) FILTER (WHERE t.transaction_type = 'EXPENSE'::transaction_type) AS expenses,
+            direction * COALESCE(SUM(t.amount) FILTER (WHERE t.transaction_type = 'EXPENSE'::transaction_type), 0) AS expensed,
+            direction * COUNT(*) FILTER (WHERE t.transaction_type = 'INCOME'::transaction_type) AS incomes,
+            direction * COALESCE(SUM(t.amount) FILTER (WHERE t.transaction_type = 'INCOME'::transaction_type), 0) AS received
+        FROM unnest(event_ids, transaction_types, amounts) AS t(event_id, transaction_type, amount)
+        GROUP BY t.event_id
+        ORDER BY t.event_id
+    ) c;
+    UPDATE event_statistics s SET invoices = (
+        SELECT JSONB_AGG(JSONB_BUILD_OBJECT('memo', t.memo, 'amount', t.amount) ORDER BY t.id)
+        FROM transaction_ t
+        WHERE t.event_info_id = s.event_id AND t.transaction_type = 'INVOICE'::transaction_type)
+    WHERE s.event_id IN (
+        SELECT t.event_id
+        FROM unnest(event_ids, transaction_types) AS t(event_id, transaction_type)
+        WHERE t.transaction_type = 'INVOICE'::transaction_type);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Counts registrations into, or with a direction of -1 out of, the statistics of their events. A guest stops counting as
+-- unregistered once the participant they are registers for the same event, and counts again once that registration is
+-- gone, so the guests pointing to each registering participant are counted the other way.
+CREATE OR REPLACE FUNCTION count_registrations_into_event_statistics(
+        event_ids bigint[], participant_ids bigint[], pledges numeric[], direction integer) RETURNS void AS $$
+BEGIN
+    PERFORM apply_event_statistics_delta(c.event_id, c.attendees, c.pledged, c.unregistered_guests, 0, 0, 0, 0, 0, 0)
+    FROM (
+        SELECT
+            a.event_id,
+            direction * COUNT(*) AS attendees,
+            direction * SUM(a.pledge) AS pledged,
+            -direction * COALESCE(SUM((
+                SELECT COUNT(g.id)
+                FROM registration r
+                    JOIN guest g ON g.registration_id = r.id
+                WHERE r.event_info_id = a.event_id
+                    AND g.guest_profile_id = a.participant_id
+                    AND g.relationship IN ('ADULT'::guest_relationship_type, 'CHILD'::guest_relationship_type))), 0) AS unregistered_guests
+        FROM unnest(event_ids, participant_ids, pledges) AS a(event_id, participant_id, pledge)
+        GROUP BY a.event_id
+        ORDER BY a.event_id
+    ) c;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Counts guests into, or with a direction of -1 out of, the statistics of their registrations' events, as far as they
+-- count as unregistered.
+CREATE OR REPLACE FUNCTION count_guests_into_event_statistics(
+        registration_ids bigint[], guest_profile_ids bigint[], relationships guest_relationship_type[], direction integer) RETURNS void AS $$
+BEGIN
+    PERFORM apply_event_statistics_delta(c.event_id, 0, 0, c.unregistered_guests, 0, 0, 0, 0, 0, 0)
+    FROM (
+        SELECT r.event_info_id AS event_id, direction * COUNT(*) AS unregistered_guests
+        FROM unnest(registration_ids, guest_profile_ids, relationships) AS g(registration_id, guest_profile_id, relationship)
+            JOIN registration r ON r.id = g.registration_id
+        WHERE g.relationship IN ('ADULT'::guest_relationship_type, 'CHILD'::guest_relationship_type)
+            AND (g.guest_profile_id IS NULL
+                OR NOT EXISTS (SELECT 1 FROM registration r2 WHERE r2.event_info_id = r.event_info_id AND r2.participant_id = g.guest_profile_id))
+        GROUP BY r.event_info_id
+        ORDER BY r.event_info_id
+    ) c;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Statement-level triggers apply the changes a write made, read from its transition tables, once per statement. An
+-- update counts the old rows out and the new ones in. Unexecuted branches don't need their transition tables, so one
+-- function serves every operation on a table.
+CREATE OR REPLACE FUNCTION event_info_refresh_event_statistics() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        -- A new event has nothing referencing it yet, so computing its statistics only reads the event.
+        INSERT INTO event_statistics SELECT * FROM compute_event_statistics(ARRAY(SELECT id FROM new_rows));
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE event_statistics s SET
+            event_name = e.event_name,
+            event_title = e.event_title,
+            event_status = e.event_status,
+            date_start = e.date_start,
+            date_end = e.date_end
+        FROM new_rows e
+        WHERE s.event_id = e.id;
+    ELSE
+        DELETE FROM event_statistics WHERE event_id IN (SELECT id FROM old_rows);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION transaction_refresh_event_statistics() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM count_transactions_into_event_statistics(ARRAY(SELECT event_info_id FROM old_rows ORDER BY id), ARRAY(SELECT transaction_type FROM old_rows ORDER BY id), ARRAY(SELECT amount FROM old_rows ORDER BY id), -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM count_transactions_into_event_statistics(ARRAY(SELECT event_info_id FROM new_rows ORDER BY id), ARRAY(SELECT transaction_type FROM new_rows ORDER BY id), ARRAY(SELECT amount FROM new_rows ORDER BY id), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION registration_refresh_event_statistics() RETURNS trigger AS $$
+DECLARE
+    moved_event_ids bigint[];
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM count_registrations_into_event_statistics(ARRAY(SELECT event_info_id FROM new_rows ORDER BY id), ARRAY(SELECT participant_id FROM new_rows ORDER BY id), ARRAY(SELECT donation_pledge FROM new_rows ORDER BY id), 1);
+    ELSIF TG_OP = 'UPDATE' THEN
+        -- A registration moved to another event takes its guests along, which is rare enough to recompute both events.
+        moved_event_ids := ARRAY(
+            SELECT o.event_info_id FROM old_rows o JOIN new_rows n ON n.id = o.id WHERE n.event_info_id <> o.event_info_id
+            UNION
+            SELECT n.event_info_id FROM old_rows o JOIN new_rows n ON n.id = o.id WHERE n.event_info_id <> o.event_info_id);
+        PERFORM count_registrations_into_event_statistics(
+            ARRAY(SELECT o.event_info_id FROM old_rows o JOIN new_rows n ON n.id = o.id WHERE n.event_info_id = o.event_info_id ORDER BY o.id),
+            ARRAY(SELECT o.participant_id FROM old_rows o JOIN new_rows n ON n.id = o.id WHERE n.event_info_id = o.event_info_id ORDER BY o.id),
+            ARRAY(SELECT o.donation_pledge FROM old_rows o JOIN new_rows n ON n.id = o.id WHERE n.event_info_id = o.event_info_id ORDER BY o.id),
+            -1);
+        PERFORM count_registrations_into_event_statistics(
+            ARRAY(SELECT n.event_info_id FROM old_rows o JOIN new_rows n ON n.id = o.id WHERE n.event_info_id = o.event_info_id ORDER BY n.id),
+            ARRAY(SELECT n.participant_id FROM old_rows o JOIN new_rows n ON n.id = o.id WHERE n.event_info_id = o.event_info_id ORDER BY n.id),
+            ARRAY(SELECT n.donation_pledge FROM old_rows o JOIN new_rows n ON n.id = o.id WHERE n.event_info_id = o.event_info_id ORDER BY n.id),
+            1);
+        PERFORM refresh_event_statistics(moved_event_ids);
+    ELSE
+        PERFORM count_registrations_into_event_statistics(ARRAY(SELECT event_info_id FROM old_rows ORDER BY id), ARRAY(SELECT participant_id FROM old_rows ORDER BY id), ARRAY(SELECT donation_pledge FROM old_rows ORDER BY id), -1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION guest_refresh_event_statistics() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM count_guests_into_event_statistics(ARRAY(SELECT registration_id FROM old_rows ORDER BY id), ARRAY(SELECT guest_profile_id FROM old_rows ORDER BY id), ARRAY(SELECT relationship FROM old_rows ORDER BY id), -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM count_guests_into_event_statistics(ARRAY(SELECT registration_id FROM new_rows ORDER BY id), ARRAY(SELECT guest_profile_id FROM new_rows ORDER BY id), ARRAY(SELECT relationship FROM new_rows ORDER BY id), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- changeset liquibase:9
+-- Transition tables can only be declared on triggers for a single operation, hence a trigger per operation.
+CREATE TRIGGER event_info_statistics_insert AFTER INSERT ON event_info
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION event_info_refresh_event_statistics();
+CREATE TRIGGER event_info_statistics_update AFTER UPDATE ON event_info
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION event_info_refresh_event_statistics();
+CREATE TRIGGER event_info_statistics_delete AFTER DELETE ON event_info
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION event_info_refresh_event_statistics();
+
+CREATE TRIGGER transaction_statistics_insert AFTER INSERT ON transaction_
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION transaction_refresh_event_statistics();
+CREATE TRIGGER transaction_statistics_update AFTER UPDATE ON transaction_
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION transaction_refresh_event_statistics();
+CREATE TRIGGER transaction_statistics_delete AFTER DELETE ON transaction_
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION transaction_refresh_event_statistics();
+
+CREATE TRIGGER registration_statistics_insert AFTER INSERT ON registration
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION registration_refresh_event_statistics();
+CREATE TRIGGER registration_statistics_update AFTER UPDATE ON registration
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION registration_refresh_event_statistics();
+CREATE TRIGGER registration_statistics_delete AFTER DELETE ON registration
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION registration_refresh_event_statistics();
+
+CREATE TRIGGER guest_statistics_insert AFTER INSERT ON guest
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION guest_refresh_event_statistics();
+CREATE TRIGGER guest_statistics_update AFTER UPDATE ON guest
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION guest_refresh_event_statistics();
+CREATE TRIGGER guest_statistics_delete AFTER DELETE ON guest
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION guest_refresh_event_statistics();
+
+SELECT rebuild_event_statistics();
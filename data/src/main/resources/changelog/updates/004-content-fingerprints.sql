@@ -0,0 +1,172 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:10
+-- Each table keeps a fingerprint of its business fields, so checking whether a record with the same content is already
+-- recorded is a single index probe. It's left out of the generated code, so it never reaches the API.
+ALTER TABLE configuration ADD COLUMN IF NOT EXISTS fingerprint bytea;
+ALTER TABLE event_info ADD COLUMN IF NOT EXISTS fingerprint bytea;
+ALTER TABLE participant ADD COLUMN IF NOT EXISTS fingerprint bytea;
+ALTER TABLE registration ADD COLUMN IF NOT EXISTS fingerprint bytea;
+ALTER TABLE guest ADD COLUMN IF NOT EXISTS fingerprint bytea;
+ALTER TABLE transaction_ ADD COLUMN IF NOT EXISTS fingerprint bytea;
+ALTER TABLE data_history ADD COLUMN IF NOT EXISTS fingerprint bytea;
+
+-- changeset liquibase:11 splitStatements:false
+-- The fingerprint of a record is the SHA-256 of its business fields, as a canonical JSON array. JSON values are
+-- compared as jsonb, numbers regardless of their scale, and missing optional text as empty text. The application
+-- computes the fingerprint of a record it's about to write by calling the same function, so the two can't drift.
+CREATE OR REPLACE FUNCTION configuration_fingerprint(
+        recommended_donation integer, charity_name text, charity_url text, fund_processor_name text,
+        fund_processor_url text, fund_processor_instructions json, event_guidelines json)
+    RETURNS bytea LANGUAGE sql STABLE AS $$
+    SELECT sha256(convert_to(jsonb_build_array(
+        recommended_donation, charity_name, charity_url, fund_processor_name,
+        fund_processor_url, fund_processor_instructions::jsonb, event_guidelines::jsonb)::text, 'UTF8'));
+$$;
+
+CREATE OR REPLACE FUNCTION event_info_fingerprint(
+        event_name text, event_title text, date_start date, date_end date, event_status event_status)
+    RETURNS bytea LANGUAGE sql STABLE AS $$
+    SELECT sha256(convert_to(jsonb_build_array(
+        event_name, event_title, date_start, date_end, event_status)::text, 'UTF8'));
+$$;
+
+CREATE OR REPLACE FUNCTION participant_fingerprint(
+        participant_type participant_type, sponsor text, name_first text, name_last text, name_nick text, dob date,
+        addr_street_1 text, addr_street_2 text, addr_city text, addr_state_abbr us_state_abbreviations, addr_zip text,
+        addr_email text, name_emergency text, phone_emergency bigint,
+        emergency_contact_relationship_type emergency_contact_relationship_type, phone_digits bigint)
+    RETURNS bytea LANGUAGE sql STABLE AS $$
+    SELECT sha256(convert_to(jsonb_build_array(
+        participant_type, sponsor, name_first, name_last, coalesce(name_nick, ''), dob,
+        addr_street_1, coalesce(addr_street_2, ''), addr_city, addr_state_abbr, addr_zip,
+        addr_email, name_emergency, phone_emergency,
+        emergency_contact_relationship_type, phone_digits)::text, 'UTF8'));
+$$;
+
+CREATE OR REPLACE FUNCTION registration_fingerprint(
+        event_info_id bigint, signature text, donation_pledge numeric, participant_id bigint)
+    RETURNS bytea LANGUAGE sql STABLE AS $$
+    SELECT sha256(convert_to(jsonb_build_array(
+        event_info_id, signature, trim_scale(donation_pledge), participant_id)::text, 'UTF8'));
+$$;
+
+CREATE OR REPLACE FUNCTION guest_fingerprint(
+        registration_id bigint, guest_profile_id bigint, raw_guest_name text, relationship guest_relationship_type)
+    RETURNS bytea LANGUAGE sql STABLE AS $$
+    SELECT sha256(convert_to(jsonb_build_array(
+        registration_id, guest_profile_id, raw_guest_name, relationship)::text, 'UTF8'));
+$$;
+
+CREATE OR REPLACE FUNCTION transaction__fingerprint(
+        actor_id bigint, recipient_id bigint, transaction_type transaction_type, instrument_type transaction_instrument,
+        amount numeric, memo text, event_info_id bigint)
+    RETURNS bytea LANGUAGE sql STABLE AS $$
+    SELECT sha256(convert_to(jsonb_build_array(
+        actor_id, recipient_id, transaction_type, instrument_type,
+        trim_scale(amount), coalesce(memo, ''), event_info_id)::text, 'UTF8'));
+$$;
+
+CREATE OR REPLACE FUNCTION data_history_fingerprint(
+        actor_id bigint, action_name data_history_type, table_source table_ref, new_data json, old_data json)
+    RETURNS bytea LANGUAGE sql STABLE AS $$
+    SELECT sha256(convert_to(jsonb_build_array(
+        actor_id, action_name, table_source, new_data::jsonb, old_data::jsonb)::text, 'UTF8'));
+$$;
+
+-- changeset liquibase:12 splitStatements:false
+-- Fingerprints are kept current by triggers, so every write path maintains them, including ones bypassing the application.
+CREATE OR REPLACE FUNCTION set_configuration_fingerprint() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.fingerprint := configuration_fingerprint(
+        NEW.recommended_donation, NEW.charity_name, NEW.charity_url, NEW.fund_processor_name,
+        NEW.fund_processor_url, NEW.fund_processor_instructions, NEW.event_guidelines);
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION set_event_info_fingerprint() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.fingerprint := event_info_fingerprint(
+        NEW.event_name, NEW.event_title, NEW.date_start, NEW.date_end, NEW.event_status);
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION set_participant_fingerprint() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.fingerprint := participant_fingerprint(
+        NEW.participant_type, NEW.sponsor, NEW.name_first, NEW.name_last, NEW.name_nick, NEW.dob,
+        NEW.addr_street_1, NEW.addr_street_2, NEW.addr_city, NEW.addr_state_abbr, NEW.addr_zip,
+        NEW.addr_email, NEW.name_emergency, NEW.phone_emergency,
+        NEW.emergency_contact_relationship_type, NEW.phone_digits);
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION set_registration_fingerprint() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.fingerprint := registration_fingerprint(
+        NEW.event_info_id, NEW.signature, NEW.donation_pledge, NEW.participant_id);
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION set_guest_fingerprint() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.fingerprint := guest_fingerprint(
+        NEW.registration_id, NEW.guest_profile_id, NEW.raw_guest_name, NEW.relationship);
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION set_transaction__fingerprint() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.fingerprint := transaction__fingerprint(
+        NEW.actor_id, NEW.recipient_id, NEW.transaction_type, NEW.instrument_type,
+        NEW.amount, NEW.memo, NEW.event_info_id);
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION set_data_history_fingerprint() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.fingerprint := data_history_fingerprint(
+        NEW.actor_id, NEW.action_name, NEW.table_source, NEW.new_data, NEW.old_data);
+    RETURN NEW;
+END;
+$$;
+
+CREATE TRIGGER configuration_fingerprint_set BEFORE INSERT OR UPDATE ON configuration
+    FOR EACH ROW EXECUTE FUNCTION set_configuration_fingerprint();
+CREATE TRIGGER event_info_fingerprint_set BEFORE INSERT OR UPDATE ON event_info
+    FOR EACH ROW EXECUTE FUNCTION set_event_info_fingerprint();
+CREATE TRIGGER participant_fingerprint_set BEFORE INSERT OR UPDATE ON participant
+    FOR EACH ROW EXECUTE FUNCTION set_participant_fingerprint();
+CREATE TRIGGER registration_fingerprint_set BEFORE INSERT OR UPDATE ON registration
+    FOR EACH ROW EXECUTE FUNCTION set_registration_fingerprint();
+CREATE TRIGGER guest_fingerprint_set BEFORE INSERT OR UPDATE ON guest
+    FOR EACH ROW EXECUTE FUNCTION set_guest_fingerprint();
+CREATE TRIGGER transaction_fingerprint_set BEFORE INSERT OR UPDATE ON transaction_
+    FOR EACH ROW EXECUTE FUNCTION set_transaction__fingerprint();
+CREATE TRIGGER data_history_fingerprint_set BEFORE INSERT ON data_history
+    FOR EACH ROW EXECUTE FUNCTION set_data_history_fingerprint();
+
+-- changeset liquibase:13
+-- Backfills the fingerprints of the existing records. The triggers compute them as each row is rewritten.
+UPDATE configuration SET fingerprint = NULL WHERE fingerprint IS NULL;
+UPDATE event_info SET fingerprint = NULL WHERE fingerprint IS NULL;
+UPDATE participant SET fingerprint = NULL WHERE fingerprint IS NULL;
+UPDATE registration SET fingerprint = NULL WHERE fingerprint IS NULL;
+UPDATE guest SET fingerprint = NULL WHERE fingerprint IS NULL;
+UPDATE transaction_ SET fingerprint = NULL WHERE fingerprint IS NULL;
+UPDATE data_history SET fingerprint = data_history_fingerprint(actor_id, action_name, table_source, new_data, old_data) WHERE fingerprint IS NULL;
+
+-- changeset liquibase:14
+CREATE INDEX IF NOT EXISTS configuration_fingerprint_idx ON configuration (fingerprint);
+CREATE INDEX IF NOT EXISTS event_info_fingerprint_idx ON event_info (fingerprint);
+CREATE INDEX IF NOT EXISTS participant_fingerprint_idx ON participant (fingerprint);
+CREATE INDEX IF NOT EXISTS registration_fingerprint_idx ON registration (fingerprint);
+CREATE INDEX IF NOT EXISTS guest_fingerprint_idx ON guest (fingerprint);
+CREATE INDEX IF NOT EXISTS transaction__fingerprint_idx ON transaction_ (fingerprint);
+CREATE INDEX IF NOT EXISTS data_history_fingerprint_idx ON data_history (fingerprint);
@@ -0,0 +1,46 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:15
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT count(*) FROM (SELECT 1 FROM registration GROUP BY participant_id, event_info_id HAVING count(*) > 1) duplicates
+-- A participant registers once per event. Skipped should existing registrations already break the rule, so they can
+-- be cleaned up first.
+ALTER TABLE registration ADD CONSTRAINT registration_participant_event_key UNIQUE (participant_id, event_info_id);
+
+-- changeset liquibase:16
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT count(*) FROM (SELECT 1 FROM configuration GROUP BY fingerprint HAVING count(*) > 1) duplicates
+-- Records with the same content conflict, so creates can rely on ON CONFLICT DO NOTHING rather than checking first.
+-- Each table is skipped should it already hold duplicates, keeping its plain index.
+DROP INDEX IF EXISTS configuration_fingerprint_idx;
+ALTER TABLE configuration ADD CONSTRAINT configuration_fingerprint_key UNIQUE (fingerprint);
+
+-- changeset liquibase:17
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT count(*) FROM (SELECT 1 FROM event_info GROUP BY fingerprint HAVING count(*) > 1) duplicates
+DROP INDEX IF EXISTS event_info_fingerprint_idx;
+ALTER TABLE event_info ADD CONSTRAINT event_info_fingerprint_key UNIQUE (fingerprint);
+
+-- changeset liquibase:18
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT count(*) FROM (SELECT 1 FROM participant GROUP BY fingerprint HAVING count(*) > 1) duplicates
+DROP INDEX IF EXISTS participant_fingerprint_idx;
+ALTER TABLE participant ADD CONSTRAINT participant_fingerprint_key UNIQUE (fingerprint);
+
+-- changeset liquibase:19
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT count(*) FROM (SELECT 1 FROM registration GROUP BY fingerprint HAVING count(*) > 1) duplicates
+DROP INDEX IF EXISTS registration_fingerprint_idx;
+ALTER TABLE registration ADD CONSTRAINT registration_fingerprint_key UNIQUE (fingerprint);
+
+-- changeset liquibase:20
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT count(*) FROM (SELECT 1 FROM guest GROUP BY fingerprint HAVING count(*) > 1) duplicates
+DROP INDEX IF EXISTS guest_fingerprint_idx;
+ALTER TABLE guest ADD CONSTRAINT guest_fingerprint_key UNIQUE (fingerprint);
+
+-- changeset liquibase:21
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT count(*) FROM (SELECT 1 FROM transaction_ GROUP BY fingerprint HAVING count(*) > 1) duplicates
+DROP INDEX IF EXISTS transaction__fingerprint_idx;
+ALTER TABLE transaction_ ADD CONSTRAINT transaction__fingerprint_key UNIQUE (fingerprint);
@@ -0,0 +1,92 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:22
+-- Inserts are recorded as a full snapshot of the record, updates as a delta: the fields which changed, as JSON Patch
+-- "replace" operations, with their new values in new_data and their old values in old_data. The ID of the record ties
+-- the entries about the same record together, so the full record can be rebuilt from its snapshot and the deltas after.
+CREATE TYPE history_data_format AS ENUM ('SNAPSHOT', 'DELTA');
+ALTER TABLE data_history ADD COLUMN IF NOT EXISTS record_id bigint;
+ALTER TABLE data_history ADD COLUMN IF NOT EXISTS data_format history_data_format NOT NULL DEFAULT 'SNAPSHOT';
+
+-- changeset liquibase:23
+-- Inserts were recorded before the record had an ID, so only the entries of updates and deletions can be tied to theirs.
+UPDATE data_history SET record_id = coalesce(new_data ->> 'id', old_data ->> 'id')::bigint WHERE record_id IS NULL;
+
+-- changeset liquibase:24
+CREATE INDEX IF NOT EXISTS data_history_record_idx ON data_history (table_source, record_id, id);
+
+-- changeset liquibase:25 splitStatements:false
+-- The JSON Patch "replace" operations turning the first document into the second, for the top-level fields which differ.
+CREATE OR REPLACE FUNCTION jsonb_replace_operations(from_document jsonb, to_document jsonb)
+    RETURNS jsonb LANGUAGE sql IMMUTABLE AS $$
+    SELECT coalesce(jsonb_agg(jsonb_build_object(
+            'op', 'replace',
+            'path', '/' || replace(replace(changed.key, '~', '~0'), '/', '~1'),
+            'value', changed.value) ORDER BY changed.key), '[]'::jsonb)
+    FROM jsonb_each(to_document) changed
+    WHERE changed.key <> 'id' AND changed.value IS DISTINCT FROM from_document -> changed.key;
+$$;
+
+-- changeset liquibase:26
+CREATE TABLE IF NOT EXISTS data_history_compaction (
+    id bigint GENERATED ALWAYS AS IDENTITY,
+    rows_compacted bigint NOT NULL,
+    bytes_before bigint NOT NULL,
+    bytes_after bigint NOT NULL,
+    time_compacted timestamp with time zone NOT NULL DEFAULT now(),
+    PRIMARY KEY (id) );
+
+-- changeset liquibase:27
+-- Compacts the updates recorded as full snapshots into deltas, and reports the storage it saved. The earliest entry of
+-- each record stays a snapshot, since it's the one the deltas after it are applied to.
+WITH compactable AS (
+    SELECT
+        h.id,
+        jsonb_replace_operations(h.old_data::jsonb, h.new_data::jsonb)::json AS new_delta,
+        jsonb_replace_operations(h.new_data::jsonb, h.old_data::jsonb)::json AS old_delta,
+        pg_column_size(h.new_data) + pg_column_size(h.old_data) AS bytes_before
+    FROM data_history h
+    WHERE h.action_name = 'UPDATED'
+        AND h.data_format = 'SNAPSHOT'
+        AND h.record_id IS NOT NULL
+        AND EXISTS (
+            SELECT 1
+            FROM data_history earlier
+            WHERE earlier.table_source = h.table_source
+                AND earlier.record_id = h.record_id
+                AND earlier.id < h.id
+                AND earlier.data_format = 'SNAPSHOT')
+), compacted AS (
+    UPDATE data_history h
+    SET new_data = c.new_delta,
+        old_data = c.old_delta,
+        data_format = 'DELTA',
+        fingerprint = data_history_fingerprint(h.actor_id, h.action_name, h.table_source, c.new_delta, c.old_delta)
+    FROM compactable c
+    WHERE h.id = c.id
+    RETURNING c.bytes_before, pg_column_size(c.new_delta) + pg_column_size(c.old_delta) AS bytes_after
+)
+INSERT INTO data_history_compaction (rows_compacted, bytes_before, bytes_after)
+SELECT count(*), coalesce(sum(bytes_before), 0), coalesce(sum(bytes_after), 0)
+FROM compacted;
+
+-- changeset liquibase:28
+-- The view lists the table's columns as they were when it was created, so it's recreated to include the new ones.
+DROP VIEW IF EXISTS data_history_with_labels;
+CREATE VIEW data_history_with_labels AS
+    SELECT
+        h.id,
+        h.actor_id,
+        h.action_name,
+        h.table_source,
+        h.new_data,
+        h.old_data,
+        h.time_recorded,
+        h.record_id,
+        h.data_format,
+        a.name_first AS actor_name_first,
+        a.name_last AS actor_name_last
+    FROM
+        data_history h
+            JOIN
+        participant a ON h.actor_id = a.id;
@@ -0,0 +1,185 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:29
+-- History is partitioned by month on the time it was recorded, so searches within a time range only read the months
+-- they cover, and old months can be detached without rewriting the table. The existing table becomes the partition
+-- holding everything recorded before the month of this migration, so none of it has to be copied.
+DROP VIEW IF EXISTS data_history_with_labels;
+ALTER TABLE data_history RENAME TO data_history_legacy;
+ALTER TABLE data_history_legacy RENAME CONSTRAINT data_history_pkey TO data_history_legacy_pkey;
+ALTER INDEX data_history_actor_id_idx RENAME TO data_history_legacy_actor_id_idx;
+ALTER INDEX data_history_table_source_id_idx RENAME TO data_history_legacy_table_source_id_idx;
+ALTER INDEX data_history_fingerprint_idx RENAME TO data_history_legacy_fingerprint_idx;
+ALTER INDEX data_history_record_idx RENAME TO data_history_legacy_record_idx;
+DROP INDEX data_history_time_recorded_idx;
+DROP TRIGGER data_history_fingerprint_set ON data_history_legacy;
+ALTER TABLE data_history_legacy ALTER COLUMN id DROP IDENTITY;
+
+CREATE TABLE data_history (
+    id bigint GENERATED ALWAYS AS IDENTITY,
+    actor_id bigint REFERENCES participant(id) NOT NULL,
+    action_name data_history_type NOT NULL,
+    table_source table_ref NOT NULL,
+    new_data json NOT NULL,
+    old_data json NOT NULL,
+    time_recorded timestamp with time zone NOT NULL DEFAULT now(),
+    fingerprint bytea,
+    record_id bigint,
+    data_format history_data_format NOT NULL DEFAULT 'SNAPSHOT',
+    PRIMARY KEY (id, time_recorded) ) PARTITION BY RANGE (time_recorded);
+
+CREATE INDEX data_history_actor_id_idx ON data_history (actor_id);
+CREATE INDEX data_history_table_source_id_idx ON data_history (table_source, id);
+CREATE INDEX data_history_fingerprint_idx ON data_history (fingerprint);
+CREATE INDEX data_history_record_idx ON data_history (table_source, record_id, id);
+-- History is appended in the order it's recorded, so a block range index locates a time range at a fraction of the
+-- size of a B-tree, including within the partition holding everything recorded before partitioning.
+CREATE INDEX data_history_time_recorded_brin ON data_history USING brin (time_recorded);
+
+CREATE TRIGGER data_history_fingerprint_set BEFORE INSERT ON data_history
+    FOR EACH ROW EXECUTE FUNCTION set_data_history_fingerprint();
+
+-- Catches whatever is recorded outside the monthly partitions, should their maintenance fall behind, so recording
+-- history never fails for want of a partition.
+CREATE TABLE data_history_default PARTITION OF data_history DEFAULT;
+
+-- changeset liquibase:30 splitStatements:false
+-- Creates the monthly partitions from the current month up to the given number of months ahead, skipping the ones
+-- which already exist. Months start at midnight UTC. History of a month which landed in the default partition before
+-- the month's partition existed is moved into it. Returns the number of partitions created.
+CREATE OR REPLACE FUNCTION create_data_history_partitions(months_ahead integer)
+    RETURNS integer LANGUAGE plpgsql AS $$
+DECLARE
+    current_month timestamptz := date_trunc('month', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC';
+    month_start timestamptz;
+    partition_name text;
+    created integer := 0;
+BEGIN
+    -- Serializes the instances maintaining the partitions.
+    PERFORM pg_advisory_xact_lock(hashtext('data_history_partitions'));
+    FOR month_offset IN 0..months_ahead LOOP
+        month_start := current_month + make_interval(months => month_offset);
+        partition_name := 'data_history_' || to_char(month_start AT TIME ZONE 'UTC', 'YYYY_MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            IF EXISTS (SELECT 1 FROM data_history_default WHERE time_recorded >= month_start AND time_recorded < month_start + interval '1 month') THEN
+                -- A partition can't be created over rows the default partition holds for its range, so they're moved
+                -- into it before it's attached.
+                EXECUTE format('CREATE TABLE %I (LIKE data_history INCLUDING DEFAULTS)', partition_name);
+                EXECUTE format('WITH moved AS (DELETE FROM data_history_default WHERE time_recorded >= %L AND time_recorded < %L RETURNING *) INSERT INTO %I SELECT * FROM moved',
+                    month_start, month_start + interval '1 month', partition_name);
+                EXECUTE format('ALTER TABLE data_history ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                    partition_name, month_start, month_start + interval '1 month');
+            ELSE
+                EXECUTE format('CREATE TABLE %I PARTITION OF data_history FOR VALUES FROM (%L) TO (%L)',
+                    partition_name, month_start, month_start + interval '1 month');
+            END IF;
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+-- Detaches the partitions holding only history recorded before the given number of months preceding the current
+-- month. They're dropped if asked to, or otherwise moved to the data_history_archive schema, out of the way of
+-- searches, from which they can be dumped. Returns the number of partitions detached.
+CREATE OR REPLACE FUNCTION detach_data_history_partitions(retained_months integer, drop_detached boolean)
+    RETURNS integer LANGUAGE plpgsql AS $$
+DECLARE
+    cutoff timestamptz := (date_trunc('month', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC') - make_interval(months => retained_months);
+    expired record;
+    detached integer := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('data_history_partitions'));
+    FOR expired IN
+        SELECT partition_table.relname AS partition_name
+        FROM pg_inherits inheritance
+            JOIN pg_class partition_table ON partition_table.oid = inheritance.inhrelid
+        WHERE inheritance.inhparent = 'data_history'::regclass
+            AND (regexp_match(pg_get_expr(partition_table.relpartbound, partition_table.oid), 'TO \(''([^'']+)''\)'))[1]::timestamptz <= cutoff
+    LOOP
+        EXECUTE format('ALTER TABLE data_history DETACH PARTITION %I', expired.partition_name);
+        IF drop_detached THEN
+            EXECUTE format('DROP TABLE %I', expired.partition_name);
+        ELSE
+            EXECUTE format('ALTER TABLE %I SET SCHEMA data_history_archive', expired.partition_name);
+        END IF;
+        detached := detached + 1;
+    END LOOP;
+    RETURN detached;
+END;
+$$;
+
+-- changeset liquibase:31
+CREATE SCHEMA IF NOT EXISTS data_history_archive;
+
+-- changeset liquibase:32 splitStatements:false
+-- Moves what was recorded during the current month into its partition, leaving the former table with everything before
+-- it. A constraint saying as much is added without checking the rows, so it doesn't hold a lock while reading them all.
+DO $$
+DECLARE
+    current_month timestamptz := date_trunc('month', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC';
+BEGIN
+    PERFORM create_data_history_partitions(3);
+    INSERT INTO data_history (id, actor_id, action_name, table_source, new_data, old_data, time_recorded, fingerprint, record_id, data_format)
+        OVERRIDING SYSTEM VALUE
+        SELECT id, actor_id, action_name, table_source, new_data, old_data, time_recorded, fingerprint, record_id, data_format
+        FROM data_history_legacy
+        WHERE time_recorded >= current_month;
+    DELETE FROM data_history_legacy WHERE time_recorded >= current_month;
+    EXECUTE format('ALTER TABLE data_history_legacy ADD CONSTRAINT data_history_legacy_time_recorded_check CHECK (time_recorded < %L) NOT VALID', current_month);
+    PERFORM setval(pg_get_serial_sequence('data_history', 'id'), coalesce((SELECT max(id) FROM data_history), 0) + 1, false);
+END;
+$$;
+
+-- changeset liquibase:33
+-- Checks the rows against the constraint under a lock which doesn't block reading or writing them.
+ALTER TABLE data_history_legacy VALIDATE CONSTRAINT data_history_legacy_time_recorded_check;
+
+-- changeset liquibase:34 runInTransaction:false
+-- Attaching builds whichever of the partitioned table's indexes the partition lacks, under a lock blocking history from
+-- being recorded, so the former table is given the primary key's and the block range index beforehand, without one.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS data_history_legacy_id_time_recorded_idx ON data_history_legacy (id, time_recorded);
+
+-- changeset liquibase:35 runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS data_history_legacy_time_recorded_brin ON data_history_legacy USING brin (time_recorded);
+
+-- changeset liquibase:36 splitStatements:false
+-- Attaches the former table as the partition holding everything before the first monthly partition. The validated
+-- constraint already guarantees its rows fall within it, and it already has every index, so attaching reads nothing.
+DO $$
+DECLARE
+    first_month timestamptz;
+BEGIN
+    -- The partitioned table's primary key only takes over a partition's primary key, not a bare unique index.
+    ALTER TABLE data_history_legacy
+        DROP CONSTRAINT data_history_legacy_pkey,
+        ADD CONSTRAINT data_history_legacy_pkey PRIMARY KEY USING INDEX data_history_legacy_id_time_recorded_idx;
+    SELECT min((regexp_match(pg_get_expr(partition_table.relpartbound, partition_table.oid), 'FROM \(''([^'']+)''\)'))[1]::timestamptz)
+    INTO first_month
+    FROM pg_inherits inheritance
+        JOIN pg_class partition_table ON partition_table.oid = inheritance.inhrelid
+    WHERE inheritance.inhparent = 'data_history'::regclass;
+    EXECUTE format('ALTER TABLE data_history ATTACH PARTITION data_history_legacy FOR VALUES FROM (MINVALUE) TO (%L)', first_month);
+    ALTER TABLE data_history_legacy DROP CONSTRAINT data_history_legacy_time_recorded_check;
+END;
+$$;
+
+-- changeset liquibase:37
+CREATE VIEW data_history_with_labels AS
+    SELECT
+        h.id,
+        h.actor_id,
+        h.action_name,
+        h.table_source,
+        h.new_data,
+        h.old_data,
+        h.time_recorded,
+        h.record_id,
+        h.data_format,
+        a.name_first AS actor_name_first,
+        a.name_last AS actor_name_last
+    FROM
+        data_history h
+            JOIN
+        participant a ON h.actor_id = a.id;
@@ -0,0 +1,104 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:38
+-- A checkpoint is the full state of a record as of one of its history entries, taken once enough deltas were recorded
+-- since its latest snapshot or checkpoint. Rebuilding a record as of any time then replays at most that many deltas.
+-- Checkpoints outlive the history partitions they were taken from, so records can still be rebuilt from them.
+CREATE TABLE IF NOT EXISTS data_history_checkpoint (
+    id bigint GENERATED ALWAYS AS IDENTITY,
+    table_source table_ref NOT NULL,
+    record_id bigint NOT NULL,
+    history_id bigint NOT NULL,
+    time_recorded timestamp with time zone NOT NULL,
+    data jsonb NOT NULL,
+    PRIMARY KEY (id) );
+
+CREATE INDEX IF NOT EXISTS data_history_checkpoint_record_idx ON data_history_checkpoint (table_source, record_id, history_id);
+
+-- changeset liquibase:39 splitStatements:false
+-- Applies JSON Patch "add", "replace", and "remove" operations on top-level fields to a document.
+CREATE OR REPLACE FUNCTION jsonb_apply_operations(document jsonb, operations jsonb)
+    RETURNS jsonb LANGUAGE sql IMMUTABLE AS $$
+    SELECT (document || coalesce((
+            SELECT jsonb_object_agg(replace(replace(substr(operation ->> 'path', 2), '~1', '/'), '~0', '~'), operation -> 'value')
+            FROM jsonb_array_elements(operations) operation
+            WHERE operation ->> 'op' IN ('add', 'replace')), '{}'::jsonb))
+        - coalesce((
+            SELECT array_agg(replace(replace(substr(operation ->> 'path', 2), '~1', '/'), '~0', '~'))
+            FROM jsonb_array_elements(operations) operation
+            WHERE operation ->> 'op' = 'remove'), '{}'::text[]);
+$$;
+
+-- changeset liquibase:40 splitStatements:false
+-- Takes a checkpoint of the record a delta was recorded about once the deltas since its latest snapshot or checkpoint
+-- reach the number given as the trigger's argument. Only the entries after the latest checkpoint are read, so taking
+-- one reads at most that many entries, except for a record's first, which replays its whole history once.
+CREATE OR REPLACE FUNCTION checkpoint_data_history() RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    checkpoint_interval integer := TG_ARGV[0]::integer;
+    base_id bigint;
+    document jsonb;
+    latest_reset record;
+    pending_deltas integer;
+    delta record;
+BEGIN
+    SELECT c.history_id, c.data INTO base_id, document
+    FROM data_history_checkpoint c
+    WHERE c.table_source = NEW.table_source
+        AND c.record_id = NEW.record_id
+        AND c.history_id < NEW.id
+    ORDER BY c.history_id DESC
+    LIMIT 1;
+    base_id := coalesce(base_id, 0);
+
+    SELECT h.id, h.action_name, h.new_data INTO latest_reset
+    FROM data_history h
+    WHERE h.table_source = NEW.table_source
+        AND h.record_id = NEW.record_id
+        AND h.id > base_id
+        AND h.id < NEW.id
+        AND (h.data_format = 'SNAPSHOT' OR h.action_name = 'DELETED')
+    ORDER BY h.id DESC
+    LIMIT 1;
+    IF FOUND THEN
+        IF latest_reset.action_name = 'DELETED' THEN
+            RETURN NULL;
+        END IF;
+        base_id := latest_reset.id;
+        document := latest_reset.new_data::jsonb;
+    END IF;
+    IF document IS NULL THEN
+        RETURN NULL;
+    END IF;
+
+    SELECT count(*) INTO pending_deltas
+    FROM data_history h
+    WHERE h.table_source = NEW.table_source
+        AND h.record_id = NEW.record_id
+        AND h.id > base_id
+        AND h.id <= NEW.id;
+    IF pending_deltas < checkpoint_interval THEN
+        RETURN NULL;
+    END IF;
+
+    FOR delta IN
+        SELECT h.new_data
+        FROM data_history h
+        WHERE h.table_source = NEW.table_source
+            AND h.record_id = NEW.record_id
+            AND h.id > base_id
+            AND h.id <= NEW.id
+        ORDER BY h.id
+    LOOP
+        document := jsonb_apply_operations(document, delta.new_data::jsonb);
+    END LOOP;
+    INSERT INTO data_history_checkpoint (table_source, record_id, history_id, time_recorded, data)
+    VALUES (NEW.table_source, NEW.record_id, NEW.id, NEW.time_recorded, jsonb_set(document, '{id}', to_jsonb(NEW.record_id)));
+    RETURN NULL;
+END;
+$$;
+
+-- changeset liquibase:41
+CREATE TRIGGER data_history_checkpoint_take AFTER INSERT ON data_history
+    FOR EACH ROW WHEN (NEW.data_format = 'DELTA' AND NEW.record_id IS NOT NULL)
+    EXECUTE FUNCTION checkpoint_data_history(50);
@@ -0,0 +1,40 @@
+-- liquibase formatted sql
+
+-- changeset liquibase:42 splitStatements:false
+-- Notifies the listeners of the data_change channel of each change as its history entry is written, with the event the
+-- record belongs to, so they can be told apart without reading anything. Notifications are only delivered once the
+-- transaction writing the entry commits.
+CREATE OR REPLACE FUNCTION notify_data_change() RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    event_info_id bigint;
+BEGIN
+    IF NEW.table_source = 'EVENT_INFO' THEN
+        event_info_id := NEW.record_id;
+    ELSIF NEW.table_source = 'REGISTRATION' THEN
+        SELECT r.event_info_id INTO event_info_id FROM registration r WHERE r.id = NEW.record_id;
+    ELSIF NEW.table_source = 'TRANSACTION_' THEN
+        SELECT t.event_info_id INTO event_info_id FROM transaction_ t WHERE t.id = NEW.record_id;
+    ELSIF NEW.table_source = 'GUEST' THEN
+        SELECT r.event_info_id INTO event_info_id
+        FROM registration r
+        WHERE r.id = coalesce(
+            (SELECT g.registration_id FROM guest g WHERE g.id = NEW.record_id),
+            (NEW.old_data ->> 'registrationId')::bigint);
+    END IF;
+    -- Deleted records are gone by the time their deletion is recorded, so their event is taken from the entry.
+    IF event_info_id IS NULL AND NEW.action_name = 'DELETED' THEN
+        event_info_id := (NEW.old_data ->> 'eventInfoId')::bigint;
+    END IF;
+    PERFORM pg_notify('data_change', json_build_object(
+        'table', NEW.table_source,
+        'action', NEW.action_name,
+        'id', NEW.record_id,
+        'eventInfoId', event_info_id)::text);
+    RETURN NULL;
+END;
+$$;
+
+-- changeset liquibase:43
+CREATE TRIGGER data_history_change_notify AFTER INSERT ON data_history
+    FOR EACH ROW WHEN (NEW.record_id IS NOT NULL)
+    EXECUTE FUNCTION notify_data_change();
@@ -0,0 +1,77 @@
+package net.briclabs.evcoordinator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which participant an authenticated caller is, so requests don't have to look the caller up each time.
+ * <p>
+ * Entries are keyed by the email address the caller's token carries, and only serve callers presenting the same token
+ * subject. Each entry expires along with the token it was resolved for. A caller without a participant is only
+ * remembered for a few seconds, as writes by such a caller leave no history: anything which adds or re-addresses a
+ * participant invalidates the email addresses involved once its transaction commits, but only on this instance, and a
+ * lookup racing the commit may still find no participant.
+ */
+final class ActorIdCache {
+
+    /**
+     * The number of entries beyond which expired ones are swept out when adding another.
+     */
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    /**
+     * How long a caller found to have no participant is remembered at most.
+     */
+    private static final Duration NO_PARTICIPANT_LIFETIME = Duration.ofSeconds(5);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves the participant ID resolved earlier for the given caller, unless it has expired since.
+     *
+     * @param subject the subject of the caller's token.
+     * @param email the email address in the caller's token.
+     * @return an {@code Optional} containing the resolved ID, which is -1 if the caller has no participant, or an
+     *         empty {@code Optional} if the caller has to be resolved again.
+     */
+    Optional<Long> get(String subject, String email) {
+        Entry entry = entries.get(email);
+        if (entry == null || !Objects.equals(entry.subject(), subject)) {
+            return Optional.empty();
+        }
+        if (!entry.expiresAt().isAfter(Instant.now())) {
+            entries.remove(email, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.participantId());
+    }
+
+    void put(String subject, String email, long participantId, Instant expiresAt) {
+        Instant now = Instant.now();
+        if (entries.size() >= SWEEP_THRESHOLD) {
+            entries.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
+        }
+        if (participantId < 0 && expiresAt.isAfter(now.plus(NO_PARTICIPANT_LIFETIME))) {
+            expiresAt = now.plus(NO_PARTICIPANT_LIFETIME);
+        }
+        entries.put(email, new Entry(subject, participantId, expiresAt));
+    }
+
+    /**
+     * Forgets what the given email address resolved to, once the transaction open on the current thread commits, or
+     * right away outside a transaction.
+     *
+     * @param email the email address, which may be {@code null}.
+     */
+    void invalidate(String email) {
+        if (email != null) {
+            LatestSnapshotCache.invalidateOnCommit(() -> entries.remove(email));
+        }
+    }
+
+    private record Entry(String subject, long participantId, Instant expiresAt) {}
+}
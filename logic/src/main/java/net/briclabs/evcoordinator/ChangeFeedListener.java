@@ -0,0 +1,156 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.model.ChangeEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Listens for the changes the database notifies as history entries are written, and hands each of them to a
+ * subscriber, which fans them out.
+ * <p>
+ * The listener holds a connection of its own rather than one from the pool, since it keeps it for as long as it runs.
+ * Waiting for notifications doesn't notice a connection which silently went away, so the connection is queried between
+ * waits. Should the connection be lost, it reconnects after a delay; changes committed in the meantime aren't notified
+ * again. Changes which can't be read, or which the subscriber throws on, are dropped and counted rather than held, so the
+ * listener always keeps up with the database. Whatever the subscriber drops without throwing isn't counted here.
+ */
+public final class ChangeFeedListener implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeedListener.class);
+
+    /**
+     * The channel on which the database notifies changes.
+     */
+    public static final String CHANNEL = "data_change";
+
+    private final ObjectMapper objectMapper;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Duration pollTimeout;
+    private final Duration reconnectDelay;
+    private final Consumer<ChangeEvent> subscriber;
+    private final Thread listener;
+    private volatile boolean running;
+
+    private final LongAdder eventsDispatched = new LongAdder();
+    private final LongAdder eventsDropped = new LongAdder();
+
+    private ChangeFeedListener(ObjectMapper objectMapper, String url, String user, String password, Duration pollTimeout, Duration reconnectDelay, ThreadFactory threadFactory, Consumer<ChangeEvent> subscriber) {
+        this.objectMapper = objectMapper;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+        this.subscriber = subscriber;
+        this.running = true;
+        this.listener = threadFactory.newThread(this::listen);
+        this.listener.start();
+    }
+
+    /**
+     * Starts listening for changes.
+     *
+     * @param objectMapper the object mapper used to read the notifications.
+     * @param url the JDBC URL of the database.
+     * @param user the user to connect as.
+     * @param password the password of the user.
+     * @param pollTimeout how long to wait for notifications at a time, which bounds how long stopping takes.
+     * @param reconnectDelay how long to wait before reconnecting once the connection is lost.
+     * @param threadFactory creates the thread listening for changes.
+     * @param subscriber takes each change notified.
+     * @return the listener, already running.
+     */
+    public static ChangeFeedListener start(ObjectMapper objectMapper, String url, String user, String password, Duration pollTimeout, Duration reconnectDelay, ThreadFactory threadFactory, Consumer<ChangeEvent> subscriber) {
+        return new ChangeFeedListener(objectMapper, url, user, password, pollTimeout, reconnectDelay, threadFactory, subscriber);
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, user, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                LOGGER.info("Listening for changes on channel '{}'.", CHANNEL);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                    checkConnection(connection);
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    LOGGER.warn("Lost the connection listening for changes. Reconnecting in {}.", reconnectDelay, e);
+                    try {
+                        Thread.sleep(reconnectDelay.toMillis());
+                    } catch (InterruptedException interrupted) {
+                        running = false;
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkConnection(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout((int) Math.max(1, pollTimeout.toSeconds()));
+            statement.execute("SELECT 1");
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            subscriber.accept(objectMapper.readValue(payload, ChangeEvent.class));
+            eventsDispatched.increment();
+        } catch (Exception e) {
+            eventsDropped.increment();
+            LOGGER.warn("Dropped change '{}'.", payload, e);
+        }
+    }
+
+    /**
+     * Stops listening, and waits for the connection to be closed.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        listener.join(pollTimeout.plusSeconds(10).toMillis());
+    }
+
+    /**
+     * Retrieves how many changes were handed to the subscriber since the listener started.
+     *
+     * @return the number of changes dispatched.
+     */
+    public long getEventsDispatched() {
+        return eventsDispatched.sum();
+    }
+
+    /**
+     * Retrieves how many changes were dropped since the listener started, because they couldn't be read or the
+     * subscriber threw on them. Changes the subscriber dropped on its own, such as messages its channels rejected,
+     * aren't included.
+     *
+     * @return the number of changes dropped.
+     */
+    public long getEventsDropped() {
+        return eventsDropped.sum();
+    }
+}
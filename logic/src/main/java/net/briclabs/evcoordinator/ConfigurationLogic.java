@@ -5,16 +5,33 @@ import net.briclabs.evcoordinator.generated.tables.pojos.Configuration;
 import net.briclabs.evcoordinator.generated.tables.records.ConfigurationRecord;
 import net.briclabs.evcoordinator.validation.ConfigurationValidator;
 import org.jooq.DSLContext;
-import org.jooq.JSONB;
+import org.jooq.ResultQuery;
+import org.jooq.TableField;
+import reactor.core.publisher.Mono;
 
 import java.util.AbstractMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import static java.util.Map.entry;
 import static net.briclabs.evcoordinator.generated.Tables.CONFIGURATION;
 
 public class ConfigurationLogic extends WriteLogic<ConfigurationRecord, Configuration, net.briclabs.evcoordinator.generated.tables.Configuration> {
+
+    private static final List<TableField<ConfigurationRecord, ?>> BUSINESS_FIELDS = List.of(
+            CONFIGURATION.RECOMMENDED_DONATION,
+            CONFIGURATION.CHARITY_NAME,
+            CONFIGURATION.CHARITY_URL,
+            CONFIGURATION.FUND_PROCESSOR_NAME,
+            CONFIGURATION.FUND_PROCESSOR_URL,
+            CONFIGURATION.FUND_PROCESSOR_INSTRUCTIONS,
+            CONFIGURATION.EVENT_GUIDELINES);
+
+    /**
+     * The latest configuration, shared by every instance.
+     */
+    static final LatestSnapshotCache<Configuration> LATEST = LatestSnapshotCache.create("configuration.latest");
+
     private final HistoryLogic historyLogic;
 
     public ConfigurationLogic(ObjectMapper objectMapper, DSLContext jooq) {
@@ -24,28 +41,58 @@ public class ConfigurationLogic extends WriteLogic<ConfigurationRecord, Configur
 
     @Override
     public boolean isAlreadyRecorded(Configuration pojo) {
-        Map<String, String> criteria = Map.ofEntries(
-                entry(getTable().CHARITY_NAME.getName(), pojo.getCharityName()),
-                entry(getTable().CHARITY_URL.getName(), pojo.getCharityUrl()),
-                entry(getTable().EVENT_GUIDELINES.getName(), pojo.getEventGuidelines().toString()),
-                entry(getTable().FUND_PROCESSOR_INSTRUCTIONS.getName(), pojo.getFundProcessorInstructions().toString()),
-                entry(getTable().FUND_PROCESSOR_NAME.getName(), pojo.getFundProcessorName()),
-                entry(getTable().FUND_PROCESSOR_URL.getName(), pojo.getFundProcessorUrl()),
-                entry(getTable().RECOMMENDED_DONATION.getName(), pojo.getRecommendedDonation().toString()));
-        return fetchByCriteria(true, criteria, getIdColumn().getName(), false,0, 1).count() > 0;
+        return isFingerprintRecorded(pojo);
+    }
+
+    @Override
+    List<TableField<ConfigurationRecord, ?>> getBusinessFields() {
+        return BUSINESS_FIELDS;
+    }
+
+    @Override
+    HistoryLogic getHistoryLogic() {
+        return historyLogic;
     }
 
     /**
      * Fetches the latest configuration entry. If no entries exist in the table, an empty {@code Optional} is returned.
+     * The entry is served from a snapshot shared by every instance, which changes to the configuration invalidate.
      *
      * @return an {@code Optional<Configuration>} containing the latest configuration entry if present, or empty if no entries exist.
      */
     public Optional<Configuration> fetchLatest() {
+        return fetchLatestSnapshot().value();
+    }
+
+    /**
+     * Fetches the snapshot holding the latest configuration entry, which also tells when the entry was loaded.
+     *
+     * @return the snapshot holding the latest configuration entry.
+     */
+    public LatestSnapshotCache.Snapshot<Configuration> fetchLatestSnapshot() {
+        return LATEST.get(this::loadLatest, this::computeETag);
+    }
+
+    /**
+     * Fetches the snapshot holding the latest configuration entry as {@link #fetchLatestSnapshot()} does, but without
+     * blocking while it's loaded through R2DBC. The logic has to have been created with a {@code DSLContext} connected
+     * through R2DBC.
+     *
+     * @return a {@code Mono} emitting the snapshot holding the latest configuration entry.
+     */
+    public Mono<LatestSnapshotCache.Snapshot<Configuration>> fetchLatestSnapshotReactively() {
+        return LATEST.getReactively(() -> fetchOptionalReactively(latestQuery()), this::computeETag);
+    }
+
+    private Optional<Configuration> loadLatest() {
+        return latestQuery().fetchOptionalInto(getRecordType());
+    }
+
+    private ResultQuery<ConfigurationRecord> latestQuery() {
         return jooq
                 .selectFrom(getTable())
                 .orderBy(getIdColumn().desc())
-                .limit(1)
-                .fetchOptionalInto(getRecordType());
+                .limit(1);
     }
 
     @Override
@@ -63,11 +110,17 @@ public class ConfigurationLogic extends WriteLogic<ConfigurationRecord, Configur
                 .fetchOptional()
                 .map(ConfigurationRecord::getId);
         if (insertedId.isPresent()) {
-            recordHistoryForInsert(historyLogic, actorId, convertToJson(pojo));
+            recordHistoryForInsert(historyLogic, actorId, insertedId.get(), () -> convertToJson(pojo));
+            onInserted(pojo);
         }
         return insertedId;
     }
 
+    @Override
+    void onInserted(Configuration pojo) {
+        LATEST.invalidate();
+    }
+
     @Override
     public int updateExisting(long actorId, Configuration update) throws ConfigurationException {
         if (update.getId() == null) {
@@ -75,33 +128,12 @@ public class ConfigurationLogic extends WriteLogic<ConfigurationRecord, Configur
                     new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "ID to update was missing. Please review your input and try again."),
                     "ID %d to update was missing.".formatted(update.getId()));
         }
-        var originalRecord = fetchById(update.getId()).orElseThrow(() -> new ConfigurationException(
-                new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "Record to update was not found. Please review your input and try again."),
-                "Record %d to update was not found.".formatted(update.getId())));
-        int updatedRecords = jooq
-                .update(getTable())
-                .set(getTable().CHARITY_NAME, update.getCharityName())
-                .set(getTable().CHARITY_URL, update.getCharityUrl())
-                .set(getTable().EVENT_GUIDELINES, update.getEventGuidelines())
-                .set(getTable().FUND_PROCESSOR_INSTRUCTIONS, update.getFundProcessorInstructions())
-                .set(getTable().FUND_PROCESSOR_NAME, update.getFundProcessorName())
-                .set(getTable().FUND_PROCESSOR_URL, update.getFundProcessorUrl())
-                .set(getTable().RECOMMENDED_DONATION, update.getRecommendedDonation())
-                .where(getTable().ID.eq(update.getId()))
-                .and(
-                        getTable().CHARITY_NAME.notEqual(update.getCharityName())
-                                .or(getTable().CHARITY_URL.notEqual(update.getCharityUrl()))
-                                .or(getTable().EVENT_GUIDELINES.cast(JSONB.class).notEqual(JSONB.valueOf(update.getEventGuidelines().data())))
-                                .or(getTable().FUND_PROCESSOR_INSTRUCTIONS.cast(JSONB.class).notEqual(JSONB.valueOf(update.getFundProcessorInstructions().data())))
-                                .or(getTable().FUND_PROCESSOR_NAME.notEqual(update.getFundProcessorName()))
-                                .or(getTable().FUND_PROCESSOR_URL.notEqual(update.getFundProcessorUrl()))
-                                .or(getTable().RECOMMENDED_DONATION.notEqual(update.getRecommendedDonation()))
-                )
-                .execute();
-        if (updatedRecords > 0) {
-            recordHistoryForUpdate(historyLogic, actorId, convertToJson(originalRecord), convertToJson(update));
-        }
-        return updatedRecords;
+        return updateChangedFields(historyLogic, actorId, update.getId(), update);
+    }
+
+    @Override
+    void onUpdated(Change<Configuration> change) {
+        LATEST.invalidate();
     }
 
     @Override
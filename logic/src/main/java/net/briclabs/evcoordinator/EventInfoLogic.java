@@ -6,18 +6,36 @@ import net.briclabs.evcoordinator.generated.tables.pojos.EventInfo;
 import net.briclabs.evcoordinator.generated.tables.records.EventInfoRecord;
 import net.briclabs.evcoordinator.validation.EventInfoValidator;
 import org.jooq.DSLContext;
+import org.jooq.ResultQuery;
+import org.jooq.TableField;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import reactor.core.publisher.Mono;
 
-import java.time.format.DateTimeFormatter;
 import java.util.AbstractMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import static java.util.Map.entry;
 import static net.briclabs.evcoordinator.generated.tables.EventInfo.EVENT_INFO;
+import static net.briclabs.evcoordinator.generated.tables.Guest.GUEST;
 import static net.briclabs.evcoordinator.generated.tables.Registration.REGISTRATION;
+import static net.briclabs.evcoordinator.generated.tables.Transaction_.TRANSACTION_;
 
 public class EventInfoLogic extends WriteAndDeleteLogic<EventInfoRecord, EventInfo, net.briclabs.evcoordinator.generated.tables.EventInfo> {
+
+    private static final List<TableField<EventInfoRecord, ?>> BUSINESS_FIELDS = List.of(
+            EVENT_INFO.EVENT_NAME,
+            EVENT_INFO.EVENT_TITLE,
+            EVENT_INFO.DATE_START,
+            EVENT_INFO.DATE_END,
+            EVENT_INFO.EVENT_STATUS);
+
+    /**
+     * The latest current event, shared by every instance.
+     */
+    static final LatestSnapshotCache<EventInfo> LATEST = LatestSnapshotCache.create("eventInfo.latest");
+
     private final HistoryLogic historyLogic;
     private final TransactionLogic transactionLogic;
     private final GuestLogic guestLogic;
@@ -33,27 +51,59 @@ public class EventInfoLogic extends WriteAndDeleteLogic<EventInfoRecord, EventIn
 
     @Override
     public boolean isAlreadyRecorded(EventInfo pojo) {
-        Map<String, String> criteria = Map.ofEntries(
-                entry(getTable().EVENT_STATUS.getName(), pojo.getEventStatus().getLiteral()),
-                entry(getTable().EVENT_NAME.getName(), pojo.getEventName()),
-                entry(getTable().EVENT_TITLE.getName(), pojo.getEventTitle()),
-                entry(getTable().DATE_START.getName(), pojo.getDateStart().format(DateTimeFormatter.ISO_DATE)),
-                entry(getTable().DATE_END.getName(), pojo.getDateEnd().format(DateTimeFormatter.ISO_DATE)));
-        return fetchByCriteria(true, criteria, getIdColumn().getName(), false,0, 1).count() > 0;
+        return isFingerprintRecorded(pojo);
+    }
+
+    @Override
+    List<TableField<EventInfoRecord, ?>> getBusinessFields() {
+        return BUSINESS_FIELDS;
+    }
+
+    @Override
+    HistoryLogic getHistoryLogic() {
+        return historyLogic;
     }
 
     /**
      * Fetches the latest event info entry. If no entries exist in the table, an empty {@code Optional} is returned.
+     * The entry is served from a snapshot shared by every instance, which changes to events invalidate.
      *
      * @return an {@code Optional<EventInfo>} containing the latest event info entry if present, or empty if no entries exist.
      */
     public Optional<EventInfo> fetchLatest() {
+        return fetchLatestSnapshot().value();
+    }
+
+    /**
+     * Fetches the snapshot holding the latest event info entry, which also tells when the entry was loaded.
+     *
+     * @return the snapshot holding the latest event info entry.
+     */
+    public LatestSnapshotCache.Snapshot<EventInfo> fetchLatestSnapshot() {
+        return LATEST.get(this::loadLatest, this::computeETag);
+    }
+
+    /**
+     * Fetches the snapshot holding the latest event info entry as {@link #fetchLatestSnapshot()} does, but without
+     * blocking while it's loaded through R2DBC. The logic has to have been created with a {@code DSLContext} connected
+     * through R2DBC.
+     *
+     * @return a {@code Mono} emitting the snapshot holding the latest event info entry.
+     */
+    public Mono<LatestSnapshotCache.Snapshot<EventInfo>> fetchLatestSnapshotReactively() {
+        return LATEST.getReactively(() -> fetchOptionalReactively(latestQuery()), this::computeETag);
+    }
+
+    private Optional<EventInfo> loadLatest() {
+        return latestQuery().fetchOptionalInto(getRecordType());
+    }
+
+    private ResultQuery<EventInfoRecord> latestQuery() {
         return jooq
                 .selectFrom(getTable())
                 .where(getTable().EVENT_STATUS.eq(EventStatus.CURRENT))
                 .orderBy(getIdColumn().desc())
-                .limit(1)
-                .fetchOptionalInto(getRecordType());
+                .limit(1);
     }
 
     @Override
@@ -69,11 +119,18 @@ public class EventInfoLogic extends WriteAndDeleteLogic<EventInfoRecord, EventIn
                 .fetchOptional()
                 .map(EventInfoRecord::getId);
         if (insertedId.isPresent()) {
-            recordHistoryForInsert(historyLogic, actorId, convertToJson(pojo));
+            recordHistoryForInsert(historyLogic, actorId, insertedId.get(), () -> convertToJson(pojo));
+            onInserted(pojo);
         }
         return insertedId;
     }
 
+    @Override
+    void onInserted(EventInfo pojo) {
+        LATEST.invalidate();
+        EventStatisticsLogic.LATEST.invalidate();
+    }
+
     @Override
     public int updateExisting(long actorId, EventInfo update) throws EventInfoException {
         if (update.getId() == null) {
@@ -81,67 +138,52 @@ public class EventInfoLogic extends WriteAndDeleteLogic<EventInfoRecord, EventIn
                     new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "ID to update was missing. Please review your input and try again."),
                     "ID %d to update was missing.".formatted(update.getId()));
         }
-        var originalRecord = fetchById(update.getId()).orElseThrow(() -> new EventInfoException(
-                new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "Record to update was not found. Please review your input and try again."),
-                "Record %d to update was not found.".formatted(update.getId())));
-        int updatedRecords = jooq
-                .update(getTable())
-                .set(getTable().EVENT_STATUS, update.getEventStatus())
-                .set(getTable().EVENT_NAME, update.getEventName())
-                .set(getTable().EVENT_TITLE, update.getEventTitle())
-                .set(getTable().DATE_START, update.getDateStart())
-                .set(getTable().DATE_END, update.getDateEnd())
-                .where(getIdColumn().eq(update.getId()))
-                .and(
-                        getTable().EVENT_STATUS.notEqual(update.getEventStatus())
-                                .or(getTable().EVENT_NAME.notEqual(update.getEventName()))
-                                .or(getTable().EVENT_TITLE.notEqual(update.getEventTitle()))
-                                .or(getTable().DATE_START.notEqual(update.getDateStart()))
-                                .or(getTable().DATE_END.notEqual(update.getDateEnd()))
-                ).execute();
-        if (updatedRecords > 0) {
-            recordHistoryForUpdate(historyLogic, actorId, convertToJson(originalRecord), convertToJson(update));
-        }
-        return updatedRecords;
+        return updateChangedFields(historyLogic, actorId, update.getId(), update);
     }
 
     @Override
-    public void delete(long actorId, long idToDelete) throws EventInfoException, TransactionLogic.TransactionException, RegistrationLogic.RegistrationException, GuestLogic.GuestException {
-        var originalRecord = fetchById(idToDelete).orElseThrow(() -> new EventInfoException(
-                new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "The event to be deleted was not found. Please review your input and try again."),
-                "Event with ID %d to be deleted was not found.".formatted(idToDelete)));
-        deleteCorrespondingTransactions(actorId, idToDelete);
-        deleteCorrespondingRegistrationsAndGuests(actorId, idToDelete);
-
-        var deletedRecords = jooq.deleteFrom(getTable()).where(getTable().ID.eq(idToDelete)).execute();
-        if (deletedRecords > 0) {
-            recordHistoryForDeletion(historyLogic, actorId, convertToJson(originalRecord));
-        }
+    void onUpdated(Change<EventInfo> change) {
+        LATEST.invalidate();
+        EventStatisticsLogic.LATEST.invalidate();
     }
 
+    /**
+     * Deletes the event along with its transactions, registrations, and their guests, in a single transaction.
+     * Each table is cleared with one {@code DELETE ... RETURNING} statement, and the deletion of every returned record
+     * is recorded in one batch at the end, so the cost depends on the number of tables rather than records. Should any
+     * step fail, nothing is deleted.
+     */
     @Override
-    public Map<String, String> validate(EventInfo pojo) {
-        return EventInfoValidator.of(pojo).getMessages();
-    }
-
-    private void deleteCorrespondingRegistrationsAndGuests(long actorId, long idToDelete) throws RegistrationLogic.RegistrationException, GuestLogic.GuestException {
-        var registrationIdsToDelete = jooq.select(REGISTRATION.ID).from(REGISTRATION).where(REGISTRATION.EVENT_INFO_ID.eq(idToDelete)).fetchInto(Long.class);
-        deleteCorrespondingGuests(actorId, registrationIdsToDelete);
-        for (Long registrationIdToDelete : registrationIdsToDelete) {
-            registrationLogic.delete(actorId, registrationIdToDelete);
-        }
-    }
-
-    private void deleteCorrespondingGuests(long actorId, List<Long> registrationIdsToDelete) throws GuestLogic.GuestException {
-        for (Long guestIdToDelete : guestLogic.getGuestIdsByRegistrationIds(registrationIdsToDelete)) {
-            guestLogic.delete(actorId, guestIdToDelete);
+    public void delete(long actorId, long idToDelete) throws EventInfoException {
+        try {
+            jooq.transaction(configuration -> {
+                var historyLogic = new HistoryLogic(getObjectMapper(), configuration.dsl());
+                historyLogic.defer();
+                transactionLogic.deleteAllWhere(configuration.dsl(), historyLogic, actorId, TRANSACTION_.EVENT_INFO_ID.eq(idToDelete));
+                guestLogic.deleteAllWhere(configuration.dsl(), historyLogic, actorId, GUEST.REGISTRATION_ID.in(
+                        DSL.select(REGISTRATION.ID).from(REGISTRATION).where(REGISTRATION.EVENT_INFO_ID.eq(idToDelete))));
+                registrationLogic.deleteAllWhere(configuration.dsl(), historyLogic, actorId, REGISTRATION.EVENT_INFO_ID.eq(idToDelete));
+                if (deleteAllWhere(configuration.dsl(), historyLogic, actorId, getIdColumn().eq(idToDelete)) == 0) {
+                    throw new EventInfoException(
+                            new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "The event to be deleted was not found. Please review your input and try again."),
+                            "Event with ID %d to be deleted was not found.".formatted(idToDelete));
+                }
+                historyLogic.flushDeferred();
+            });
+        } catch (DataAccessException e) {
+            // Checked exceptions thrown within the transaction come back wrapped, after it was rolled back.
+            if (e.getCause() instanceof EventInfoException eventInfoException) {
+                throw eventInfoException;
+            }
+            throw e;
         }
+        LATEST.invalidate();
+        EventStatisticsLogic.LATEST.invalidate();
     }
 
-    private void deleteCorrespondingTransactions(long actorId, long eventId) throws TransactionLogic.TransactionException {
-        for (Long transactionIdToDelete : transactionLogic.getTransactionIdsByEventId(eventId)) {
-            transactionLogic.delete(actorId, transactionIdToDelete);
-        }
+    @Override
+    public Map<String, String> validate(EventInfo pojo) {
+        return EventInfoValidator.of(pojo).getMessages();
     }
 
     public static class EventInfoException extends LogicException {
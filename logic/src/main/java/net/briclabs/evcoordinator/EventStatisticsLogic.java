@@ -5,6 +5,10 @@ import net.briclabs.evcoordinator.generated.enums.EventStatus;
 import net.briclabs.evcoordinator.generated.tables.pojos.EventStatistics;
 import net.briclabs.evcoordinator.generated.tables.records.EventStatisticsRecord;
 import org.jooq.DSLContext;
+import org.jooq.ResultQuery;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import reactor.core.publisher.Mono;
 
 import java.util.Optional;
 
@@ -12,6 +16,12 @@ import static net.briclabs.evcoordinator.generated.tables.EventStatistics.EVENT_
 
 public class EventStatisticsLogic  extends Logic<EventStatisticsRecord, EventStatistics, net.briclabs.evcoordinator.generated.tables.EventStatistics> {
 
+    /**
+     * The statistics of the latest current event, shared by every instance. Since the statistics are derived from
+     * events, registrations, guests, and transactions, writes to any of those invalidate it.
+     */
+    static final LatestSnapshotCache<EventStatistics> LATEST = LatestSnapshotCache.create("eventStatistics.latest");
+
     public EventStatisticsLogic(ObjectMapper objectMapper, DSLContext jooq) {
         super(objectMapper, jooq, EventStatistics.class, EVENT_STATISTICS, EVENT_STATISTICS.EVENT_ID);
     }
@@ -20,15 +30,61 @@ public class EventStatisticsLogic  extends Logic<EventStatisticsRecord, EventSta
      * Fetches the latest event statistics marked with a "CURRENT" status.
      * The result is determined by ordering event records in descending order
      * by start date and end date, and retrieving the most recent one.
+     * <p>
+     * The statistics are kept up to date by the database as events, registrations, guests, and transactions change,
+     * so this reads a single, already computed row through the index matching this ordering. That row is in turn
+     * served from a snapshot shared by every instance.
      *
      * @return an Optional containing the latest EventStatistics if available, or an empty Optional if no records are found.
      */
     public Optional<EventStatistics> fetchLatest() {
+        return fetchLatestSnapshot().value();
+    }
+
+    /**
+     * Fetches the snapshot holding the latest event statistics, which also tells when they were loaded.
+     *
+     * @return the snapshot holding the latest event statistics.
+     */
+    public LatestSnapshotCache.Snapshot<EventStatistics> fetchLatestSnapshot() {
+        return LATEST.get(this::loadLatest, this::computeETag);
+    }
+
+    /**
+     * Fetches the snapshot holding the latest event statistics as {@link #fetchLatestSnapshot()} does, but without
+     * blocking while they're loaded through R2DBC. The logic has to have been created with a {@code DSLContext}
+     * connected through R2DBC.
+     *
+     * @return a {@code Mono} emitting the snapshot holding the latest event statistics.
+     */
+    public Mono<LatestSnapshotCache.Snapshot<EventStatistics>> fetchLatestSnapshotReactively() {
+        return LATEST.getReactively(() -> fetchOptionalReactively(latestQuery()), this::computeETag);
+    }
+
+    private Optional<EventStatistics> loadLatest() {
+        return latestQuery().fetchOptionalInto(getRecordType());
+    }
+
+    private ResultQuery<EventStatisticsRecord> latestQuery() {
         return jooq
                 .selectFrom(getTable())
                 .where(getTable().EVENT_STATUS.eq(EventStatus.CURRENT))
                 .orderBy(getTable().DATE_START.desc(), getTable().DATE_END.desc())
-                .limit(1)
-                .fetchOptionalInto(getRecordType());
+                .limit(1);
+    }
+
+    /**
+     * Recomputes the statistics of every event from scratch, replacing the incrementally maintained ones.
+     * This is meant for verifying the incremental maintenance, and for repairing the statistics should it ever fail.
+     *
+     * @return the number of events whose stored statistics differed from the recomputed ones.
+     */
+    public int rebuild() {
+        int drifted = jooq
+                .select(DSL.function("rebuild_event_statistics", SQLDataType.INTEGER))
+                .fetchOptional(0, Integer.class)
+                .orElse(0);
+        LATEST.invalidate();
+        return drifted;
     }
 }
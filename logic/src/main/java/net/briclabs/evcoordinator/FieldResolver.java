@@ -0,0 +1,79 @@
+package net.briclabs.evcoordinator;
+
+import org.jooq.Field;
+import org.jooq.JSON;
+import org.jooq.Table;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves search criteria keys to the fields of a table, ignoring case.
+ * <p>
+ * The lookup is compiled once per table and shared by every logic instance working with that table, so resolving
+ * a key is a single map lookup instead of a scan over the table's fields.
+ */
+final class FieldResolver {
+
+    private static final Map<Table<?>, FieldResolver> RESOLVERS = new ConcurrentHashMap<>();
+
+    private final Map<String, ResolvedField<?>> fieldsByFoldedName;
+
+    private FieldResolver(Table<?> table) {
+        this.fieldsByFoldedName = table.fieldStream()
+                .map(ResolvedField::of)
+                .collect(Collectors.toUnmodifiableMap(resolved -> fold(resolved.field().getName()), Function.identity(), (first, second) -> first));
+    }
+
+    /**
+     * Retrieves the resolver for the given table, compiling it on first use.
+     *
+     * @param table the table whose fields are to be resolved.
+     * @return the resolver for the table.
+     */
+    static FieldResolver of(Table<?> table) {
+        return RESOLVERS.computeIfAbsent(table, FieldResolver::new);
+    }
+
+    /**
+     * Resolves the field with the given name, ignoring case.
+     *
+     * @param name the name of the field.
+     * @return an {@code Optional} containing the resolved field, or an empty {@code Optional} if the table has no such field.
+     */
+    Optional<ResolvedField<?>> resolve(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(fieldsByFoldedName.get(fold(name)));
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A field along with what's needed to turn raw criteria values into values of the field's type.
+     *
+     * @param field the field.
+     * @param json whether the field holds JSON, which has to be compared as JSONB.
+     * @param text whether the field holds plain text, which can be searched through its trigram index.
+     */
+    record ResolvedField<T>(Field<T> field, boolean json, boolean text) {
+
+        static <T> ResolvedField<T> of(Field<T> field) {
+            return new ResolvedField<>(field, field.getDataType().getType().equals(JSON.class), field.getDataType().getType().equals(String.class));
+        }
+
+        /**
+         * Converts a raw criteria value to the field's type.
+         *
+         * @param value the raw value.
+         * @return the value converted to the field's type.
+         */
+        T convert(String value) {
+            return field.getDataType().convert(value);
+        }
+    }
+}
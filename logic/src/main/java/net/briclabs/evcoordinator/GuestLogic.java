@@ -7,33 +7,48 @@ import net.briclabs.evcoordinator.generated.tables.records.GuestRecord;
 import net.briclabs.evcoordinator.generated.tables.records.GuestWithLabelsRecord;
 import net.briclabs.evcoordinator.validation.GuestValidator;
 import org.jooq.DSLContext;
-import org.jooq.impl.DSL;
+import org.jooq.TableField;
 
 import java.util.AbstractMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import static java.util.Map.entry;
 import static net.briclabs.evcoordinator.generated.tables.Guest.GUEST;
 import static net.briclabs.evcoordinator.generated.tables.GuestWithLabels.GUEST_WITH_LABELS;
 
 public class GuestLogic extends WriteAndDeleteLogic<GuestRecord, Guest, net.briclabs.evcoordinator.generated.tables.Guest> {
+
+    private static final List<TableField<GuestRecord, ?>> BUSINESS_FIELDS = List.of(
+            GUEST.REGISTRATION_ID,
+            GUEST.GUEST_PROFILE_ID,
+            GUEST.RAW_GUEST_NAME,
+            GUEST.RELATIONSHIP);
+
     private final HistoryLogic historyLogic;
 
     public GuestLogic(ObjectMapper objectMapper, DSLContext jooq) {
+        this(objectMapper, jooq, new HistoryLogic(objectMapper, jooq));
+    }
+
+    GuestLogic(ObjectMapper objectMapper, DSLContext jooq, HistoryLogic historyLogic) {
         super(objectMapper, jooq, Guest.class, GUEST, GUEST.ID);
-        this.historyLogic = new HistoryLogic(objectMapper, jooq);
+        this.historyLogic = historyLogic;
     }
 
     @Override
     public boolean isAlreadyRecorded(Guest pojo) {
-        Map<String, String> criteria = Map.ofEntries(
-                entry(getTable().REGISTRATION_ID.getName(), Long.toString(pojo.getRegistrationId())),
-                entry(getTable().GUEST_PROFILE_ID.getName(), Optional.ofNullable(pojo.getGuestProfileId()).map(value -> Long.toString(value)).orElse("")),
-                entry(getTable().RAW_GUEST_NAME.getName(), pojo.getRawGuestName()),
-                entry(getTable().RELATIONSHIP.getName(), pojo.getRelationship().getLiteral()));
-        return fetchByCriteria(true, criteria, getIdColumn().getName(), false,0, 1).count() > 0;
+        return isFingerprintRecorded(pojo);
+    }
+
+    @Override
+    List<TableField<GuestRecord, ?>> getBusinessFields() {
+        return BUSINESS_FIELDS;
+    }
+
+    @Override
+    HistoryLogic getHistoryLogic() {
+        return historyLogic;
     }
 
     @Override
@@ -48,11 +63,41 @@ public class GuestLogic extends WriteAndDeleteLogic<GuestRecord, Guest, net.bric
                 .fetchOptional()
                 .map(GuestRecord::getId);
         if (insertedId.isPresent()) {
-            recordHistoryForInsert(historyLogic, actorId, convertToJson(pojo));
+            recordHistoryForInsert(historyLogic, actorId, insertedId.get(), () -> convertToJson(pojo));
+            onInserted(pojo);
         }
         return insertedId;
     }
 
+    @Override
+    void onInserted(Guest pojo) {
+        EventStatisticsLogic.LATEST.invalidate();
+    }
+
+    /**
+     * Inserts the given guests in a single multi-row statement.
+     *
+     * @param actorId the ID of the actor performing the operation.
+     * @param guests the guests to insert.
+     * @return the IDs of the inserted guests, in the order they were given.
+     */
+    public List<Long> insertAll(long actorId, List<Guest> guests) {
+        if (guests.isEmpty()) {
+            return List.of();
+        }
+        var insert = jooq.insertInto(getTable(), getTable().REGISTRATION_ID, getTable().GUEST_PROFILE_ID, getTable().RAW_GUEST_NAME, getTable().RELATIONSHIP);
+        for (Guest guest : guests) {
+            insert = insert.values(guest.getRegistrationId(), guest.getGuestProfileId(), guest.getRawGuestName(), guest.getRelationship());
+        }
+        List<Long> insertedIds = insert.returning(getIdColumn()).fetch(getIdColumn());
+        for (int i = 0; i < guests.size(); i++) {
+            Guest guest = guests.get(i);
+            recordHistoryForInsert(historyLogic, actorId, insertedIds.get(i), () -> convertToJson(guest));
+        }
+        EventStatisticsLogic.LATEST.invalidate();
+        return insertedIds;
+    }
+
     @Override
     public int updateExisting(long actorId, Guest update) throws GuestException {
         if (update.getId() == null) {
@@ -60,26 +105,12 @@ public class GuestLogic extends WriteAndDeleteLogic<GuestRecord, Guest, net.bric
                     new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "ID to update was missing. Please review your input and try again."),
                     "ID %d to update was missing.".formatted(update.getId()));
         }
-        var originalRecord = fetchById(update.getId()).orElseThrow(() -> new GuestException(
-                new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "Record to update was not found. Please review your input and try again."),
-                "Record %d to update was not found.".formatted(update.getId())));
-        int updatedRecords = jooq
-                .update(getTable())
-                .set(getTable().REGISTRATION_ID, update.getRegistrationId())
-                .set(getTable().GUEST_PROFILE_ID, update.getGuestProfileId())
-                .set(getTable().RAW_GUEST_NAME, update.getRawGuestName())
-                .set(getTable().RELATIONSHIP, update.getRelationship())
-                .where(getIdColumn().eq(update.getId()))
-                .and(
-                        getTable().REGISTRATION_ID.notEqual(update.getRegistrationId())
-                                .or(DSL.coalesce(getTable().GUEST_PROFILE_ID, 0).notEqual(update.getGuestProfileId()))
-                                .or(getTable().RAW_GUEST_NAME.notEqual(update.getRawGuestName()))
-                                .or(getTable().RELATIONSHIP.notEqual(update.getRelationship()))
-                ).execute();
-        if (updatedRecords > 0) {
-            recordHistoryForUpdate(historyLogic, actorId, convertToJson(originalRecord), convertToJson(update));
-        }
-        return updatedRecords;
+        return updateChangedFields(historyLogic, actorId, update.getId(), update);
+    }
+
+    @Override
+    void onUpdated(Change<Guest> change) {
+        EventStatisticsLogic.LATEST.invalidate();
     }
 
     @Override
@@ -89,7 +120,8 @@ public class GuestLogic extends WriteAndDeleteLogic<GuestRecord, Guest, net.bric
                 String.format("Guest with ID %d to be deleted was not found.", idToDelete)));
         var deletedRecords = jooq.deleteFrom(getTable()).where(getTable().ID.eq(idToDelete)).execute();
         if (deletedRecords > 0) {
-            recordHistoryForDeletion(historyLogic, actorId, convertToJson(originalRecord));
+            recordHistoryForDeletion(historyLogic, actorId, idToDelete, () -> convertToJson(originalRecord));
+            EventStatisticsLogic.LATEST.invalidate();
         }
     }
 
@@ -98,16 +130,6 @@ public class GuestLogic extends WriteAndDeleteLogic<GuestRecord, Guest, net.bric
         return GuestValidator.of(pojo, false).getMessages();
     }
 
-    /**
-     * Retrieves a list of guest IDs that are associated with the provided registration IDs.
-     *
-     * @param registrationIds a list of registration IDs for which associated guest IDs need to be fetched.
-     * @return a list of guest IDs corresponding to the given registration IDs.
-     */
-    public List<Long> getGuestIdsByRegistrationIds(List<Long> registrationIds) {
-        return jooq.select(getIdColumn()).from(getTable()).where(getTable().REGISTRATION_ID.in(registrationIds)).fetchInto(Long.class);
-    }
-
     /**
      * Special logic class that works with a view instead of the raw table. The view provides useful label information for rows which, in the table, are simply FKs.
      */
@@ -1,22 +1,60 @@
 package net.briclabs.evcoordinator;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import net.briclabs.evcoordinator.generated.enums.DataHistoryType;
+import net.briclabs.evcoordinator.generated.enums.HistoryDataFormat;
+import net.briclabs.evcoordinator.generated.enums.TableRef;
 import net.briclabs.evcoordinator.generated.tables.pojos.DataHistory;
 import net.briclabs.evcoordinator.generated.tables.pojos.DataHistoryWithLabels;
 import net.briclabs.evcoordinator.generated.tables.records.DataHistoryRecord;
 import net.briclabs.evcoordinator.generated.tables.records.DataHistoryWithLabelsRecord;
+import net.briclabs.evcoordinator.model.CountMode;
+import net.briclabs.evcoordinator.model.HistoryStorageReport;
+import net.briclabs.evcoordinator.model.SearchRange;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.JSON;
+import org.jooq.TableField;
+import org.jooq.impl.DSL;
 
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
-import static java.util.Map.entry;
+import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY_CHECKPOINT;
+import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY_COMPACTION;
 import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY_WITH_LABELS;
 import static net.briclabs.evcoordinator.generated.tables.DataHistory.DATA_HISTORY;
 
 public class HistoryLogic extends WriteLogic<DataHistoryRecord, DataHistory, net.briclabs.evcoordinator.generated.tables.DataHistory> {
 
+    private static final List<TableField<DataHistoryRecord, ?>> BUSINESS_FIELDS = List.of(
+            DATA_HISTORY.ACTOR_ID,
+            DATA_HISTORY.ACTION_NAME,
+            DATA_HISTORY.TABLE_SOURCE,
+            DATA_HISTORY.NEW_DATA,
+            DATA_HISTORY.OLD_DATA);
+
+    /**
+     * The most rows a single multi-row insert writes. Each row binds seven parameters, and PostgreSQL accepts at most
+     * 65535 per statement.
+     */
+    private static final int MAX_ROWS_PER_INSERT = 9_000;
+
+    private List<HistoryWriter.PendingEntry> deferred;
+
     /**
      * Constructor for the HistoryLogic class, initializing components required for data history management.
      *
@@ -29,13 +67,17 @@ public class HistoryLogic extends WriteLogic<DataHistoryRecord, DataHistory, net
 
     @Override
     public boolean isAlreadyRecorded(DataHistory pojo) {
-        Map<String, String> criteria = Map.ofEntries(
-                entry(getTable().ACTOR_ID.getName(), Long.toString(pojo.getActorId())),
-                entry(getTable().ACTION_NAME.getName(), pojo.getActionName().getLiteral()),
-                entry(getTable().TABLE_SOURCE.getName(), pojo.getTableSource().getLiteral()),
-                entry(getTable().NEW_DATA.getName(), pojo.getNewData().toString()),
-                entry(getTable().OLD_DATA.getName(), pojo.getOldData().toString()));
-        return fetchByCriteria(true, criteria, getIdColumn().getName(), false,0, 1).count() > 0;
+        return isFingerprintRecorded(pojo);
+    }
+
+    @Override
+    List<TableField<DataHistoryRecord, ?>> getBusinessFields() {
+        return BUSINESS_FIELDS;
+    }
+
+    @Override
+    HistoryLogic getHistoryLogic() {
+        return this;
     }
 
     @Override
@@ -46,6 +88,8 @@ public class HistoryLogic extends WriteLogic<DataHistoryRecord, DataHistory, net
                     .set(getTable().ACTOR_ID, actorId)
                     .set(getTable().ACTION_NAME, pojo.getActionName())
                     .set(getTable().TABLE_SOURCE, pojo.getTableSource())
+                    .set(getTable().RECORD_ID, pojo.getRecordId())
+                    .set(getTable().DATA_FORMAT, dataFormatOf(pojo))
                     .set(getTable().NEW_DATA, pojo.getNewData())
                     .set(getTable().OLD_DATA, pojo.getOldData())
                     .returning(getIdColumn())
@@ -55,11 +99,214 @@ public class HistoryLogic extends WriteLogic<DataHistoryRecord, DataHistory, net
         return Optional.empty();
     }
 
+    /**
+     * Inserts the given history entries in multi-row statements of up to {@value #MAX_ROWS_PER_INSERT} rows, which keeps
+     * each statement within the bind parameter limit of the driver. Entries without an actor are skipped, as they are by
+     * {@link #insertNew(long, DataHistory)}.
+     *
+     * @param entries the history entries to insert.
+     * @return the number of entries inserted.
+     */
+    public int insertAll(List<DataHistory> entries) {
+        List<DataHistory> toInsert = entries.stream().filter(entry -> entry.getActorId() != null && entry.getActorId() > 0).toList();
+        int inserted = 0;
+        for (int from = 0; from < toInsert.size(); from += MAX_ROWS_PER_INSERT) {
+            var insert = jooq.insertInto(getTable(), getTable().ACTOR_ID, getTable().ACTION_NAME, getTable().TABLE_SOURCE, getTable().RECORD_ID, getTable().DATA_FORMAT, getTable().NEW_DATA, getTable().OLD_DATA);
+            for (DataHistory entry : toInsert.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, toInsert.size()))) {
+                insert = insert.values(entry.getActorId(), entry.getActionName(), entry.getTableSource(), entry.getRecordId(), dataFormatOf(entry), entry.getNewData(), entry.getOldData());
+            }
+            inserted += insert.execute();
+        }
+        return inserted;
+    }
+
+    private static HistoryDataFormat dataFormatOf(DataHistory entry) {
+        return entry.getDataFormat() == null ? HistoryDataFormat.SNAPSHOT : entry.getDataFormat();
+    }
+
+    /**
+     * Reports how much storage the history takes, and how much compacting it into deltas saved.
+     *
+     * @return the report.
+     */
+    public HistoryStorageReport fetchStorageReport() {
+        var stored = jooq
+                .select(
+                        DSL.count().filterWhere(getTable().DATA_FORMAT.eq(HistoryDataFormat.SNAPSHOT)),
+                        DSL.count().filterWhere(getTable().DATA_FORMAT.eq(HistoryDataFormat.DELTA)),
+                        DSL.coalesce(DSL.sum(DSL.field("pg_column_size({0}) + pg_column_size({1})", Long.class, getTable().NEW_DATA, getTable().OLD_DATA)), BigDecimal.ZERO))
+                .from(getTable())
+                .fetchSingle();
+        var compacted = jooq
+                .select(
+                        DSL.coalesce(DSL.sum(DATA_HISTORY_COMPACTION.ROWS_COMPACTED), BigDecimal.ZERO),
+                        DSL.coalesce(DSL.sum(DATA_HISTORY_COMPACTION.BYTES_BEFORE.minus(DATA_HISTORY_COMPACTION.BYTES_AFTER)), BigDecimal.ZERO))
+                .from(DATA_HISTORY_COMPACTION)
+                .fetchSingle();
+        return new HistoryStorageReport(
+                stored.value1().longValue(),
+                stored.value2().longValue(),
+                stored.value3().longValue(),
+                compacted.value1().longValue(),
+                compacted.value2().longValue());
+    }
+
+    /**
+     * Creates the monthly partitions of the history which don't exist yet, from the current month up to the given
+     * number of months ahead.
+     *
+     * @param monthsAhead how many months ahead of the current one to create partitions for.
+     * @return the number of partitions created.
+     */
+    public int createPartitions(int monthsAhead) {
+        return jooq.select(DSL.function("create_data_history_partitions", Integer.class, DSL.val(monthsAhead))).fetchSingle().value1();
+    }
+
+    /**
+     * Counts the entries of the history recorded outside its monthly partitions, which land in the default partition
+     * when the partitions haven't been created far enough ahead.
+     *
+     * @return the number of entries in the default partition.
+     */
+    public int countUnpartitioned() {
+        return jooq.fetchCount(DSL.table(DSL.name("data_history_default")));
+    }
+
+    /**
+     * Detaches the partitions of the history holding only entries recorded before the given number of months preceding
+     * the current one. Detached partitions are dropped, or otherwise moved to the archive schema.
+     *
+     * @param retainedMonths how many months preceding the current one to keep.
+     * @param drop whether to drop the detached partitions rather than archive them.
+     * @return the number of partitions detached.
+     */
+    public int detachExpiredPartitions(int retainedMonths, boolean drop) {
+        return jooq.select(DSL.function("detach_data_history_partitions", Integer.class, DSL.val(retainedMonths), DSL.val(drop))).fetchSingle().value1();
+    }
+
+    /**
+     * Rebuilds records as they were at the given time, from the latest checkpoint of each taken by then, and the
+     * entries recorded about it since. As checkpoints are taken every few deltas, only as many entries are replayed per
+     * record, whatever the length of its history. Records deleted by then, or with no snapshot recorded by then, are
+     * left out.
+     *
+     * @param tableSource the table the records are from.
+     * @param recordIds the IDs of the records to rebuild.
+     * @param asOf the time at which to rebuild them.
+     * @return the records as they were, keyed and ordered by their ID.
+     */
+    public SortedMap<Long, ObjectNode> rebuildAsOf(TableRef tableSource, Collection<Long> recordIds, OffsetDateTime asOf) {
+        SortedMap<Long, ObjectNode> records = new TreeMap<>();
+        if (recordIds.isEmpty()) {
+            return records;
+        }
+        var checkpoints = jooq
+                .selectDistinct(DATA_HISTORY_CHECKPOINT.RECORD_ID, DATA_HISTORY_CHECKPOINT.HISTORY_ID, DATA_HISTORY_CHECKPOINT.DATA)
+                .on(DATA_HISTORY_CHECKPOINT.RECORD_ID)
+                .from(DATA_HISTORY_CHECKPOINT)
+                .where(DATA_HISTORY_CHECKPOINT.TABLE_SOURCE.eq(tableSource))
+                .and(DATA_HISTORY_CHECKPOINT.RECORD_ID.in(recordIds))
+                .and(DATA_HISTORY_CHECKPOINT.TIME_RECORDED.le(asOf))
+                .orderBy(DATA_HISTORY_CHECKPOINT.RECORD_ID, DATA_HISTORY_CHECKPOINT.HISTORY_ID.desc())
+                .fetch();
+        List<Condition> sinceCheckpoints = new ArrayList<>();
+        for (var checkpoint : checkpoints) {
+            records.put(checkpoint.value1(), (ObjectNode) readTree(getObjectMapper(), checkpoint.value3().data()));
+            sinceCheckpoints.add(getTable().RECORD_ID.eq(checkpoint.value1()).and(getTable().ID.gt(checkpoint.value2())));
+        }
+        List<Long> withoutCheckpoint = recordIds.stream().filter(recordId -> !records.containsKey(recordId)).distinct().toList();
+        if (!withoutCheckpoint.isEmpty()) {
+            sinceCheckpoints.add(getTable().RECORD_ID.in(withoutCheckpoint));
+        }
+        var recordedEntries = jooq
+                .select(getTable().RECORD_ID, getTable().ACTION_NAME, getTable().DATA_FORMAT, getTable().NEW_DATA)
+                .from(getTable())
+                .where(getTable().TABLE_SOURCE.eq(tableSource))
+                .and(DSL.or(sinceCheckpoints))
+                .and(getTable().TIME_RECORDED.le(asOf))
+                .orderBy(getTable().RECORD_ID, getTable().ID)
+                .fetch();
+        for (var recorded : recordedEntries) {
+            if (recorded.value2() == DataHistoryType.DELETED) {
+                records.remove(recorded.value1());
+            } else if (recorded.value3() == HistoryDataFormat.SNAPSHOT) {
+                ObjectNode snapshot = (ObjectNode) readTree(getObjectMapper(), recorded.value4().data());
+                snapshot.put(getIdColumn().getName(), recorded.value1());
+                records.put(recorded.value1(), snapshot);
+            } else if (records.containsKey(recorded.value1())) {
+                JsonPatch.apply(records.get(recorded.value1()), readTree(getObjectMapper(), recorded.value4().data()));
+            }
+        }
+        return records;
+    }
+
+    private static JsonNode readTree(ObjectMapper objectMapper, String data) {
+        try {
+            return objectMapper.readTree(data);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read history data %s.".formatted(data), e);
+        }
+    }
+
+    /**
+     * Records a history entry through the installed {@link HistoryWriter}, which decides when and how it's written.
+     * While entries are deferred, it's held back until {@link #flushDeferred()} is called instead.
+     *
+     * @param entry the entry to record.
+     */
+    void record(HistoryWriter.PendingEntry entry) {
+        if (entry.actorId() > 0) {
+            if (deferred != null) {
+                deferred.add(entry);
+            } else {
+                HistoryWriter.installed().write(this, entry);
+            }
+        }
+    }
+
+    /**
+     * Holds back the entries recorded from now on, so that {@link #flushDeferred()} can write them all at once.
+     * Meant for instances bound to a single transaction, which records several changes in a row.
+     */
+    void defer() {
+        if (deferred == null) {
+            deferred = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Retrieves a history logic recording through the given transaction. While entries are deferred, this logic is kept
+     * instead, as whoever deferred them writes them all within the transaction enclosing the given one.
+     *
+     * @param transaction the DSL context of the transaction.
+     * @return the history logic to record through.
+     */
+    HistoryLogic within(DSLContext transaction) {
+        return deferred != null ? this : new HistoryLogic(getObjectMapper(), transaction);
+    }
+
+    /**
+     * Writes the entries held back since {@link #defer()} was called through the installed {@link HistoryWriter}, and
+     * goes back to recording entries as they come.
+     */
+    void flushDeferred() {
+        List<HistoryWriter.PendingEntry> entries = deferred;
+        deferred = null;
+        if (entries != null && !entries.isEmpty()) {
+            HistoryWriter.installed().writeAll(this, entries);
+        }
+    }
+
     @Override
     public int updateExisting(long actorId, DataHistory update) {
         throw new UnsupportedOperationException("History records cannot be updated. Use the insertNew method to insert a new record.");
     }
 
+    @Override
+    public int patchExisting(long actorId, long id, ObjectNode changes) {
+        throw new UnsupportedOperationException("History records cannot be updated. Use the insertNew method to insert a new record.");
+    }
+
     /**
      * Special logic class that works with a view instead of the raw table. The view provides useful label information for rows which, in the table, are simply FKs.
      */
@@ -68,6 +315,110 @@ public class HistoryLogic extends WriteLogic<DataHistoryRecord, DataHistory, net
         public DataHistoryWithLabelsLogic(ObjectMapper objectMapper, DSLContext jooq) {
             super(objectMapper, jooq, DataHistoryWithLabels.class, DATA_HISTORY_WITH_LABELS, DATA_HISTORY_WITH_LABELS.ID);
         }
+
+        @Override
+        public Optional<DataHistoryWithLabels> fetchById(Long id) {
+            return super.fetchById(id).map(entry -> reconstruct(List.of(entry)).get(0));
+        }
+
+        @Override
+        public ListWithCount<DataHistoryWithLabels> fetchByCriteria(boolean exactCriteria, Map<String, String> searchCriteria, Map<String, SearchRange> searchRanges, String sortColumn, Boolean sortAscending, Integer offset, Integer max, String continuationToken, CountMode countMode, boolean rankBySimilarity) {
+            var page = super.fetchByCriteria(exactCriteria, searchCriteria, searchRanges, sortColumn, sortAscending, offset, max, continuationToken, countMode, rankBySimilarity);
+            return new ListWithCount<>(reconstruct(page.list()), page.count(), page.countMode(), page.hasMore(), page.continuationToken());
+        }
+
+        /**
+         * Rebuilds the full record before and after each update recorded as a delta, by applying the deltas recorded
+         * since the record's latest checkpoint preceding them to it, or since its first entry when there is none. The
+         * checkpoints, then the entries about the records concerned, are read in a query each, whatever the number of
+         * entries given. Entries rebuilt are returned as snapshots, and other entries as they are, including updates
+         * no snapshot of the record precedes.
+         *
+         * @param entries the entries to rebuild.
+         * @return the entries, in the same order.
+         */
+        public List<DataHistoryWithLabels> reconstruct(List<DataHistoryWithLabels> entries) {
+            var deltas = entries.stream()
+                    .filter(entry -> entry.getDataFormat() == HistoryDataFormat.DELTA && entry.getRecordId() != null)
+                    .toList();
+            if (deltas.isEmpty()) {
+                return entries;
+            }
+            Set<Long> wanted = deltas.stream().map(DataHistoryWithLabels::getId).collect(Collectors.toSet());
+            Map<RecordKey, Long> earliestWanted = new HashMap<>();
+            for (var delta : deltas) {
+                earliestWanted.merge(new RecordKey(delta.getTableSource(), delta.getRecordId()), delta.getId(), Math::min);
+            }
+            var checkpoints = jooq
+                    .selectDistinct(DATA_HISTORY_CHECKPOINT.TABLE_SOURCE, DATA_HISTORY_CHECKPOINT.RECORD_ID, DATA_HISTORY_CHECKPOINT.HISTORY_ID, DATA_HISTORY_CHECKPOINT.DATA)
+                    .on(DATA_HISTORY_CHECKPOINT.TABLE_SOURCE, DATA_HISTORY_CHECKPOINT.RECORD_ID)
+                    .from(DATA_HISTORY_CHECKPOINT)
+                    .where(DSL.or(earliestWanted.entrySet().stream()
+                            .map(earliest -> DATA_HISTORY_CHECKPOINT.TABLE_SOURCE.eq(earliest.getKey().tableSource())
+                                    .and(DATA_HISTORY_CHECKPOINT.RECORD_ID.eq(earliest.getKey().recordId()))
+                                    .and(DATA_HISTORY_CHECKPOINT.HISTORY_ID.lt(earliest.getValue())))
+                            .toList()))
+                    .orderBy(DATA_HISTORY_CHECKPOINT.TABLE_SOURCE, DATA_HISTORY_CHECKPOINT.RECORD_ID, DATA_HISTORY_CHECKPOINT.HISTORY_ID.desc())
+                    .fetch();
+            Map<RecordKey, ObjectNode> records = new HashMap<>();
+            Map<RecordKey, Long> replayedAfter = new HashMap<>();
+            for (var checkpoint : checkpoints) {
+                RecordKey recordKey = new RecordKey(checkpoint.value1(), checkpoint.value2());
+                records.put(recordKey, (ObjectNode) HistoryLogic.readTree(getObjectMapper(), checkpoint.value4().data()));
+                replayedAfter.put(recordKey, checkpoint.value3());
+            }
+            var recordedEntries = jooq
+                    .select(DATA_HISTORY.ID, DATA_HISTORY.TABLE_SOURCE, DATA_HISTORY.RECORD_ID, DATA_HISTORY.ACTION_NAME, DATA_HISTORY.DATA_FORMAT, DATA_HISTORY.NEW_DATA)
+                    .from(DATA_HISTORY)
+                    .where(DSL.or(earliestWanted.keySet().stream()
+                            .map(recordKey -> DATA_HISTORY.TABLE_SOURCE.eq(recordKey.tableSource())
+                                    .and(DATA_HISTORY.RECORD_ID.eq(recordKey.recordId()))
+                                    .and(DATA_HISTORY.ID.gt(replayedAfter.getOrDefault(recordKey, 0L))))
+                            .toList()))
+                    .and(DATA_HISTORY.ID.le(Collections.max(wanted)))
+                    .orderBy(DATA_HISTORY.ID)
+                    .fetch();
+            Map<Long, Views> views = new HashMap<>();
+            for (var recorded : recordedEntries) {
+                RecordKey recordKey = new RecordKey(recorded.value2(), recorded.value3());
+                if (recorded.value4() == DataHistoryType.DELETED) {
+                    records.remove(recordKey);
+                } else if (recorded.value5() == HistoryDataFormat.SNAPSHOT) {
+                    ObjectNode snapshot = (ObjectNode) readTree(recorded.value6());
+                    snapshot.put(DATA_HISTORY.ID.getName(), recorded.value3());
+                    records.put(recordKey, snapshot);
+                } else if (records.containsKey(recordKey)) {
+                    ObjectNode before = records.get(recordKey);
+                    ObjectNode after = before.deepCopy();
+                    JsonPatch.apply(after, readTree(recorded.value6()));
+                    records.put(recordKey, after);
+                    if (wanted.contains(recorded.value1())) {
+                        views.put(recorded.value1(), new Views(before, after));
+                    }
+                }
+            }
+            return entries.stream().map(entry -> {
+                var view = views.get(entry.getId());
+                if (view == null) {
+                    return entry;
+                }
+                var rebuilt = jooq.newRecord(DATA_HISTORY_WITH_LABELS, entry);
+                rebuilt.setDataFormat(HistoryDataFormat.SNAPSHOT);
+                rebuilt.setOldData(JSON.json(view.before().toString()));
+                rebuilt.setNewData(JSON.json(view.after().toString()));
+                return rebuilt.into(DataHistoryWithLabels.class);
+            }).toList();
+        }
+
+        private JsonNode readTree(JSON json) {
+            return HistoryLogic.readTree(getObjectMapper(), json.data());
+        }
+
+        private record RecordKey(TableRef tableSource, long recordId) {
+        }
+
+        private record Views(ObjectNode before, ObjectNode after) {
+        }
     }
 
     @Override
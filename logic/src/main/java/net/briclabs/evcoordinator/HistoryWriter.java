@@ -0,0 +1,260 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.generated.enums.DataHistoryType;
+import net.briclabs.evcoordinator.generated.enums.HistoryDataFormat;
+import net.briclabs.evcoordinator.generated.enums.TableRef;
+import net.briclabs.evcoordinator.generated.tables.pojos.DataHistory;
+import org.jooq.DSLContext;
+import org.jooq.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Writes the history entries recorded by the write logic.
+ * <p>
+ * In {@link Mode#DURABLE} mode, each entry is written right away through the caller's {@code DSLContext}, so it's
+ * part of the caller's transaction and committed along with the change it records. This is the default.
+ * <p>
+ * In {@link Mode#RELAXED} mode, entries are queued and a background thread writes them as multi-row inserts, once
+ * either the batch size is reached or the flush interval has passed since the first queued entry. The records are only
+ * serialized when they're written, off the caller's thread. Entries still queued when the application stops abruptly
+ * are lost, and should the queue fill up, entries are written right away as in durable mode.
+ */
+public final class HistoryWriter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HistoryWriter.class);
+
+    private static volatile HistoryWriter installed = durable();
+
+    /**
+     * How history entries are written.
+     */
+    public enum Mode {
+        DURABLE,
+        RELAXED
+    }
+
+    private final Mode mode;
+    private final HistoryLogic historyLogic;
+    private final BlockingQueue<PendingEntry> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Thread flusher;
+    private volatile boolean running;
+
+    private final LongAdder entriesWritten = new LongAdder();
+    private final LongAdder entriesFailed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+
+    private HistoryWriter(Mode mode, HistoryLogic historyLogic, int capacity, int batchSize, Duration flushInterval, ThreadFactory threadFactory) {
+        this.mode = mode;
+        this.historyLogic = historyLogic;
+        this.queue = mode == Mode.RELAXED ? new LinkedBlockingQueue<>(capacity) : null;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        if (mode == Mode.RELAXED) {
+            this.running = true;
+            this.flusher = threadFactory.newThread(this::drain);
+            this.flusher.start();
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Creates a writer which writes each entry right away, in the caller's transaction.
+     *
+     * @return the writer.
+     */
+    public static HistoryWriter durable() {
+        return new HistoryWriter(Mode.DURABLE, null, 0, 1, Duration.ZERO, null);
+    }
+
+    /**
+     * Creates a writer which queues entries and writes them in batches in the background.
+     *
+     * @param objectMapper the object mapper used to serialize the records.
+     * @param jooq the DSL context through which the batches are written, outside any caller's transaction.
+     * @param capacity the number of entries which can be queued before callers write their entries themselves.
+     * @param batchSize the maximum number of entries written at once.
+     * @param flushInterval how long the first queued entry waits for others to join its batch.
+     * @param threadFactory creates the thread writing the batches.
+     * @return the writer, already running.
+     */
+    public static HistoryWriter relaxed(ObjectMapper objectMapper, DSLContext jooq, int capacity, int batchSize, Duration flushInterval, ThreadFactory threadFactory) {
+        return new HistoryWriter(Mode.RELAXED, new HistoryLogic(objectMapper, jooq), capacity, batchSize, flushInterval, threadFactory);
+    }
+
+    /**
+     * Makes the given writer the one through which every history entry is written.
+     *
+     * @param writer the writer to use.
+     */
+    public static void install(HistoryWriter writer) {
+        installed = writer;
+    }
+
+    static HistoryWriter installed() {
+        return installed;
+    }
+
+    boolean isDurable() {
+        return mode == Mode.DURABLE;
+    }
+
+    /**
+     * Writes the given entry according to this writer's mode.
+     *
+     * @param callerHistoryLogic the history logic of the caller, bound to the caller's {@code DSLContext}.
+     * @param entry the entry to write.
+     */
+    void write(HistoryLogic callerHistoryLogic, PendingEntry entry) {
+        if (mode == Mode.RELAXED && running && queue.offer(entry)) {
+            return;
+        }
+        callerHistoryLogic.insertNew(entry.actorId(), entry.toDataHistory());
+    }
+
+    /**
+     * Writes the given entries according to this writer's mode. In durable mode, or for whichever entries don't fit
+     * in the queue, they're written as a single multi-row insert.
+     *
+     * @param callerHistoryLogic the history logic of the caller, bound to the caller's {@code DSLContext}.
+     * @param entries the entries to write.
+     */
+    void writeAll(HistoryLogic callerHistoryLogic, List<PendingEntry> entries) {
+        List<DataHistory> toInsert = new ArrayList<>(entries.size());
+        for (PendingEntry entry : entries) {
+            if (mode != Mode.RELAXED || !running || !queue.offer(entry)) {
+                toInsert.add(entry.toDataHistory());
+            }
+        }
+        if (!toInsert.isEmpty()) {
+            callerHistoryLogic.insertAll(toInsert);
+        }
+    }
+
+    private void drain() {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEntry first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingEntry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+                queue.drainTo(batch);
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingEntry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            historyLogic.insertAll(batch.stream().map(PendingEntry::toDataHistory).toList());
+            entriesWritten.add(batch.size());
+        } catch (RuntimeException e) {
+            entriesFailed.add(batch.size());
+            LOGGER.error("Failed to write {} history entries.", batch.size(), e);
+        }
+        long elapsed = System.nanoTime() - start;
+        flushes.increment();
+        totalFlushNanos.add(elapsed);
+        lastFlushNanos.set(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /**
+     * Stops accepting entries, and waits for the queued ones to be written.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (flusher != null) {
+            running = false;
+            flusher.join(flushInterval.multipliedBy(2).plusSeconds(10).toMillis());
+        }
+    }
+
+    /**
+     * Retrieves the metrics of this writer since it started.
+     *
+     * @return the metrics.
+     */
+    public Statistics getStatistics() {
+        long flushCount = flushes.sum();
+        return new Statistics(
+                mode,
+                queue == null ? 0 : queue.size(),
+                entriesWritten.sum(),
+                entriesFailed.sum(),
+                flushCount,
+                TimeUnit.NANOSECONDS.toMillis(lastFlushNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxFlushNanos.get()),
+                flushCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalFlushNanos.sum() / flushCount));
+    }
+
+    /**
+     * Retrieves the metrics of the writer through which history entries are currently written.
+     *
+     * @return the metrics.
+     */
+    public static Statistics statistics() {
+        return installed.getStatistics();
+    }
+
+    /**
+     * A history entry waiting to be written. The records are only serialized once it's written.
+     */
+    record PendingEntry(long actorId, DataHistoryType actionName, TableRef tableSource, long recordId, HistoryDataFormat dataFormat, Supplier<JSON> newData, Supplier<JSON> oldData) {
+
+        DataHistory toDataHistory() {
+            return new DataHistory(null, actorId, actionName, tableSource, newData.get(), oldData.get(), null, recordId, dataFormat);
+        }
+    }
+
+    /**
+     * The metrics of a writer.
+     *
+     * @param mode how the writer writes entries.
+     * @param queueDepth how many entries are waiting to be written.
+     * @param entriesWritten how many entries were written in the background.
+     * @param entriesFailed how many entries failed to be written in the background.
+     * @param flushes how many batches were written.
+     * @param lastFlushMillis how long writing the last batch took.
+     * @param maxFlushMillis how long writing the slowest batch took.
+     * @param averageFlushMillis how long writing a batch took on average.
+     */
+    public record Statistics(Mode mode, int queueDepth, long entriesWritten, long entriesFailed, long flushes, long lastFlushMillis, long maxFlushMillis, long averageFlushMillis) {
+    }
+}
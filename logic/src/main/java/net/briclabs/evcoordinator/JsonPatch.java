@@ -0,0 +1,64 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builds and applies the JSON Patch operations in which history records the changes to the top-level fields of a record.
+ * Only the "add", "replace", and "remove" operations are supported, which are the only ones the history holds.
+ */
+final class JsonPatch {
+
+    private JsonPatch() {
+    }
+
+    /**
+     * Builds the "replace" operations turning one document into another, for the top-level fields which differ.
+     *
+     * @param from the document before the change.
+     * @param to the document after the change.
+     * @param ignoredProperty a property left out of the operations, such as the ID.
+     * @return the operations, ordered by property.
+     */
+    static ArrayNode replaceOperations(ObjectNode from, ObjectNode to, String ignoredProperty) {
+        ArrayNode operations = JsonNodeFactory.instance.arrayNode();
+        for (Iterator<Map.Entry<String, JsonNode>> properties = to.fields(); properties.hasNext(); ) {
+            var property = properties.next();
+            if (!property.getKey().equals(ignoredProperty) && !Objects.equals(from.get(property.getKey()), property.getValue())) {
+                operations.addObject()
+                        .put("op", "replace")
+                        .put("path", "/" + property.getKey().replace("~", "~0").replace("/", "~1"))
+                        .set("value", property.getValue());
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Applies the given operations to the given document.
+     *
+     * @param document the document to change in place.
+     * @param operations the operations to apply.
+     * @throws IllegalArgumentException if an operation is not supported, or doesn't target a top-level field.
+     */
+    static void apply(ObjectNode document, JsonNode operations) {
+        for (JsonNode operation : operations) {
+            String path = operation.path("path").asText();
+            if (!path.startsWith("/") || path.indexOf('/', 1) >= 0) {
+                throw new IllegalArgumentException("Path '%s' does not target a top-level field.".formatted(path));
+            }
+            String property = path.substring(1).replace("~1", "/").replace("~0", "~");
+            switch (operation.path("op").asText()) {
+                case "add", "replace" -> document.set(property, operation.get("value"));
+                case "remove" -> document.remove(property);
+                default -> throw new IllegalArgumentException("Operation '%s' is not supported.".formatted(operation.path("op").asText()));
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package net.briclabs.evcoordinator;
+
+import org.jooq.TransactionContext;
+import org.jooq.TransactionListener;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Holds an immutable snapshot of the result of a "latest" lookup, so reads of rarely changing data don't go to the
+ * database each time.
+ * <p>
+ * Writes to the data behind a lookup invalidate its snapshot, and the next read loads a fresh one. A write made within
+ * a transaction invalidates once the transaction commits, as a snapshot loaded before then would still hold what was
+ * there before the write. That takes the {@linkplain #transactionListener() transaction listener} to be installed on
+ * the {@code DSLContext}; without it, a write invalidates right away, and a snapshot is never served once it's older
+ * than the configured max staleness, which bounds how long a snapshot loaded before the commit can linger.
+ *
+ * @param <V> the type of the cached value.
+ */
+public final class LatestSnapshotCache<V> {
+
+    private static final Map<String, LatestSnapshotCache<?>> CACHES = new ConcurrentHashMap<>();
+
+    /**
+     * The invalidations made within each transaction open on the current thread, innermost first.
+     */
+    private static final ThreadLocal<Deque<PendingTransaction>> PENDING_INVALIDATIONS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static volatile Duration maxStaleness = Duration.ofMinutes(5);
+
+    private final String name;
+    private final AtomicReference<Snapshot<V>> current = new AtomicReference<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final Runnable invalidation = this::invalidateNow;
+
+    private LatestSnapshotCache(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates a cache and registers it under the given name, so its statistics can be reported.
+     *
+     * @param name the name of the cache.
+     * @return the new cache.
+     */
+    public static <V> LatestSnapshotCache<V> create(String name) {
+        var cache = new LatestSnapshotCache<V>(name);
+        CACHES.put(name, cache);
+        return cache;
+    }
+
+    /**
+     * Sets how long a snapshot may be served after it was loaded, for every cache.
+     *
+     * @param maxStaleness the maximum age of a snapshot. Zero effectively disables caching.
+     */
+    public static void setMaxStaleness(Duration maxStaleness) {
+        LatestSnapshotCache.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * Creates the listener holding back invalidations made within a jOOQ transaction until it commits, which is to be
+     * installed on the {@code DSLContext} the writes go through. Invalidations made within a nested transaction are
+     * passed on to the enclosing one once it commits, and dropped should it roll back.
+     *
+     * @return the transaction listener.
+     */
+    public static TransactionListener transactionListener() {
+        return new TransactionListener() {
+            @Override
+            public void beginEnd(TransactionContext ctx) {
+                PENDING_INVALIDATIONS.get().push(new PendingTransaction(ctx, new LinkedHashSet<>()));
+            }
+
+            @Override
+            public void commitEnd(TransactionContext ctx) {
+                end(ctx).ifPresent(invalidated -> {
+                    var transactions = PENDING_INVALIDATIONS.get();
+                    if (transactions.isEmpty()) {
+                        PENDING_INVALIDATIONS.remove();
+                        invalidated.forEach(Runnable::run);
+                    } else {
+                        transactions.peek().invalidated().addAll(invalidated);
+                    }
+                });
+            }
+
+            @Override
+            public void rollbackEnd(TransactionContext ctx) {
+                end(ctx);
+                if (PENDING_INVALIDATIONS.get().isEmpty()) {
+                    PENDING_INVALIDATIONS.remove();
+                }
+            }
+
+            /**
+             * Stops holding back invalidations for the given transaction. It's looked up rather than popped, as a
+             * transaction whose commit fails is rolled back after its commit ended.
+             */
+            private Optional<Set<Runnable>> end(TransactionContext ctx) {
+                for (var transactions = PENDING_INVALIDATIONS.get().iterator(); transactions.hasNext(); ) {
+                    var transaction = transactions.next();
+                    if (transaction.context() == ctx) {
+                        transactions.remove();
+                        return Optional.of(transaction.invalidated());
+                    }
+                }
+                return Optional.empty();
+            }
+        };
+    }
+
+    /**
+     * Retrieves the statistics of every registered cache.
+     *
+     * @return the statistics of each cache.
+     */
+    public static Collection<Statistics> statistics() {
+        return CACHES.values().stream().map(LatestSnapshotCache::getStatistics).toList();
+    }
+
+    /**
+     * Retrieves the current snapshot, loading a fresh one if there is none, it was invalidated, or it's too old.
+     *
+     * @param loader loads the value from the database.
+     * @param eTagger computes the entity tag of a loaded value, which is kept with the snapshot.
+     * @return the current snapshot.
+     */
+    public Snapshot<V> get(Supplier<Optional<V>> loader, Function<V, String> eTagger) {
+        Snapshot<V> snapshot = servable();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Captured before loading, so a snapshot loaded while a write invalidates is already outdated once published.
+        long loadingGeneration = generation.get();
+        return publish(loader.get(), eTagger, loadingGeneration);
+    }
+
+    /**
+     * Retrieves the current snapshot as {@link #get(Supplier, Function)} does, but without blocking while a fresh one
+     * is loaded.
+     *
+     * @param loader loads the value from the database, once subscribed to.
+     * @param eTagger computes the entity tag of a loaded value, which is kept with the snapshot.
+     * @return a {@code Mono} emitting the current snapshot.
+     */
+    public Mono<Snapshot<V>> getReactively(Supplier<Mono<Optional<V>>> loader, Function<V, String> eTagger) {
+        return Mono.defer(() -> {
+            Snapshot<V> snapshot = servable();
+            if (snapshot != null) {
+                return Mono.just(snapshot);
+            }
+            long loadingGeneration = generation.get();
+            return loader.get().map(value -> publish(value, eTagger, loadingGeneration));
+        });
+    }
+
+    /**
+     * Retrieves the current snapshot if it may still be served, counting the read as a hit or a miss.
+     *
+     * @return the current snapshot, or {@code null} if a fresh one has to be loaded.
+     */
+    private Snapshot<V> servable() {
+        Snapshot<V> snapshot = current.get();
+        if (snapshot != null && snapshot.generation() == generation.get() && snapshot.loadedAt().plus(maxStaleness).isAfter(Instant.now())) {
+            hits.increment();
+            return snapshot;
+        }
+        misses.increment();
+        return null;
+    }
+
+    private Snapshot<V> publish(Optional<V> value, Function<V, String> eTagger, long loadingGeneration) {
+        Snapshot<V> loaded = new Snapshot<>(value, value.map(eTagger).orElse(null), loadingGeneration, Instant.now());
+        current.accumulateAndGet(loaded, (previous, next) -> previous != null && previous.generation() > next.generation() ? previous : next);
+        return loaded;
+    }
+
+    /**
+     * Marks the current snapshot as outdated, so the next read loads a fresh one. Within a transaction, this happens
+     * once it commits.
+     */
+    public void invalidate() {
+        invalidateOnCommit(invalidation);
+    }
+
+    /**
+     * Runs the given invalidation of cached data once the transaction open on the current thread commits, or right
+     * away outside a transaction. It's dropped should the transaction roll back.
+     *
+     * @param invalidation the invalidation to run.
+     */
+    static void invalidateOnCommit(Runnable invalidation) {
+        var transactions = PENDING_INVALIDATIONS.get();
+        if (transactions.isEmpty()) {
+            PENDING_INVALIDATIONS.remove();
+            invalidation.run();
+        } else {
+            transactions.peek().invalidated().add(invalidation);
+        }
+    }
+
+    private void invalidateNow() {
+        generation.incrementAndGet();
+        invalidations.increment();
+    }
+
+    /**
+     * Retrieves the statistics of this cache.
+     *
+     * @return the statistics.
+     */
+    public Statistics getStatistics() {
+        Snapshot<V> snapshot = current.get();
+        return new Statistics(name, hits.sum(), misses.sum(), invalidations.sum(), snapshot == null ? null : snapshot.loadedAt());
+    }
+
+    /**
+     * A transaction open on the current thread, with the invalidations made within it.
+     *
+     * @param context the context of the transaction.
+     * @param invalidated the invalidations to run once it commits.
+     */
+    private record PendingTransaction(TransactionContext context, Set<Runnable> invalidated) {
+    }
+
+    /**
+     * An immutable result of a lookup.
+     *
+     * @param value the looked up value, if any.
+     * @param eTag the entity tag of the value, or {@code null} if there is no value.
+     * @param generation the invalidation generation under which the value was loaded.
+     * @param loadedAt when the value was loaded.
+     */
+    public record Snapshot<V>(Optional<V> value, String eTag, long generation, Instant loadedAt) {
+    }
+
+    /**
+     * The usage of a cache since startup.
+     *
+     * @param name the name of the cache.
+     * @param hits how many reads were served from the snapshot.
+     * @param misses how many reads loaded a fresh snapshot.
+     * @param invalidations how many writes invalidated the snapshot.
+     * @param loadedAt when the current snapshot was loaded, or {@code null} if none was yet.
+     */
+    public record Statistics(String name, long hits, long misses, long invalidations, Instant loadedAt) {
+    }
+}
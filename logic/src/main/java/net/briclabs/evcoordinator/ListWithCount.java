@@ -1,6 +1,22 @@
 package net.briclabs.evcoordinator;
 
+import net.briclabs.evcoordinator.model.CountMode;
+
 import java.io.Serializable;
 import java.util.List;
 
-public record ListWithCount<P extends Serializable> (List<P> list, int count) {}
+/**
+ * A page of results along with the number of records matching the search.
+ *
+ * @param list the records in this page.
+ * @param count the number of records matching the search, as determined by the count mode; {@link Logic#UNKNOWN_COUNT} if not counted.
+ * @param countMode how the count was determined, so consumers can tell an exact count from an estimate.
+ * @param hasMore whether another page follows this one.
+ * @param continuationToken the token to request the page following this one, or {@code null} if there are no further pages.
+ */
+public record ListWithCount<P extends Serializable> (List<P> list, int count, CountMode countMode, boolean hasMore, String continuationToken) {
+
+    public ListWithCount(List<P> list, int count) {
+        this(list, count, CountMode.EXACT, false, null);
+    }
+}
@@ -1,24 +1,54 @@
 package net.briclabs.evcoordinator;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.model.ContinuationToken;
+import net.briclabs.evcoordinator.model.CountMode;
+import net.briclabs.evcoordinator.model.ExportFormat;
+import net.briclabs.evcoordinator.model.SearchRange;
+import org.apache.commons.text.StringEscapeUtils;
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.EnumType;
 import org.jooq.Field;
 import org.jooq.JSON;
 import org.jooq.JSONB;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.ResultQuery;
+import org.jooq.SortField;
 import org.jooq.TableField;
+import org.jooq.conf.ParamType;
+import org.jooq.exception.DataTypeException;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.jooq.impl.TableImpl;
 import org.jooq.impl.TableRecordImpl;
 import org.jooq.tools.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public abstract class Logic<R extends TableRecordImpl<R>, P extends Serializable, T extends TableImpl<R>> {
@@ -26,11 +56,35 @@ public abstract class Logic<R extends TableRecordImpl<R>, P extends Serializable
 
     public static final String GENERAL_MESSAGE_KEY = "GENERAL_MESSAGE";
 
+    /**
+     * The count reported when the count mode doesn't determine one.
+     */
+    public static final int UNKNOWN_COUNT = -1;
+
+    /**
+     * The number of rows fetched from the database at a time while exporting.
+     */
+    static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final Field<Integer> TOTAL_COUNT = DSL.count().over().as("total_count_");
+
+    /**
+     * The maximum number of distinct search query shapes whose SQL is kept, so arbitrary criteria can't grow it unbounded.
+     */
+    private static final int MAX_RENDERED_QUERIES = 1024;
+
+    private static final Map<QueryShape, RenderedQuery> RENDERED_QUERIES = new ConcurrentHashMap<>();
+
+    private static final char LIKE_ESCAPE = '!';
+
+    private static final int ETAG_HASH_BYTES = 16;
+
     private final ObjectMapper objectMapper;
     final DSLContext jooq;
     private final Class<P> recordType;
     private final T table;
     private final TableField<R, Long> idColumn;
+    private final FieldResolver fieldResolver;
 
 
     public Logic(ObjectMapper objectMapper, DSLContext jooq, Class<P> recordType, T table, TableField<R, Long> idColumn
@@ -40,6 +94,7 @@ public abstract class Logic<R extends TableRecordImpl<R>, P extends Serializable
         this.recordType = recordType;
         this.table = table;
         this.idColumn = idColumn;
+        this.fieldResolver = FieldResolver.of(table);
     }
 
     /**
@@ -92,6 +147,20 @@ public abstract class Logic<R extends TableRecordImpl<R>, P extends Serializable
         return recordType;
     }
 
+    /**
+     * Fetches the first record of a query without blocking, mapped into the POJO type of this logic. The logic has to
+     * have been created with a {@code DSLContext} connected through R2DBC.
+     *
+     * @param query the query to fetch the record with.
+     * @return a {@code Mono} emitting an {@code Optional} containing the fetched record, or an empty {@code Optional}
+     *         if the query found none.
+     */
+    Mono<Optional<P>> fetchOptionalReactively(ResultQuery<R> query) {
+        return Mono.from(query)
+                .map(record -> Optional.of(record.into(getRecordType())))
+                .defaultIfEmpty(Optional.empty());
+    }
+
     /**
      * Fetches a record from the database based on its ID.
      *
@@ -105,6 +174,23 @@ public abstract class Logic<R extends TableRecordImpl<R>, P extends Serializable
                 .fetchOptionalInto(getRecordType());
     }
 
+    /**
+     * Computes an entity tag for the given POJO from the values of its fields, so it changes whenever any of them do.
+     * This avoids serializing the POJO just to tell whether a client's copy is still current.
+     *
+     * @param pojo the POJO to tag.
+     * @return the entity tag, without quotes.
+     */
+    public String computeETag(P pojo) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(Arrays.deepToString(jooq.newRecord(getTable(), pojo).intoArray()).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, ETAG_HASH_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
     /**
      * Fetches records from the database using the given criteria.
      *
@@ -117,33 +203,298 @@ public abstract class Logic<R extends TableRecordImpl<R>, P extends Serializable
      * @return A list of matching records.
      */
     public ListWithCount<P> fetchByCriteria(boolean exactCriteria, Map<String, String> searchCriteria, String sortColumn, Boolean sortAscending, Integer offset, Integer max) {
-        List<Condition> conditions = parseCriteriaIntoConditions(exactCriteria, searchCriteria);
-        Condition whereClause = buildWhereClause(exactCriteria, conditions);
+        return fetchByCriteria(exactCriteria, searchCriteria, sortColumn, sortAscending, offset, max, null, CountMode.EXACT, false);
+    }
 
+    /**
+     * Fetches records from the database using the given criteria, optionally continuing from a previous page.
+     * <p>
+     * When a continuation token is provided, the offset is ignored and the page starts right after the last row
+     * of the page which produced the token. This seeks on the sort column (with the ID as a tie-breaker) instead
+     * of skipping rows, so every page costs the same as the first and rows inserted while paging don't shift the
+     * pages that follow.
+     * <p>
+     * The count mode decides how the total is determined. {@link CountMode#EXACT} counts in the same statement as
+     * the page where possible, {@link CountMode#ESTIMATED} asks the planner, and {@link CountMode#HAS_MORE} and
+     * {@link CountMode#NONE} skip counting altogether.
+     * <p>
+     * Non-exact criteria on text fields match substrings case-insensitively, which the fields' trigram indexes serve.
+     * Ranking by similarity puts the records most resembling those criteria first, ahead of the requested sort. Since
+     * the rank isn't a stable position to seek from, ranked searches page by offset and don't return a continuation token.
+     *
+     * @param exactCriteria     If true, conditions are combined with AND; otherwise, OR is used.
+     * @param searchCriteria    A map of field names to values for filtering results.
+     * @param sortColumn        The name of the column to sort by (optional).
+     * @param sortAscending     Whether to sort in ascending order (optional, defaults to false).
+     * @param offset            The number of records to skip (optional, defaults to 0).
+     * @param max               The maximum number of records to return (optional, defaults to all).
+     * @param continuationToken The token returned with the previous page (optional).
+     * @param countMode         How the total number of matching records is determined (optional, defaults to exact).
+     * @param rankBySimilarity  Whether to rank records by their similarity to non-exact text criteria.
+     * @return A list of matching records, along with a token for the next page when more records may follow.
+     * @throws IllegalArgumentException if the continuation token is malformed, doesn't match the requested sort, or is used with ranking.
+     */
+    public ListWithCount<P> fetchByCriteria(boolean exactCriteria, Map<String, String> searchCriteria, String sortColumn, Boolean sortAscending, Integer offset, Integer max, String continuationToken, CountMode countMode, boolean rankBySimilarity) {
+        return fetchByCriteria(exactCriteria, searchCriteria, Map.of(), sortColumn, sortAscending, offset, max, continuationToken, countMode, rankBySimilarity);
+    }
+
+    /**
+     * Fetches records from the database using the given criteria, restricted to the given ranges, optionally continuing
+     * from a previous page. The ranges always apply, whether the criteria are exact or not. As they compare the columns
+     * themselves, they're what lets the database skip whole partitions of a table partitioned on one of them.
+     *
+     * @param exactCriteria     If true, conditions are combined with AND; otherwise, OR is used.
+     * @param searchCriteria    A map of field names to values for filtering results.
+     * @param searchRanges      A map of field names to the ranges their values must fall within (optional).
+     * @param sortColumn        The name of the column to sort by (optional).
+     * @param sortAscending     Whether to sort in ascending order (optional, defaults to false).
+     * @param offset            The number of records to skip (optional, defaults to 0).
+     * @param max               The maximum number of records to return (optional, defaults to all).
+     * @param continuationToken The token returned with the previous page (optional).
+     * @param countMode         How the total number of matching records is determined (optional, defaults to exact).
+     * @param rankBySimilarity  Whether to rank records by their similarity to non-exact text criteria.
+     * @return A list of matching records, along with a token for the next page when more records may follow.
+     * @throws IllegalArgumentException if the continuation token is malformed, doesn't match the requested sort, or is
+     *                                  used with ranking, or if a range bound isn't a valid value of its field.
+     */
+    public ListWithCount<P> fetchByCriteria(boolean exactCriteria, Map<String, String> searchCriteria, Map<String, SearchRange> searchRanges, String sortColumn, Boolean sortAscending, Integer offset, Integer max, String continuationToken, CountMode countMode, boolean rankBySimilarity) {
+        SortedMap<String, Condition> conditions = parseCriteriaIntoConditions(exactCriteria, searchCriteria);
+        SortedMap<String, Condition> rangeConditions = parseRangesIntoConditions(searchRanges);
+        Condition whereClause = buildWhereClause(exactCriteria, conditions.values()).and(DSL.and(rangeConditions.values()));
+        Field<?> sortField = resolveField(sortColumn, getIdColumn());
+        boolean ascending = Boolean.TRUE.equals(sortAscending);
+        Optional<Field<Float>> similarityScore = rankBySimilarity && !exactCriteria ? buildSimilarityScore(searchCriteria) : Optional.empty();
+        if (similarityScore.isPresent() && !StringUtils.isBlank(continuationToken)) {
+            throw new IllegalArgumentException("Continuation token '%s' cannot be used when ranking by similarity.".formatted(continuationToken));
+        }
+        ContinuationToken token = StringUtils.isBlank(continuationToken) ? null : decodeContinuationToken(continuationToken, sortField, ascending);
+        boolean continuing = token != null;
+        CountMode resolvedCountMode = countMode == null ? CountMode.EXACT : countMode;
+        // The windowed count only covers the rows left after seeking, so it can't be used when continuing.
+        boolean countInPage = resolvedCountMode == CountMode.EXACT && !continuing;
+        // One row beyond the page tells whether another page follows without counting.
+        int rowsToFetch = max > 0 && resolvedCountMode != CountMode.NONE ? max + 1 : max;
+
+        List<Field<?>> selectedFields = new ArrayList<>(Arrays.asList(getTable().fields()));
+        if (countInPage) {
+            selectedFields.add(TOTAL_COUNT);
+        }
         var query = jooq
-                .selectFrom(getTable())
+                .select(selectedFields)
+                .from(getTable())
                 .where(whereClause)
-                .orderBy(sortAscending
-                        ? resolveField(sortColumn, getIdColumn()).asc()
-                        : resolveField(sortColumn, getIdColumn()).desc());
-        var queryWithLimit = max > 0 ? query.limit(offset, max) : query.offset(offset);
-        LOGGER.info("Query SQL: {}", queryWithLimit.getQuery().getSQL());
-        int count = jooq
+                .and(continuing ? buildSeekCondition(sortField, token) : DSL.noCondition())
+                .orderBy(buildOrdering(similarityScore, sortField, ascending));
+        var queryWithLimit = rowsToFetch > 0
+                ? (continuing ? query.limit(rowsToFetch) : query.limit(offset, rowsToFetch))
+                : (continuing ? query : query.offset(offset));
+        var select = queryWithLimit.getQuery();
+        // An offset of zero isn't rendered at all, so it's a shape of its own.
+        boolean skipping = !continuing && offset != null && offset > 0;
+        var shape = new QueryShape(
+                getTable().getName(),
+                List.copyOf(conditions.keySet()),
+                List.copyOf(rangeConditions.keySet()),
+                exactCriteria,
+                sortField.getName(),
+                ascending,
+                token == null ? "" : isIdColumn(sortField) ? "id" : token.sortValue() == null ? "null" : "value",
+                countInPage,
+                similarityScore.isPresent(),
+                (rowsToFetch > 0 ? "limit" : "") + (skipping ? "-offset" : ""));
+        List<Object> bindValues = select.getBindValues();
+        Result<Record> rows = jooq
+                .resultQuery(renderOnce(shape, select, bindValues.size()), bindValues.toArray())
+                .coerce(selectedFields)
+                .fetch();
+
+        boolean hasMore = max > 0 && rows.size() > max;
+        List<Record> page = hasMore ? rows.subList(0, max) : rows;
+        int count = switch (resolvedCountMode) {
+            case EXACT -> countInPage && !page.isEmpty() ? page.get(0).get(TOTAL_COUNT) : countExactly(whereClause);
+            case ESTIMATED -> estimateCount(whereClause);
+            case HAS_MORE, NONE -> UNKNOWN_COUNT;
+        };
+        String nextContinuationToken = similarityScore.isEmpty() && max > 0 && page.size() == max && (hasMore || resolvedCountMode == CountMode.NONE)
+                ? encodeContinuationToken(sortField, ascending, page.get(page.size() - 1).into(getTable()))
+                : null;
+        return new ListWithCount<>(
+                page.stream().map(row -> row.into(getTable()).into(getRecordType())).toList(),
+                count,
+                resolvedCountMode,
+                hasMore,
+                nextContinuationToken);
+    }
+
+    /**
+     * Streams every record matching the given criteria to the output stream in the requested format.
+     * <p>
+     * Records are read through a server-side cursor in batches of {@value #EXPORT_FETCH_SIZE}, and each one is written
+     * out as soon as it's read, so memory use stays flat regardless of how many records match. If writing fails, e.g.
+     * because the client disconnected, the cursor is closed and the export stops.
+     *
+     * @param exactCriteria  If true, conditions are combined with AND; otherwise, OR is used.
+     * @param searchCriteria A map of field names to values for filtering results.
+     * @param sortColumn     The name of the column to sort by (optional).
+     * @param sortAscending  Whether to sort in ascending order (optional, defaults to false).
+     * @param format         The format in which to write the records.
+     * @param outputStream   The stream to which the records are written. It is flushed, but not closed.
+     * @throws IOException if writing to the output stream fails.
+     */
+    public void exportByCriteria(boolean exactCriteria, Map<String, String> searchCriteria, String sortColumn, Boolean sortAscending, ExportFormat format, OutputStream outputStream) throws IOException {
+        exportByCriteria(exactCriteria, searchCriteria, Map.of(), sortColumn, sortAscending, format, outputStream);
+    }
+
+    /**
+     * Streams every record matching the given criteria, restricted to the given ranges, to the output stream in the
+     * requested format.
+     *
+     * @param exactCriteria  If true, conditions are combined with AND; otherwise, OR is used.
+     * @param searchCriteria A map of field names to values for filtering results.
+     * @param searchRanges   A map of field names to the ranges their values must fall within (optional).
+     * @param sortColumn     The name of the column to sort by (optional).
+     * @param sortAscending  Whether to sort in ascending order (optional, defaults to false).
+     * @param format         The format in which to write the records.
+     * @param outputStream   The stream to which the records are written. It is flushed, but not closed.
+     * @throws IOException if writing to the output stream fails.
+     * @throws IllegalArgumentException if a range bound isn't a valid value of its field.
+     */
+    public void exportByCriteria(boolean exactCriteria, Map<String, String> searchCriteria, Map<String, SearchRange> searchRanges, String sortColumn, Boolean sortAscending, ExportFormat format, OutputStream outputStream) throws IOException {
+        prepareExport(exactCriteria, searchCriteria, searchRanges, sortColumn, sortAscending).writeTo(format, outputStream);
+    }
+
+    /**
+     * Resolves the query exporting every record matching the given criteria, restricted to the given ranges, without
+     * running it yet. Invalid input is rejected here, before anything is written, so callers streaming the export can
+     * still answer with an error instead.
+     *
+     * @param exactCriteria  If true, conditions are combined with AND; otherwise, OR is used.
+     * @param searchCriteria A map of field names to values for filtering results.
+     * @param searchRanges   A map of field names to the ranges their values must fall within (optional).
+     * @param sortColumn     The name of the column to sort by (optional).
+     * @param sortAscending  Whether to sort in ascending order (optional, defaults to false).
+     * @return the export, which streams the records once written to an output stream.
+     * @throws IllegalArgumentException if a range bound isn't a valid value of its field.
+     */
+    public Export prepareExport(boolean exactCriteria, Map<String, String> searchCriteria, Map<String, SearchRange> searchRanges, String sortColumn, Boolean sortAscending) {
+        Condition whereClause = buildWhereClause(exactCriteria, parseCriteriaIntoConditions(exactCriteria, searchCriteria).values())
+                .and(DSL.and(parseRangesIntoConditions(searchRanges).values()));
+        Field<?> sortField = resolveField(sortColumn, getIdColumn());
+        boolean ascending = Boolean.TRUE.equals(sortAscending);
+        return (format, outputStream) -> export(whereClause, sortField, ascending, format, outputStream);
+    }
+
+    private void export(Condition whereClause, Field<?> sortField, boolean ascending, ExportFormat format, OutputStream outputStream) throws IOException {
+        var writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        try {
+            // The driver only honors the fetch size, rather than buffering the whole result, inside a transaction.
+            jooq.transaction(configuration -> {
+                try (Cursor<R> cursor = configuration.dsl()
+                        .selectFrom(getTable())
+                        .where(whereClause)
+                        .orderBy(buildOrdering(Optional.empty(), sortField, ascending))
+                        .fetchSize(EXPORT_FETCH_SIZE)
+                        .fetchLazy()) {
+                    if (format == ExportFormat.CSV) {
+                        writer.write(Arrays.stream(getTable().fields()).map(Field::getName).collect(Collectors.joining(",")));
+                        writer.newLine();
+                    }
+                    for (R record : cursor) {
+                        writer.write(format == ExportFormat.CSV ? toCsvLine(record) : objectMapper.writeValueAsString(record.into(getRecordType())));
+                        writer.newLine();
+                    }
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * An export whose query is resolved, ready to stream the records it matches.
+     */
+    @FunctionalInterface
+    public interface Export {
+
+        /**
+         * Streams the matching records to the output stream in the requested format, as
+         * {@link #exportByCriteria(boolean, Map, Map, String, Boolean, ExportFormat, OutputStream)} does.
+         *
+         * @param format       The format in which to write the records.
+         * @param outputStream The stream to which the records are written. It is flushed, but not closed.
+         * @throws IOException if writing to the output stream fails.
+         */
+        void writeTo(ExportFormat format, OutputStream outputStream) throws IOException;
+    }
+
+    private static String toCsvLine(Record record) {
+        return Arrays.stream(record.intoArray())
+                .map(value -> StringEscapeUtils.escapeCsv(value instanceof EnumType enumValue ? enumValue.getLiteral() : value == null ? "" : value.toString()))
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Retrieves the SQL for the given query shape, rendering it from the query only the first time the shape is seen.
+     * Later queries of the same shape only need their bind values collected. Should the SQL kept for the shape take a
+     * different number of bind values than the query has, the shape missed something which changes the SQL, so the
+     * query is rendered on its own instead.
+     */
+    private static String renderOnce(QueryShape shape, Query query, int bindCount) {
+        RenderedQuery rendered = RENDERED_QUERIES.get(shape);
+        if (rendered != null && rendered.bindCount() == bindCount) {
+            return rendered.sql();
+        }
+        String sql = query.getSQL(ParamType.INDEXED);
+        if (rendered != null) {
+            LOGGER.warn("Query shape {} rendered SQL taking {} bind values instead of {}: {}", shape, bindCount, rendered.bindCount(), sql);
+        } else {
+            LOGGER.info("Query SQL: {}", sql);
+            if (RENDERED_QUERIES.size() < MAX_RENDERED_QUERIES) {
+                RENDERED_QUERIES.putIfAbsent(shape, new RenderedQuery(sql, bindCount));
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Forgets the SQL rendered for every query shape, so the next search of each shape renders it again.
+     */
+    static void forgetRenderedQueries() {
+        RENDERED_QUERIES.clear();
+    }
+
+    /**
+     * Everything which determines the SQL rendered for a search, as opposed to the values bound into it.
+     */
+    private record QueryShape(String table, List<String> criteriaFields, List<String> rangeBounds, boolean exactCriteria, String sortField, boolean sortAscending, String seek, boolean countInPage, boolean ranked, String paging) {}
+
+    /**
+     * The SQL rendered for a query shape, along with the number of bind values it takes.
+     */
+    private record RenderedQuery(String sql, int bindCount) {}
+
+    private int countExactly(Condition whereClause) {
+        return jooq
                 .selectCount()
                 .from(getTable())
                 .where(whereClause)
                 .fetchOptional(0, Integer.class)
                 .orElse(0);
-        return new ListWithCount<>(queryWithLimit.fetchStreamInto(getRecordType()).toList(), count);
     }
 
-    private Map<String, String> stripOutUnknownFields(Map<String, String> searchCriteria, T table) {
-        return searchCriteria.entrySet().stream()
-                .filter(entry -> !StringUtils.isBlank(entry.getValue().trim()) && table.fieldStream().anyMatch(field -> field.getName().equalsIgnoreCase(entry.getKey())))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    /**
+     * Asks the query planner how many rows it expects the search to match, which avoids reading them.
+     * The estimate is only as good as the table statistics PostgreSQL keeps for the underlying tables.
+     */
+    private int estimateCount(Condition whereClause) {
+        double estimatedRows = jooq.explain(jooq.selectFrom(getTable()).where(whereClause)).rows();
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(estimatedRows));
     }
 
-    private static Condition buildWhereClause(boolean exactCriteria, List<Condition> conditions) {
+    private static Condition buildWhereClause(boolean exactCriteria, Collection<Condition> conditions) {
         if (conditions.isEmpty()) {
             return DSL.noCondition();
         } else {
@@ -151,32 +502,179 @@ public abstract class Logic<R extends TableRecordImpl<R>, P extends Serializable
         }
     }
 
-    private static <T> Optional<Condition> addPossibleCondition(Field<T> field, String key, String value, boolean exactCriteria) {
-        return field.getName().equalsIgnoreCase(key)
-                ? Optional.of(getContainsOrEqualsWithJsonBHandling(field, value, exactCriteria))
-                : Optional.empty();
+    /**
+     * Adds the condition matching the given criterion. A value which doesn't convert to the field's type compares as
+     * {@code IS NULL}, which renders differently, so it's keyed apart from the field's other values.
+     */
+    private static <T> void addMatchCondition(SortedMap<String, Condition> matchConditions, FieldResolver.ResolvedField<T> resolved, String value, boolean exactCriteria) {
+        Field<T> field = resolved.field();
+        if (resolved.text() && !exactCriteria) {
+            // A plain ILIKE on the column itself is what its trigram index can serve.
+            matchConditions.put(field.getName(), field.likeIgnoreCase("%" + escapeLikePattern(value) + "%", LIKE_ESCAPE));
+        } else if (resolved.json()) {
+            matchConditions.put(field.getName(), exactCriteria ? field.cast(JSONB.class).eq(JSONB.valueOf(value)) : field.cast(JSONB.class).containsIgnoreCase(JSONB.valueOf(value)));
+        } else {
+            T converted = resolved.convert(value);
+            matchConditions.put(converted == null ? field.getName() + " is null" : field.getName(), exactCriteria ? field.eq(converted) : field.containsIgnoreCase(converted));
+        }
+    }
+
+    private static String escapeLikePattern(String value) {
+        return value
+                .replace(String.valueOf(LIKE_ESCAPE), String.valueOf(LIKE_ESCAPE) + LIKE_ESCAPE)
+                .replace("%", LIKE_ESCAPE + "%")
+                .replace("_", LIKE_ESCAPE + "_");
     }
 
-    private static <T> Condition getContainsOrEqualsWithJsonBHandling(Field<T> field, String value, boolean exactCriteria) {
-        if (field.getDataType().getType().equals(JSON.class)) {
-            return exactCriteria ? field.cast(JSONB.class).eq(JSONB.valueOf(value)) : field.cast(JSONB.class).containsIgnoreCase(JSONB.valueOf(value));
-        } else {
-            return exactCriteria ? field.eq(field.getDataType().convert(value)) : field.containsIgnoreCase(field.getDataType().convert(value));
+    /**
+     * Scores how closely each matching record resembles the text criteria, taking the best score across the criteria.
+     *
+     * @return the score, or an empty {@code Optional} if none of the criteria are on text fields.
+     */
+    private Optional<Field<Float>> buildSimilarityScore(Map<String, String> searchCriteria) {
+        // Keyed by field name, like the conditions, so the score renders the same way for the same query shape.
+        SortedMap<String, Field<Float>> similaritiesByField = new TreeMap<>();
+        searchCriteria.forEach((key, value) -> {
+            if (value != null && !StringUtils.isBlank(value.trim())) {
+                fieldResolver.resolve(key)
+                        .filter(FieldResolver.ResolvedField::text)
+                        .ifPresent(resolved -> similaritiesByField.put(resolved.field().getName(), DSL.function("similarity", SQLDataType.REAL, resolved.field(), DSL.val(value))));
+            }
+        });
+        List<Field<Float>> similarities = List.copyOf(similaritiesByField.values());
+        if (similarities.isEmpty()) {
+            return Optional.empty();
         }
+        return Optional.of(similarities.size() == 1 ? similarities.get(0) : DSL.greatest(similarities.get(0), similarities.subList(1, similarities.size()).toArray(Field[]::new)));
     }
 
-    private List<Condition> parseCriteriaIntoConditions(boolean exactCriteria, Map<String, String> searchCriteria) {
-        var revisedSearchCriteria = stripOutUnknownFields(searchCriteria, getTable());
-        List<Condition> matchConditions = new ArrayList<>();
-        revisedSearchCriteria.forEach((key, value) -> getTable().fieldStream()
-            .filter(field -> field.getName().equalsIgnoreCase(key))
-            .findFirst().flatMap(field -> Logic.addPossibleCondition(field, key, value, exactCriteria)).ifPresent(matchConditions::add)
-        );
+    /**
+     * Turns the search criteria into conditions, skipping blank values and keys that aren't fields of the table.
+     *
+     * @return the conditions keyed and ordered by field name, so the same set of criteria always yields the same query shape.
+     */
+    SortedMap<String, Condition> parseCriteriaIntoConditions(boolean exactCriteria, Map<String, String> searchCriteria) {
+        SortedMap<String, Condition> matchConditions = new TreeMap<>();
+        searchCriteria.forEach((key, value) -> {
+            if (value != null && !StringUtils.isBlank(value.trim())) {
+                fieldResolver.resolve(key).ifPresent(resolved -> addMatchCondition(matchConditions, resolved, value, exactCriteria));
+            }
+        });
         return matchConditions;
     }
 
+    /**
+     * Turns the ranges into conditions keyed by the field and the side of the range they bound, so the same ranges
+     * always render the same way.
+     */
+    private SortedMap<String, Condition> parseRangesIntoConditions(Map<String, SearchRange> searchRanges) {
+        SortedMap<String, Condition> rangeConditions = new TreeMap<>();
+        if (searchRanges != null) {
+            searchRanges.forEach((key, range) -> {
+                if (range != null) {
+                    fieldResolver.resolve(key).ifPresent(resolved -> addRangeConditions(rangeConditions, resolved, range));
+                }
+            });
+        }
+        return rangeConditions;
+    }
+
+    private static <T> void addRangeConditions(SortedMap<String, Condition> rangeConditions, FieldResolver.ResolvedField<T> resolved, SearchRange range) {
+        if (!StringUtils.isBlank(range.from())) {
+            rangeConditions.put(resolved.field().getName() + ">=", resolved.field().ge(convertRangeBound(resolved, range.from())));
+        }
+        if (!StringUtils.isBlank(range.to())) {
+            rangeConditions.put(resolved.field().getName() + "<", resolved.field().lt(convertRangeBound(resolved, range.to())));
+        }
+    }
+
+    /**
+     * Converts a range bound to the field's type. jOOQ converts most values it can't parse to null rather than failing,
+     * and comparing with null matches nothing, so a null is rejected the same way.
+     */
+    private static <T> T convertRangeBound(FieldResolver.ResolvedField<T> resolved, String value) {
+        T converted;
+        try {
+            converted = resolved.convert(value.trim());
+        } catch (DataTypeException e) {
+            throw invalidRangeBound(resolved, value, e);
+        }
+        if (converted == null) {
+            throw invalidRangeBound(resolved, value, null);
+        }
+        return converted;
+    }
+
+    private static IllegalArgumentException invalidRangeBound(FieldResolver.ResolvedField<?> resolved, String value, Throwable cause) {
+        return new IllegalArgumentException("Range bound '%s' is not a valid value of field '%s'.".formatted(value, resolved.field().getName()), cause);
+    }
+
     private Field<?> resolveField(String columnName, Field<?> defaultField) {
-        Field<?> retrievedField = getTable().field(columnName);
-        return retrievedField == null ? defaultField : retrievedField;
+        return fieldResolver.resolve(columnName).<Field<?>>map(FieldResolver.ResolvedField::field).orElse(defaultField);
+    }
+
+    private boolean isIdColumn(Field<?> field) {
+        return field.getName().equals(getIdColumn().getName());
+    }
+
+    /**
+     * Orders by the sort column, then by the ID so rows sharing a sort value always come back in the same order.
+     * When ranking, the most similar rows come first regardless of the sort column.
+     */
+    private List<SortField<?>> buildOrdering(Optional<Field<Float>> similarityScore, Field<?> sortField, boolean ascending) {
+        List<SortField<?>> ordering = new ArrayList<>();
+        similarityScore.ifPresent(score -> ordering.add(score.desc()));
+        ordering.add(ascending ? sortField.asc() : sortField.desc());
+        if (!isIdColumn(sortField)) {
+            ordering.add(ascending ? getIdColumn().asc() : getIdColumn().desc());
+        }
+        return ordering;
+    }
+
+    /**
+     * Builds the condition selecting the rows that come after the position captured in the continuation token.
+     * PostgreSQL sorts empty values last when ascending and first when descending, which is accounted for here.
+     */
+    private <F> Condition buildSeekCondition(Field<F> sortField, ContinuationToken token) {
+        Condition afterLastId = token.sortAsc() ? getIdColumn().gt(token.id()) : getIdColumn().lt(token.id());
+        if (isIdColumn(sortField)) {
+            return afterLastId;
+        }
+        if (token.sortValue() == null) {
+            return token.sortAsc()
+                    ? sortField.isNull().and(afterLastId)
+                    : sortField.isNull().and(afterLastId).or(sortField.isNotNull());
+        }
+        F lastSortValue = sortField.getDataType().convert(token.sortValue());
+        return token.sortAsc()
+                ? DSL.row(sortField, getIdColumn()).gt(lastSortValue, token.id()).or(sortField.isNull())
+                : DSL.row(sortField, getIdColumn()).lt(lastSortValue, token.id());
+    }
+
+    private String encodeContinuationToken(Field<?> sortField, boolean ascending, R lastRecord) {
+        Object sortValue = lastRecord.get(sortField);
+        var token = new ContinuationToken(
+                sortField.getName(),
+                ascending,
+                sortValue instanceof EnumType enumValue ? enumValue.getLiteral() : sortValue == null ? null : sortValue.toString(),
+                lastRecord.get(getIdColumn()));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(token));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to encode continuation token %s.".formatted(token), e);
+        }
+    }
+
+    private ContinuationToken decodeContinuationToken(String encodedToken, Field<?> sortField, boolean ascending) {
+        ContinuationToken token;
+        try {
+            token = objectMapper.readValue(Base64.getUrlDecoder().decode(encodedToken), ContinuationToken.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Continuation token '%s' is malformed.".formatted(encodedToken), e);
+        }
+        if (!sortField.getName().equals(token.sortColumn()) || ascending != token.sortAsc()) {
+            throw new IllegalArgumentException("Continuation token '%s' does not match the requested sort on '%s'.".formatted(encodedToken, sortField.getName()));
+        }
+        return token;
     }
 }
@@ -0,0 +1,293 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.generated.tables.pojos.Participant;
+import net.briclabs.evcoordinator.generated.tables.records.ParticipantRecord;
+import net.briclabs.evcoordinator.model.ExportFormat;
+import net.briclabs.evcoordinator.model.ImportResponse;
+import net.briclabs.evcoordinator.validation.AbstractValidator;
+import net.briclabs.evcoordinator.validation.ParticipantValidator;
+import org.jooq.DSLContext;
+import org.jooq.EnumType;
+import org.jooq.Field;
+import org.jooq.Name;
+import org.jooq.TableField;
+import org.jooq.exception.DataTypeException;
+import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static net.briclabs.evcoordinator.generated.tables.Participant.PARTICIPANT;
+
+/**
+ * Imports participants in bulk, from the same CSV or NDJSON the participant exports produce.
+ * <p>
+ * Rows are validated in parallel, and checked against the email addresses already recorded with a single query. The
+ * valid ones are then loaded into a temporary staging table through {@code COPY}, and merged into the participant table
+ * with a single statement, all in one transaction. Invalid rows are skipped and reported rather than failing the import.
+ */
+public class ParticipantImportLogic {
+
+    /**
+     * The columns an import sets. Any other column in a CSV header, such as the ID, is ignored.
+     */
+    private static final List<TableField<ParticipantRecord, ?>> IMPORTED_FIELDS = List.of(
+            PARTICIPANT.PARTICIPANT_TYPE,
+            PARTICIPANT.SPONSOR,
+            PARTICIPANT.NAME_FIRST,
+            PARTICIPANT.NAME_LAST,
+            PARTICIPANT.NAME_NICK,
+            PARTICIPANT.DOB,
+            PARTICIPANT.ADDR_STREET_1,
+            PARTICIPANT.ADDR_STREET_2,
+            PARTICIPANT.ADDR_CITY,
+            PARTICIPANT.ADDR_STATE_ABBR,
+            PARTICIPANT.ADDR_ZIP,
+            PARTICIPANT.ADDR_EMAIL,
+            PARTICIPANT.NAME_EMERGENCY,
+            PARTICIPANT.PHONE_EMERGENCY,
+            PARTICIPANT.EMERGENCY_CONTACT_RELATIONSHIP_TYPE,
+            PARTICIPANT.PHONE_DIGITS);
+
+    private static final String IMPORTED_COLUMNS = IMPORTED_FIELDS.stream().map(Field::getName).collect(Collectors.joining(", "));
+
+    private static final Name STAGING_TABLE = DSL.name("participant_import");
+    private static final Name STAGING_ROW = DSL.name("row_index");
+
+    /**
+     * How many bytes of rows are gathered before they're sent to the database.
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final DSLContext jooq;
+    private final ParticipantLogic participantLogic;
+
+    public ParticipantImportLogic(ObjectMapper objectMapper, DSLContext jooq) {
+        this.objectMapper = objectMapper;
+        this.jooq = jooq;
+        this.participantLogic = new ParticipantLogic(objectMapper, jooq);
+    }
+
+    /**
+     * Imports the participants read from the given input.
+     *
+     * @param actorId the ID of the actor performing the import.
+     * @param format the format of the input. CSV input starts with a header row naming the columns.
+     * @param input the rows to import, one participant each.
+     * @return the number of participants imported, and the messages of the rows which weren't, keyed by the row's
+     *         number followed by the name of the field concerned.
+     * @throws IOException if reading the input fails.
+     */
+    public ImportResponse importAll(long actorId, ExportFormat format, InputStream input) throws IOException {
+        Map<String, String> messages = new ConcurrentHashMap<>();
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<Participant> rows = format == ExportFormat.CSV ? readCsv(reader, messages) : readNdjson(reader, messages);
+
+        boolean[] valid = new boolean[rows.size()];
+        IntStream.range(0, rows.size()).parallel().forEach(index -> {
+            if (rows.get(index) == null) {
+                return;
+            }
+            Map<String, String> rowMessages;
+            try {
+                rowMessages = ParticipantValidator.of(rows.get(index), false).getMessages();
+            } catch (RuntimeException e) {
+                rowMessages = Map.of(Logic.GENERAL_MESSAGE_KEY, "Row is incomplete.");
+            }
+            rowMessages.forEach((key, value) -> messages.put(rowKey(index, key), value));
+            valid[index] = rowMessages.isEmpty();
+        });
+
+        Map<String, Integer> rowsByEmail = new HashMap<>();
+        for (int index = 0; index < rows.size(); index++) {
+            if (valid[index] && rowsByEmail.putIfAbsent(rows.get(index).getAddrEmail(), index) != null) {
+                messages.put(rowKey(index, PARTICIPANT.ADDR_EMAIL.getName()), "Must not repeat an email address of an earlier row.");
+                valid[index] = false;
+            }
+        }
+        Set<String> recordedEmails = rowsByEmail.isEmpty() ? Set.of() : new HashSet<>(jooq
+                .select(PARTICIPANT.ADDR_EMAIL)
+                .from(PARTICIPANT)
+                .where(PARTICIPANT.ADDR_EMAIL.eq(DSL.any(rowsByEmail.keySet().toArray(String[]::new))))
+                .fetch(PARTICIPANT.ADDR_EMAIL));
+        List<Integer> rowsToImport = new ArrayList<>();
+        for (int index = 0; index < rows.size(); index++) {
+            if (valid[index]) {
+                if (recordedEmails.contains(rows.get(index).getAddrEmail())) {
+                    messages.put(rowKey(index, PARTICIPANT.ADDR_EMAIL.getName()), "A participant with this email address is already recorded.");
+                } else {
+                    rowsToImport.add(index);
+                }
+            }
+        }
+        if (rowsToImport.isEmpty()) {
+            return new ImportResponse(0, Map.copyOf(messages));
+        }
+
+        List<String> importedEmails = jooq.transactionResult(configuration -> {
+            var transaction = configuration.dsl();
+            transaction.execute("CREATE TEMPORARY TABLE %s ON COMMIT DROP AS SELECT 0 AS %s, %s FROM %s WITH NO DATA"
+                    .formatted(STAGING_TABLE.first(), STAGING_ROW.first(), IMPORTED_COLUMNS, PARTICIPANT.getName()));
+            transaction.connection(connection -> copyIntoStaging(connection, rows, rowsToImport));
+            var inserted = transaction
+                    .insertInto(PARTICIPANT)
+                    .columns(IMPORTED_FIELDS)
+                    .select(DSL
+                            .select(IMPORTED_FIELDS.stream().map(field -> DSL.field(DSL.name(STAGING_TABLE, field.getUnqualifiedName()), field.getDataType())).toList())
+                            .from(DSL.table(STAGING_TABLE))
+                            .orderBy(DSL.field(STAGING_ROW)))
+                    .onConflict(PARTICIPANT.ADDR_EMAIL)
+                    .doNothing()
+                    .returning(PARTICIPANT.ID, PARTICIPANT.ADDR_EMAIL)
+                    .fetch();
+
+            var historyLogic = new HistoryLogic(objectMapper, transaction);
+            historyLogic.defer();
+            for (var participantRecord : inserted) {
+                var participant = rows.get(rowsByEmail.get(participantRecord.getAddrEmail()));
+                participantLogic.recordHistoryForInsert(historyLogic, actorId, participantRecord.getId(), () -> participantLogic.convertToJson(participant));
+            }
+            historyLogic.flushDeferred();
+            return inserted.getValues(PARTICIPANT.ADDR_EMAIL);
+        });
+
+        Set<String> imported = new HashSet<>(importedEmails);
+        for (Integer index : rowsToImport) {
+            String email = rows.get(index).getAddrEmail();
+            if (imported.contains(email)) {
+                ParticipantLogic.ACTOR_IDS.invalidate(email);
+            } else {
+                // Recorded by someone else between the check and the merge.
+                messages.put(rowKey(index, PARTICIPANT.ADDR_EMAIL.getName()), "A participant with this email address is already recorded.");
+            }
+        }
+        return new ImportResponse(imported.size(), Map.copyOf(messages));
+    }
+
+    private List<Participant> readCsv(BufferedReader reader, Map<String, String> messages) throws IOException {
+        var csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return List.of();
+        }
+        List<TableField<ParticipantRecord, ?>> columns = header.stream()
+                .map(name -> IMPORTED_FIELDS.stream().filter(field -> field.getName().equals(name.trim())).findFirst().orElse(null))
+                .collect(Collectors.toList());
+        List<Participant> rows = new ArrayList<>();
+        for (List<String> values = csv.next(); values != null; values = csv.next()) {
+            if (values.size() == 1 && values.get(0).isBlank()) {
+                continue;
+            }
+            int index = rows.size();
+            ParticipantRecord record = jooq.newRecord(PARTICIPANT);
+            boolean readable = true;
+            for (int column = 0; column < columns.size() && column < values.size(); column++) {
+                var field = columns.get(column);
+                if (field != null) {
+                    try {
+                        setFromText(record, field, values.get(column));
+                    } catch (DataTypeException | IllegalArgumentException e) {
+                        messages.put(rowKey(index, field.getName()), AbstractValidator.MUST_BE_VALID_VALUE);
+                        readable = false;
+                    }
+                }
+            }
+            rows.add(readable ? record.into(Participant.class) : null);
+        }
+        return rows;
+    }
+
+    private List<Participant> readNdjson(BufferedReader reader, Map<String, String> messages) throws IOException {
+        List<Participant> rows = new ArrayList<>();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                rows.add(objectMapper.readValue(line, Participant.class));
+            } catch (JsonProcessingException e) {
+                messages.put(rowKey(rows.size(), Logic.GENERAL_MESSAGE_KEY), "Row is not a valid JSON object.");
+                rows.add(null);
+            }
+        }
+        return rows;
+    }
+
+    private static <T> void setFromText(ParticipantRecord record, Field<T> field, String value) {
+        // Only text columns can hold an empty value; elsewhere it means there is none.
+        if (value.isEmpty() && field.getType() != String.class) {
+            record.set(field, null);
+        } else {
+            record.set(field, field.getDataType().convert(value));
+        }
+    }
+
+    /**
+     * Streams the rows to import into the staging table, as CSV.
+     */
+    private void copyIntoStaging(Connection connection, List<Participant> rows, List<Integer> rowsToImport) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY %s (%s, %s) FROM STDIN WITH (FORMAT csv)".formatted(STAGING_TABLE.first(), STAGING_ROW.first(), IMPORTED_COLUMNS));
+        try {
+            var buffer = new StringBuilder(COPY_BUFFER_SIZE + 1024);
+            for (Integer index : rowsToImport) {
+                ParticipantRecord record = jooq.newRecord(PARTICIPANT, rows.get(index));
+                buffer.append(index);
+                for (var field : IMPORTED_FIELDS) {
+                    buffer.append(',').append(toCopyValue(record.get(field)));
+                }
+                buffer.append('\n');
+                if (buffer.length() >= COPY_BUFFER_SIZE) {
+                    writeToCopy(copyIn, buffer);
+                }
+            }
+            writeToCopy(copyIn, buffer);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    /**
+     * Renders a value as a CSV field for {@code COPY}, where an unquoted empty field is {@code NULL} and a quoted one
+     * an empty string.
+     */
+    private static String toCopyValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof EnumType enumValue ? enumValue.getLiteral() : value.toString();
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String rowKey(int index, String key) {
+        return "%d|%s".formatted(index + 1, key);
+    }
+}
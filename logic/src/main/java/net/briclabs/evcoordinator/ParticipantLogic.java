@@ -6,15 +6,18 @@ import net.briclabs.evcoordinator.generated.tables.pojos.Participant;
 import net.briclabs.evcoordinator.generated.tables.records.ParticipantRecord;
 import net.briclabs.evcoordinator.validation.ParticipantValidator;
 import org.jooq.DSLContext;
-import org.jooq.impl.DSL;
-import org.jooq.tools.StringUtils;
+import org.jooq.Record1;
+import org.jooq.ResultQuery;
+import org.jooq.TableField;
+import reactor.core.publisher.Mono;
 
-import java.time.format.DateTimeFormatter;
+import java.time.Instant;
 import java.util.AbstractMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
-import static java.util.Map.entry;
 import static net.briclabs.evcoordinator.generated.tables.Participant.PARTICIPANT;
 
 /**
@@ -26,89 +29,143 @@ import static net.briclabs.evcoordinator.generated.tables.Participant.PARTICIPAN
  * @implNote The Participant object in the data model cannot be deleted because of the impact this would have to the History table.
  */
 public class ParticipantLogic extends WriteLogic<ParticipantRecord, Participant, net.briclabs.evcoordinator.generated.tables.Participant> {
+
+    private static final List<TableField<ParticipantRecord, ?>> BUSINESS_FIELDS = List.of(
+            PARTICIPANT.PARTICIPANT_TYPE,
+            PARTICIPANT.SPONSOR,
+            PARTICIPANT.NAME_FIRST,
+            PARTICIPANT.NAME_LAST,
+            PARTICIPANT.NAME_NICK,
+            PARTICIPANT.DOB,
+            PARTICIPANT.ADDR_STREET_1,
+            PARTICIPANT.ADDR_STREET_2,
+            PARTICIPANT.ADDR_CITY,
+            PARTICIPANT.ADDR_STATE_ABBR,
+            PARTICIPANT.ADDR_ZIP,
+            PARTICIPANT.ADDR_EMAIL,
+            PARTICIPANT.NAME_EMERGENCY,
+            PARTICIPANT.PHONE_EMERGENCY,
+            PARTICIPANT.EMERGENCY_CONTACT_RELATIONSHIP_TYPE,
+            PARTICIPANT.PHONE_DIGITS);
+
+    /**
+     * The participants resolved for authenticated callers, shared by every instance.
+     */
+    static final ActorIdCache ACTOR_IDS = new ActorIdCache();
+
     private final HistoryLogic historyLogic;
 
     public ParticipantLogic(ObjectMapper objectMapper, DSLContext jooq) {
+        this(objectMapper, jooq, new HistoryLogic(objectMapper, jooq));
+    }
+
+    ParticipantLogic(ObjectMapper objectMapper, DSLContext jooq, HistoryLogic historyLogic) {
         super(objectMapper, jooq, Participant.class, PARTICIPANT, PARTICIPANT.ID);
-        this.historyLogic = new HistoryLogic(objectMapper, jooq);
+        this.historyLogic = historyLogic;
+    }
+
+    /**
+     * Determines whether an attendee already exists based on their first name, last name, and email address.
+     * The method ensures that all input fields are non-blank and consults the underlying data source
+     * to check for matching records.
+     *
+     * @param nameFirst The first name of the attendee to check.
+     * @param nameLast The last name of the attendee to check.
+     * @param addrEmail The email address of the attendee to check.
+     * @return true if an attendee with the provided details exists, false otherwise.
+     */
+    public boolean attendeePreexists(String nameFirst, String nameLast, String addrEmail) {
+        return fetchAttendeeIdByNameAndEmail(nameFirst, nameLast, addrEmail).isPresent();
     }
 
     /**
-     * Fetches preexisting attendees based on their first name, last name, and email address.
-     * Keying off of first and last name in addition to email address provides a bit more security
-     * against automated attempts to guess whether someone is a participant.
+     * Fetches the ID of the preexisting attendee with the given first name, last name, and email address.
+     * As with {@link #attendeePreexists(String, String, String)}, blank input never matches.
      *
      * @param nameFirst The first name of the attendee to search for.
      * @param nameLast The last name of the attendee to search for.
      * @param addrEmail The email address of the attendee to search for.
-     * @return A list with count containing participants that match the provided criteria.
+     * @return an {@code Optional} containing the attendee's ID, or an empty {@code Optional} if there is no such attendee.
      */
-    public ListWithCount<Participant> fetchAttendeeByNameAndEmail(String nameFirst, String nameLast, String addrEmail) {
-        return fetchByCriteria(
-                true,
-                Map.of(net.briclabs.evcoordinator.generated.tables.Participant.PARTICIPANT.PARTICIPANT_TYPE.getName(), ParticipantType.ATTENDEE.getLiteral(),
-                        net.briclabs.evcoordinator.generated.tables.Participant.PARTICIPANT.NAME_FIRST.getName(), nameFirst,
-                        net.briclabs.evcoordinator.generated.tables.Participant.PARTICIPANT.NAME_LAST.getName(), nameLast,
-                        net.briclabs.evcoordinator.generated.tables.Participant.PARTICIPANT.ADDR_EMAIL.getName(), addrEmail),
-                null,
-                false,
-                0,
-                1);
+    public Optional<Long> fetchAttendeeIdByNameAndEmail(String nameFirst, String nameLast, String addrEmail) {
+        if (nameFirst.isBlank() || nameLast.isBlank() || addrEmail.isBlank()) {
+            return Optional.empty();
+        }
+        return attendeeIdQuery(nameFirst, nameLast, addrEmail).fetchOptional(getIdColumn());
     }
 
     /**
-     * Determines whether an attendee already exists based on their first name, last name, and email address.
-     * The method ensures that all input fields are non-blank and consults the underlying data source
-     * to check for matching records.
+     * Determines whether an attendee already exists as {@link #attendeePreexists(String, String, String)} does, but
+     * without blocking while the attendee is looked up through R2DBC. The logic has to have been created with a
+     * {@code DSLContext} connected through R2DBC.
      *
      * @param nameFirst The first name of the attendee to check.
      * @param nameLast The last name of the attendee to check.
      * @param addrEmail The email address of the attendee to check.
-     * @return true if an attendee with the provided details exists, false otherwise.
+     * @return a {@code Mono} emitting true if an attendee with the provided details exists, false otherwise.
      */
-    public boolean attendeePreexists(String nameFirst, String nameLast, String addrEmail) {
+    public Mono<Boolean> attendeePreexistsReactively(String nameFirst, String nameLast, String addrEmail) {
         if (nameFirst.isBlank() || nameLast.isBlank() || addrEmail.isBlank()) {
-            return false;
+            return Mono.just(false);
         }
-        return fetchAttendeeByNameAndEmail(nameFirst, nameLast, addrEmail).count() > 0;
+        return Mono.from(attendeeIdQuery(nameFirst, nameLast, addrEmail)).hasElement();
+    }
+
+    private ResultQuery<Record1<Long>> attendeeIdQuery(String nameFirst, String nameLast, String addrEmail) {
+        return jooq
+                .select(getIdColumn())
+                .from(getTable())
+                .where(getTable().PARTICIPANT_TYPE.eq(ParticipantType.ATTENDEE))
+                .and(getTable().NAME_FIRST.eq(nameFirst))
+                .and(getTable().NAME_LAST.eq(nameLast))
+                .and(getTable().ADDR_EMAIL.eq(addrEmail))
+                .limit(1);
     }
 
     /**
-     * Fetches preexisting participants based on their email address.
+     * Resolves the ID of the participant an authenticated caller is, based on the email address in their token.
+     * The result is remembered until the token expires, or until a participant takes on that email address.
      *
-     * @param addrEmail The email address of the attendee to search for.
-     * @return A list with count containing participants that match the provided criteria.
+     * @param subject The subject of the caller's token.
+     * @param addrEmail The email address in the caller's token.
+     * @param expiresAt When the caller's token expires.
+     * @return the ID of the caller's participant, or -1 if there is none.
      */
-    public ListWithCount<Participant> fetchParticipantByEmail(String addrEmail) {
-        return fetchByCriteria(
-                true,
-                Map.of(net.briclabs.evcoordinator.generated.tables.Participant.PARTICIPANT.ADDR_EMAIL.getName(), addrEmail),
-                null,
-                false,
-                0,
-                1);
+    public long resolveActorId(String subject, String addrEmail, Instant expiresAt) {
+        return ACTOR_IDS.get(subject, addrEmail).orElseGet(() -> {
+            long participantId = fetchParticipantIdByEmail(addrEmail).orElse(-1L);
+            ACTOR_IDS.put(subject, addrEmail, participantId, expiresAt);
+            return participantId;
+        });
+    }
+
+    /**
+     * Fetches the ID of the participant with the given email address.
+     *
+     * @param addrEmail The email address of the participant.
+     * @return an {@code Optional} containing the participant's ID, or an empty {@code Optional} if there is no such participant.
+     */
+    public Optional<Long> fetchParticipantIdByEmail(String addrEmail) {
+        return jooq
+                .select(getIdColumn())
+                .from(getTable())
+                .where(getTable().ADDR_EMAIL.eq(addrEmail))
+                .fetchOptional(getIdColumn());
     }
 
     @Override
     public boolean isAlreadyRecorded(Participant pojo) {
-        Map<String, String> criteria = Map.ofEntries(
-                entry(getTable().PARTICIPANT_TYPE.getName(), pojo.getParticipantType().getLiteral()),
-                entry(getTable().SPONSOR.getName(), pojo.getParticipantType().getLiteral()),
-                entry(getTable().NAME_FIRST.getName(), pojo.getNameFirst()),
-                entry(getTable().NAME_LAST.getName(), pojo.getNameLast()),
-                entry(getTable().NAME_NICK.getName(), StringUtils.defaultString(pojo.getNameNick(), "")),
-                entry(getTable().DOB.getName(), pojo.getDob().format(DateTimeFormatter.ISO_DATE)),
-                entry(getTable().ADDR_STREET_1.getName(), pojo.getAddrStreet_1()),
-                entry(getTable().ADDR_STREET_2.getName(), StringUtils.defaultString(pojo.getAddrStreet_2(), "")),
-                entry(getTable().ADDR_CITY.getName(), pojo.getAddrCity()),
-                entry(getTable().ADDR_STATE_ABBR.getName(), pojo.getAddrStateAbbr().getLiteral()),
-                entry(getTable().ADDR_ZIP.getName(), pojo.getAddrZip().toString()),
-                entry(getTable().ADDR_EMAIL.getName(), pojo.getAddrEmail()),
-                entry(getTable().NAME_EMERGENCY.getName(), pojo.getNameEmergency()),
-                entry(getTable().PHONE_EMERGENCY.getName(), pojo.getPhoneEmergency().toString()),
-                entry(getTable().EMERGENCY_CONTACT_RELATIONSHIP_TYPE.getName(), pojo.getEmergencyContactRelationshipType().getLiteral()),
-                entry(getTable().PHONE_DIGITS.getName(), pojo.getPhoneDigits().toString()));
-        return fetchByCriteria(true, criteria, getIdColumn().getName(), false, 0, 1).count() > 0;
+        return isFingerprintRecorded(pojo);
+    }
+
+    @Override
+    List<TableField<ParticipantRecord, ?>> getBusinessFields() {
+        return BUSINESS_FIELDS;
+    }
+
+    @Override
+    HistoryLogic getHistoryLogic() {
+        return historyLogic;
     }
 
     @Override
@@ -135,11 +192,17 @@ public class ParticipantLogic extends WriteLogic<ParticipantRecord, Participant,
                 .fetchOptional()
                 .map(ParticipantRecord::getId);
         if (insertedId.isPresent()) {
-            recordHistoryForInsert(historyLogic, actorId, convertToJson(pojo));
+            recordHistoryForInsert(historyLogic, actorId, insertedId.get(), () -> convertToJson(pojo));
+            onInserted(pojo);
         }
         return insertedId;
     }
 
+    @Override
+    void onInserted(Participant pojo) {
+        ACTOR_IDS.invalidate(pojo.getAddrEmail());
+    }
+
     @Override
     public int updateExisting(long actorId, Participant update) throws ParticipantException {
         if (update.getId() == null) {
@@ -147,49 +210,15 @@ public class ParticipantLogic extends WriteLogic<ParticipantRecord, Participant,
                     new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "ID to update was missing. Please review your input and try again."),
                     "ID %d to update was missing.".formatted(update.getId()));
         }
-        var originalRecord = fetchById(update.getId()).orElseThrow(() -> new ParticipantException(
-                new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "Record to update was not found. Please review your input and try again."),
-                "Record %d to update was not found.".formatted(update.getId())));
-        int updatedRecords = jooq.update(getTable())
-                .set(getTable().PARTICIPANT_TYPE, update.getParticipantType())
-                .set(getTable().SPONSOR, update.getSponsor())
-                .set(getTable().NAME_FIRST, update.getNameFirst())
-                .set(getTable().NAME_LAST, update.getNameLast())
-                .set(getTable().NAME_NICK, update.getNameNick())
-                .set(getTable().DOB, update.getDob())
-                .set(getTable().ADDR_STREET_1, update.getAddrStreet_1())
-                .set(getTable().ADDR_STREET_2, update.getAddrStreet_2())
-                .set(getTable().ADDR_CITY, update.getAddrCity())
-                .set(getTable().ADDR_STATE_ABBR, update.getAddrStateAbbr())
-                .set(getTable().ADDR_ZIP, update.getAddrZip())
-                .set(getTable().ADDR_EMAIL, update.getAddrEmail())
-                .set(getTable().NAME_EMERGENCY, update.getNameEmergency())
-                .set(getTable().PHONE_EMERGENCY, update.getPhoneEmergency())
-                .set(getTable().EMERGENCY_CONTACT_RELATIONSHIP_TYPE, update.getEmergencyContactRelationshipType())
-                .set(getTable().PHONE_DIGITS, update.getPhoneDigits())
-                .where(getIdColumn().eq(update.getId()))
-                .and(
-                        getTable().PARTICIPANT_TYPE.notEqual(update.getParticipantType())
-                                .or(getTable().SPONSOR.notEqual(update.getSponsor()))
-                                .or(getTable().NAME_FIRST.notEqual(update.getNameFirst()))
-                                .or(getTable().NAME_LAST.notEqual(update.getNameLast()))
-                                .or(DSL.coalesce(getTable().NAME_NICK, "").notEqual(update.getNameNick()))
-                                .or(getTable().DOB.notEqual(update.getDob()))
-                                .or(getTable().ADDR_STREET_1.notEqual(update.getAddrStreet_1()))
-                                .or(DSL.coalesce(getTable().ADDR_STREET_2, "").notEqual(update.getAddrStreet_2()))
-                                .or(getTable().ADDR_CITY.notEqual(update.getAddrCity()))
-                                .or(getTable().ADDR_STATE_ABBR.notEqual(update.getAddrStateAbbr()))
-                                .or(getTable().ADDR_ZIP.notEqual(update.getAddrZip()))
-                                .or(getTable().ADDR_EMAIL.notEqual(update.getAddrEmail()))
-                                .or(getTable().NAME_EMERGENCY.notEqual(update.getNameEmergency()))
-                                .or(getTable().PHONE_EMERGENCY.notEqual(update.getPhoneEmergency()))
-                                .or(getTable().EMERGENCY_CONTACT_RELATIONSHIP_TYPE.notEqual(update.getEmergencyContactRelationshipType()))
-                                .or(getTable().PHONE_DIGITS.notEqual(update.getPhoneDigits()))
-                ).execute();
-        if (updatedRecords > 0) {
-            recordHistoryForUpdate(historyLogic, actorId, convertToJson(originalRecord), convertToJson(update));
+        return updateChangedFields(historyLogic, actorId, update.getId(), update);
+    }
+
+    @Override
+    void onUpdated(Change<Participant> change) {
+        if (!Objects.equals(change.before().getAddrEmail(), change.after().getAddrEmail())) {
+            ACTOR_IDS.invalidate(change.before().getAddrEmail());
+            ACTOR_IDS.invalidate(change.after().getAddrEmail());
         }
-        return updatedRecords;
     }
 
     @Override
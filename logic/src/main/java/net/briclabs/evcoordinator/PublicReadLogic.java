@@ -0,0 +1,91 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import net.briclabs.evcoordinator.generated.tables.pojos.Configuration;
+import net.briclabs.evcoordinator.generated.tables.pojos.EventInfo;
+import net.briclabs.evcoordinator.generated.tables.pojos.EventStatistics;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Serves the reads unauthenticated callers make the most without blocking, through R2DBC rather than JDBC.
+ * <p>
+ * The reads go through a small pool of R2DBC connections of their own, so however many are in flight, they wait on
+ * that pool rather than hold threads, and never take the JDBC connections writes need. The "latest" lookups share
+ * their snapshots with the JDBC path, so writes invalidate them for both.
+ */
+public final class PublicReadLogic implements AutoCloseable {
+
+    private final ConnectionPool connectionPool;
+    private final EventStatisticsLogic eventStatisticsLogic;
+    private final ConfigurationLogic configurationLogic;
+    private final EventInfoLogic eventInfoLogic;
+    private final ParticipantLogic participantLogic;
+
+    private PublicReadLogic(ObjectMapper objectMapper, ConnectionPool connectionPool, Settings settings) {
+        this.connectionPool = connectionPool;
+        var jooq = DSL.using(connectionPool, SQLDialect.POSTGRES, settings);
+        this.eventStatisticsLogic = new EventStatisticsLogic(objectMapper, jooq);
+        this.configurationLogic = new ConfigurationLogic(objectMapper, jooq);
+        this.eventInfoLogic = new EventInfoLogic(objectMapper, jooq);
+        this.participantLogic = new ParticipantLogic(objectMapper, jooq);
+    }
+
+    /**
+     * Connects to the database through R2DBC.
+     *
+     * @param objectMapper the object mapper used by the logic.
+     * @param url the R2DBC URL of the database.
+     * @param user the user to connect as.
+     * @param password the password of the user.
+     * @param maxConnections the most connections held at once.
+     * @param maxAcquireTime how long a read waits for a connection before failing.
+     * @param settings the settings of the queries, which should match those of the JDBC path.
+     * @return the logic, whose connections are opened as reads need them.
+     */
+    public static PublicReadLogic connect(ObjectMapper objectMapper, String url, String user, String password, int maxConnections, Duration maxAcquireTime, Settings settings) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, user)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        ConnectionPool connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("public-reads")
+                .initialSize(Math.min(1, maxConnections))
+                .maxSize(maxConnections)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        return new PublicReadLogic(objectMapper, connectionPool, settings);
+    }
+
+    public Mono<LatestSnapshotCache.Snapshot<EventStatistics>> fetchLatestEventStatistics() {
+        return eventStatisticsLogic.fetchLatestSnapshotReactively();
+    }
+
+    public Mono<LatestSnapshotCache.Snapshot<Configuration>> fetchLatestConfiguration() {
+        return configurationLogic.fetchLatestSnapshotReactively();
+    }
+
+    public Mono<LatestSnapshotCache.Snapshot<EventInfo>> fetchLatestEventInfo() {
+        return eventInfoLogic.fetchLatestSnapshotReactively();
+    }
+
+    public Mono<Boolean> attendeePreexists(String nameFirst, String nameLast, String addrEmail) {
+        return participantLogic.attendeePreexistsReactively(nameFirst, nameLast, addrEmail);
+    }
+
+    /**
+     * Closes the connections.
+     */
+    @Override
+    public void close() {
+        connectionPool.dispose();
+    }
+}
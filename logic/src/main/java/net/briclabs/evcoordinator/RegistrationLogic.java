@@ -1,41 +1,72 @@
 package net.briclabs.evcoordinator;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.generated.enums.TableRef;
 import net.briclabs.evcoordinator.generated.tables.pojos.Registration;
 import net.briclabs.evcoordinator.generated.tables.pojos.RegistrationWithLabels;
 import net.briclabs.evcoordinator.generated.tables.records.RegistrationRecord;
 import net.briclabs.evcoordinator.generated.tables.records.RegistrationWithLabelsRecord;
 import net.briclabs.evcoordinator.validation.RegistrationValidator;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.JSONB;
+import org.jooq.TableField;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 
+import java.time.OffsetDateTime;
 import java.util.AbstractMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import static java.util.Map.entry;
+import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY;
+import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY_CHECKPOINT;
 import static net.briclabs.evcoordinator.generated.Tables.GUEST;
 import static net.briclabs.evcoordinator.generated.Tables.REGISTRATION;
 import static net.briclabs.evcoordinator.generated.Tables.REGISTRATION_WITH_LABELS;
 
 public class RegistrationLogic extends WriteAndDeleteLogic<RegistrationRecord, Registration, net.briclabs.evcoordinator.generated.tables.Registration> {
+
+    private static final List<TableField<RegistrationRecord, ?>> BUSINESS_FIELDS = List.of(
+            REGISTRATION.EVENT_INFO_ID,
+            REGISTRATION.SIGNATURE,
+            REGISTRATION.DONATION_PLEDGE,
+            REGISTRATION.PARTICIPANT_ID);
+
+    /**
+     * The property under which the event of a registration is serialized, in the history as anywhere else.
+     */
+    private static final String EVENT_INFO_ID_PROPERTY = "eventInfoId";
+
     private final HistoryLogic historyLogic;
 
     private final GuestLogic guestLogic;
 
     public RegistrationLogic(ObjectMapper objectMapper, DSLContext jooq) {
+        this(objectMapper, jooq, new HistoryLogic(objectMapper, jooq));
+    }
+
+    RegistrationLogic(ObjectMapper objectMapper, DSLContext jooq, HistoryLogic historyLogic) {
         super(objectMapper, jooq, Registration.class, REGISTRATION, REGISTRATION.ID);
-        this.guestLogic = new GuestLogic(objectMapper, jooq);
-        this.historyLogic = new HistoryLogic(objectMapper, jooq);
+        this.guestLogic = new GuestLogic(objectMapper, jooq, historyLogic);
+        this.historyLogic = historyLogic;
     }
 
     @Override
     public boolean isAlreadyRecorded(Registration registrationPojo) {
-        Map<String, String> criteria = Map.ofEntries(
-                entry(getTable().EVENT_INFO_ID.getName(), Long.toString(registrationPojo.getEventInfoId())),
-                entry(getTable().SIGNATURE.getName(), registrationPojo.getSignature()),
-                entry(getTable().DONATION_PLEDGE.getName(), registrationPojo.getDonationPledge().toPlainString()),
-                entry(getTable().PARTICIPANT_ID.getName(), Long.toString(registrationPojo.getParticipantId())));
-        return fetchByCriteria(true, criteria, getIdColumn().getName(), false,0, 1).count() > 0;
+        return isFingerprintRecorded(registrationPojo);
+    }
+
+    @Override
+    List<TableField<RegistrationRecord, ?>> getBusinessFields() {
+        return BUSINESS_FIELDS;
+    }
+
+    @Override
+    HistoryLogic getHistoryLogic() {
+        return historyLogic;
     }
 
     @Override
@@ -50,11 +81,17 @@ public class RegistrationLogic extends WriteAndDeleteLogic<RegistrationRecord, R
                 .fetchOptional()
                 .map(RegistrationRecord::getId);
         if (insertedId.isPresent()) {
-            recordHistoryForInsert(historyLogic, actorId, convertToJson(pojo));
+            recordHistoryForInsert(historyLogic, actorId, insertedId.get(), () -> convertToJson(pojo));
+            onInserted(pojo);
         }
         return insertedId;
     }
 
+    @Override
+    void onInserted(Registration pojo) {
+        EventStatisticsLogic.LATEST.invalidate();
+    }
+
     @Override
     public int updateExisting(long actorId, Registration update) throws RegistrationException {
         if (update.getId() == null) {
@@ -62,28 +99,12 @@ public class RegistrationLogic extends WriteAndDeleteLogic<RegistrationRecord, R
                     new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "ID to update was missing. Please review your input and try again."),
                     "ID %d to update was missing.".formatted(update.getId()));
         }
-        var originalRecord = fetchById(update.getId()).orElseThrow(
-                () -> new RegistrationException(
-                        new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "Record to update was not found. Please review your input and try again."),
-                        "Record %d to update was not found.".formatted(update.getId())));
-        int updatedRecords = jooq
-                .update(getTable())
-                .set(getTable().EVENT_INFO_ID, update.getEventInfoId())
-                .set(getTable().SIGNATURE, update.getSignature())
-                .set(getTable().DONATION_PLEDGE, update.getDonationPledge())
-                .set(getTable().PARTICIPANT_ID, update.getParticipantId())
-                .where(getIdColumn().eq(update.getId()))
-                .and(
-                        getTable().EVENT_INFO_ID.notEqual(update.getEventInfoId())
-                                .or(getTable().SIGNATURE.notEqual(update.getSignature()))
-                                .or(getTable().DONATION_PLEDGE.notEqual(update.getDonationPledge()))
-                                .or(getTable().PARTICIPANT_ID.notEqual(update.getParticipantId()))
-                )
-                .execute();
-        if (updatedRecords > 0) {
-            recordHistoryForUpdate(historyLogic, actorId, convertToJson(originalRecord), convertToJson(update));
-        }
-        return updatedRecords;
+        return updateChangedFields(historyLogic, actorId, update.getId(), update);
+    }
+
+    @Override
+    void onUpdated(Change<Registration> change) {
+        EventStatisticsLogic.LATEST.invalidate();
     }
 
     @Override
@@ -94,10 +115,49 @@ public class RegistrationLogic extends WriteAndDeleteLogic<RegistrationRecord, R
         deleteCorrespondingGuests(actorId, idToDelete);
         var deletedRecords = jooq.deleteFrom(getTable()).where(getTable().ID.eq(idToDelete)).execute();
         if (deletedRecords > 0) {
-            recordHistoryForDeletion(historyLogic, actorId, convertToJson(originalRecord));
+            recordHistoryForDeletion(historyLogic, actorId, idToDelete, () -> convertToJson(originalRecord));
+            EventStatisticsLogic.LATEST.invalidate();
         }
     }
 
+    /**
+     * Rebuilds the registrations of an event as they were at the given time, all at once. The registrations rebuilt are
+     * those which any snapshot, checkpoint, or delta recorded by then places in the event, so registrations since moved
+     * to another event, or deleted, are found too. Only those still in the event at the given time are returned.
+     *
+     * @param eventInfoId the ID of the event.
+     * @param asOf the time at which to rebuild the registrations.
+     * @return the registrations of the event as they were, ordered by their ID.
+     */
+    public List<Registration> fetchEventRegistrationsAsOf(long eventInfoId, OffsetDateTime asOf) {
+        var inEvent = getObjectMapper().createObjectNode().put(EVENT_INFO_ID_PROPERTY, eventInfoId);
+        var movedToEvent = getObjectMapper().createArrayNode().add(getObjectMapper().createObjectNode()
+                .put("path", "/" + EVENT_INFO_ID_PROPERTY)
+                .put("value", eventInfoId));
+        Field<JSONB> newData = DATA_HISTORY.NEW_DATA.cast(SQLDataType.JSONB);
+        List<Long> candidateIds = jooq
+                .select(DATA_HISTORY.RECORD_ID)
+                .from(DATA_HISTORY)
+                .where(DATA_HISTORY.TABLE_SOURCE.eq(TableRef.REGISTRATION))
+                .and(DATA_HISTORY.RECORD_ID.isNotNull())
+                .and(DATA_HISTORY.TIME_RECORDED.le(asOf))
+                .and(jsonbContains(newData, inEvent.toString()).or(jsonbContains(newData, movedToEvent.toString())))
+                .union(DSL
+                        .select(DATA_HISTORY_CHECKPOINT.RECORD_ID)
+                        .from(DATA_HISTORY_CHECKPOINT)
+                        .where(DATA_HISTORY_CHECKPOINT.TABLE_SOURCE.eq(TableRef.REGISTRATION))
+                        .and(DATA_HISTORY_CHECKPOINT.TIME_RECORDED.le(asOf))
+                        .and(jsonbContains(DATA_HISTORY_CHECKPOINT.DATA, inEvent.toString())))
+                .fetchInto(Long.class);
+        return fetchAllAsOf(candidateIds, asOf).stream()
+                .filter(registration -> Long.valueOf(eventInfoId).equals(registration.getEventInfoId()))
+                .toList();
+    }
+
+    private static Condition jsonbContains(Field<JSONB> document, String contained) {
+        return DSL.condition("{0} @> {1}", document, DSL.val(JSONB.jsonb(contained)));
+    }
+
     @Override
     public Map<String, String> validate(Registration pojo) {
         return RegistrationValidator.of(pojo, false).getMessages();
@@ -8,9 +8,14 @@ import net.briclabs.evcoordinator.generated.tables.records.RegistrationPacketWit
 import net.briclabs.evcoordinator.model.RegistrationPacket;
 import net.briclabs.evcoordinator.validation.RegistrationPacketValidator;
 import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
 
 import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static net.briclabs.evcoordinator.generated.Tables.REGISTRATION_PACKET_WITH_LABEL;
 
@@ -32,14 +37,10 @@ public class RegistrationPacketLogic extends Logic<RegistrationPacketWithLabelRe
     }
 
     private final ParticipantLogic participantLogic;
-    private final RegistrationLogic registrationLogic;
-    private final GuestLogic guestLogic;
 
     public RegistrationPacketLogic(ObjectMapper objectMapper, DSLContext jooq) {
         super(objectMapper, jooq, RegistrationPacketWithLabel.class, REGISTRATION_PACKET_WITH_LABEL, REGISTRATION_PACKET_WITH_LABEL.ID);
         this.participantLogic = new ParticipantLogic(objectMapper, jooq);
-        this.registrationLogic = new RegistrationLogic(objectMapper, jooq);
-        this.guestLogic = new GuestLogic(objectMapper, jooq);
     }
 
     /**
@@ -54,64 +55,101 @@ public class RegistrationPacketLogic extends Logic<RegistrationPacketWithLabelRe
      * @throws RegistrationPacketException in the event there's a problem handling processing of a part of the Registration Packet.
      */
     public Long register(long actorId, RegistrationPacket registrationRequest) throws RegistrationPacketException {
-        var participantId = fetchOrInsertParticipatingAttendee(actorId, registrationRequest);
-        return processRegistration(actorId, registrationRequest.registration(), registrationRequest.guests(), participantId);
+        var participant = registrationRequest.participant();
+        return register(actorId, registrationRequest, participantLogic.fetchAttendeeIdByNameAndEmail(participant.getNameFirst(), participant.getNameLast(), participant.getAddrEmail()));
+    }
+
+    /**
+     * Registers the given packet as {@link #register(long, RegistrationPacket)} does, reusing the attendee lookup made
+     * while validating it rather than repeating it.
+     * <p>
+     * Everything is written in a single transaction, so a packet is either recorded as a whole or not at all. The
+     * registration is checked for and inserted in one statement, the guests are inserted in another, and the history of
+     * every inserted record is written together at the end, so the number of statements doesn't grow with the number
+     * of guests.
+     *
+     * @param actorId the participant ID of the participant submitting the registration packet.
+     * @param registrationRequest the registration to create.
+     * @param preexistingAttendeeId the ID of the preexisting attendee the packet's participant is, if any, as found by
+     *                              {@link RegistrationPacketValidator#getPreexistingAttendeeId()}.
+     * @return A {@code Long} containing the ID of the newly created registration.
+     * @throws RegistrationPacketException in the event there's a problem handling processing of a part of the Registration Packet.
+     */
+    public Long register(long actorId, RegistrationPacket registrationRequest, Optional<Long> preexistingAttendeeId) throws RegistrationPacketException {
+        Long registrationId;
+        try {
+            registrationId = jooq.transactionResult(configuration -> {
+                var historyLogic = new HistoryLogic(getObjectMapper(), configuration.dsl());
+                historyLogic.defer();
+                var participantId = preexistingAttendeeId.isPresent()
+                        ? preexistingAttendeeId.get()
+                        : insertParticipatingAttendee(actorId, registrationRequest, new ParticipantLogic(getObjectMapper(), configuration.dsl(), historyLogic));
+                var insertedRegistrationId = insertRegistration(actorId, registrationRequest.registration(), participantId, new RegistrationLogic(getObjectMapper(), configuration.dsl(), historyLogic));
+                insertGuests(actorId, registrationRequest.guests(), insertedRegistrationId, new GuestLogic(getObjectMapper(), configuration.dsl(), historyLogic));
+                historyLogic.flushDeferred();
+                return insertedRegistrationId;
+            });
+        } catch (DataAccessException e) {
+            // Checked exceptions thrown within the transaction come back wrapped, after it was rolled back.
+            if (e.getCause() instanceof RegistrationPacketException registrationPacketException) {
+                throw registrationPacketException;
+            }
+            throw e;
+        }
+        return registrationId;
     }
 
     @Override
     public Map<String, String> validate(RegistrationPacket pojo) {
-        return RegistrationPacketValidator.of(pojo, participantLogic).getMessages();
+        return validatePacket(pojo).getMessages();
     }
 
-    private Long fetchOrInsertParticipatingAttendee(long actorId, RegistrationPacket registrationRequest) throws RegistrationPacketException {
-        var preexistingAttendee = participantLogic.fetchAttendeeByNameAndEmail(registrationRequest.participant().getNameFirst(), registrationRequest.participant().getNameLast(), registrationRequest.participant().getAddrEmail());
-        if (preexistingAttendee.count() != 0 && preexistingAttendee.list().get(0).getId() != null) {
-            return preexistingAttendee.list().get(0).getId();
-        }
+    /**
+     * Validates the given registration packet, keeping the outcome of the lookups it involves.
+     *
+     * @param pojo the registration packet to validate.
+     * @return the validator, holding the validation messages and the preexisting attendee, if any.
+     */
+    public RegistrationPacketValidator validatePacket(RegistrationPacket pojo) {
+        return RegistrationPacketValidator.of(pojo, participantLogic);
+    }
+
+    private Long insertParticipatingAttendee(long actorId, RegistrationPacket registrationRequest, ParticipantLogic participantLogic) throws RegistrationPacketException {
         return participantLogic.insertNew(actorId, registrationRequest.participant()).orElseThrow(
                 () -> new RegistrationPacketException(
                         new AbstractMap.SimpleImmutableEntry<>("%s|%s".formatted(GENERAL_MESSAGE_KEY, PACKET_SECTION.PARTICIPANT.toString()), "Failed to record your information. Please review your input and try again."),
                         "Failed to insert participant %s.".formatted(registrationRequest.participant().getNameFirst() + " " + registrationRequest.participant().getNameLast() + " (" + registrationRequest.participant().getAddrEmail() + ")")));
     }
 
-    private Long processRegistration(long actorId, Registration registration, Guest[] guests, long presentParticipantId) throws RegistrationPacketException {
-        var registrationId = insertRegistration(actorId, registration, presentParticipantId);
-        insertGuests(actorId, guests, registrationId);
-
-        return registrationId;
-    }
-
-    private Long insertRegistration(long actorId, Registration registration, long participantId) throws RegistrationPacketException {
+    private Long insertRegistration(long actorId, Registration registration, long participantId, RegistrationLogic registrationLogic) throws RegistrationPacketException {
         var registrationToCreate = new Registration(null, participantId, registration.getDonationPledge(), registration.getSignature(), registration.getEventInfoId(), null);
-        if (registrationLogic.isAlreadyRecorded(registrationToCreate)) {
-            throw new RegistrationPacketException(
-                    new AbstractMap.SimpleImmutableEntry<>("%s|%s".formatted(GENERAL_MESSAGE_KEY, PACKET_SECTION.REGISTRATION.toString()), "Your registration has already been recorded. If you have changes to make, please contact the administrator."),
-                    "Registration for Participant ID %d and Event Info ID %d already exists.".formatted(participantId, registrationToCreate.getEventInfoId()));
-        } else {
-            return registrationLogic.insertNew(actorId, registrationToCreate).orElseThrow(
-                    () -> new RegistrationPacketException(
-                            new AbstractMap.SimpleImmutableEntry<>("%s|%s".formatted(GENERAL_MESSAGE_KEY, PACKET_SECTION.REGISTRATION.toString()), "Failed to record your registration. Please review your input and try again."),
-                            "Failed to insert Event Info ID %d registration for Participant ID %d.".formatted(registration.getEventInfoId(), participantId)));
-        }
+        return registrationLogic.insertNewIfAbsent(actorId, registrationToCreate).orElseThrow(
+                () -> new RegistrationPacketException(
+                        new AbstractMap.SimpleImmutableEntry<>("%s|%s".formatted(GENERAL_MESSAGE_KEY, PACKET_SECTION.REGISTRATION.toString()), "Your registration has already been recorded. If you have changes to make, please contact the administrator."),
+                        "Registration for Participant ID %d and Event Info ID %d already exists.".formatted(participantId, registrationToCreate.getEventInfoId())));
     }
 
     /**
-     * Inserts guests associated with a registration process and records them <b>if they are not already present</b>.
-     * Throws an exception if any guest could not be inserted. Silently ignores preexisting guests for this registration.
+     * Inserts the guests of a newly inserted registration in a single statement. Since the registration is new, the
+     * only guests which can already be present are repeats within the packet, which are silently ignored.
      *
      * @param actorId               The ID of the actor performing the operation.
      * @param guests                An array of {@code Guest} objects representing the guests to be inserted.
      * @param registrationId        The ID of the registration under which the guests are being added.
-     * @throws RegistrationPacketException if a guest insertion fails during the process.
+     * @param guestLogic            The guest logic bound to the registration's transaction.
+     * @throws RegistrationPacketException if not every guest was inserted.
      */
-    private void insertGuests(long actorId, Guest[] guests, Long registrationId) throws RegistrationPacketException {
+    private void insertGuests(long actorId, Guest[] guests, Long registrationId, GuestLogic guestLogic) throws RegistrationPacketException {
+        Map<List<Object>, Guest> guestsToCreate = new LinkedHashMap<>();
         for (var guest : guests) {
-            var guestToCreate = new Guest(null, registrationId, guest.getRawGuestName(), null, guest.getRelationship(), null);
-            if (!guestLogic.isAlreadyRecorded(guestToCreate) && guestLogic.insertNew(actorId, guestToCreate).isEmpty()) {
-                throw new RegistrationPacketException(
-                        new AbstractMap.SimpleImmutableEntry<>("%s|%s".formatted(GENERAL_MESSAGE_KEY, PACKET_SECTION.GUESTS.toString()), "Failed to record a guest. Please review your input and try again."),
-                        "Failed to insert guest %s for Registration ID %d.".formatted(guest.getRawGuestName(), registrationId));
-            }
+            guestsToCreate.putIfAbsent(
+                    Arrays.asList(guest.getRawGuestName(), guest.getRelationship()),
+                    new Guest(null, registrationId, guest.getRawGuestName(), null, guest.getRelationship(), null));
+        }
+        if (guestLogic.insertAll(actorId, List.copyOf(guestsToCreate.values())).size() != guestsToCreate.size()) {
+            throw new RegistrationPacketException(
+                    new AbstractMap.SimpleImmutableEntry<>("%s|%s".formatted(GENERAL_MESSAGE_KEY, PACKET_SECTION.GUESTS.toString()), "Failed to record a guest. Please review your input and try again."),
+                    "Failed to insert the guests for Registration ID %d.".formatted(registrationId));
         }
     }
 
@@ -7,20 +7,28 @@ import net.briclabs.evcoordinator.generated.tables.pojos.Transaction_;
 import net.briclabs.evcoordinator.generated.tables.records.TransactionWithLabelsRecord;
 import net.briclabs.evcoordinator.generated.tables.records.Transaction_Record;
 import net.briclabs.evcoordinator.validation.TransactionValidator;
-import org.apache.commons.lang3.StringUtils;
 import org.jooq.DSLContext;
-import org.jooq.impl.DSL;
+import org.jooq.TableField;
 
 import java.util.AbstractMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import static java.util.Map.entry;
 import static net.briclabs.evcoordinator.generated.tables.TransactionWithLabels.TRANSACTION_WITH_LABELS;
 import static net.briclabs.evcoordinator.generated.tables.Transaction_.TRANSACTION_;
 
 public class TransactionLogic extends WriteAndDeleteLogic<Transaction_Record, Transaction_, net.briclabs.evcoordinator.generated.tables.Transaction_> {
+
+    private static final List<TableField<Transaction_Record, ?>> BUSINESS_FIELDS = List.of(
+            TRANSACTION_.ACTOR_ID,
+            TRANSACTION_.RECIPIENT_ID,
+            TRANSACTION_.TRANSACTION_TYPE,
+            TRANSACTION_.INSTRUMENT_TYPE,
+            TRANSACTION_.AMOUNT,
+            TRANSACTION_.MEMO,
+            TRANSACTION_.EVENT_INFO_ID);
+
     private final HistoryLogic historyLogic;
 
     public TransactionLogic(ObjectMapper objectMapper, DSLContext jooq) {
@@ -30,15 +38,17 @@ public class TransactionLogic extends WriteAndDeleteLogic<Transaction_Record, Tr
 
     @Override
     public boolean isAlreadyRecorded(Transaction_ pojo) {
-        Map<String, String> criteria = Map.ofEntries(
-                entry(getTable().ACTOR_ID.getName(), Long.toString(pojo.getActorId())),
-                entry(getTable().RECIPIENT_ID.getName(), Long.toString(pojo.getRecipientId())),
-                entry(getTable().TRANSACTION_TYPE.getName(), pojo.getTransactionType().getLiteral()),
-                entry(getTable().INSTRUMENT_TYPE.getName(), pojo.getInstrumentType().getLiteral()),
-                entry(getTable().AMOUNT.getName(), pojo.getAmount().toPlainString()),
-                entry(getTable().MEMO.getName(), StringUtils.defaultString(pojo.getMemo(), "")),
-                entry(getTable().EVENT_INFO_ID.getName(), Long.toString(pojo.getEventInfoId())));
-        return fetchByCriteria(true, criteria, getIdColumn().getName(), false,0, 1).count() > 0;
+        return isFingerprintRecorded(pojo);
+    }
+
+    @Override
+    List<TableField<Transaction_Record, ?>> getBusinessFields() {
+        return BUSINESS_FIELDS;
+    }
+
+    @Override
+    HistoryLogic getHistoryLogic() {
+        return historyLogic;
     }
 
     @Override
@@ -56,11 +66,17 @@ public class TransactionLogic extends WriteAndDeleteLogic<Transaction_Record, Tr
                 .fetchOptional()
                 .map(Transaction_Record::getId);
         if (insertedId.isPresent()) {
-            recordHistoryForInsert(historyLogic, actorId, convertToJson(pojo));
+            recordHistoryForInsert(historyLogic, actorId, insertedId.get(), () -> convertToJson(pojo));
+            onInserted(pojo);
         }
         return insertedId;
     }
 
+    @Override
+    void onInserted(Transaction_ pojo) {
+        EventStatisticsLogic.LATEST.invalidate();
+    }
+
     @Override
     public int updateExisting(long actorId, Transaction_ update) throws TransactionException {
         if (update.getId() == null) {
@@ -68,32 +84,12 @@ public class TransactionLogic extends WriteAndDeleteLogic<Transaction_Record, Tr
                     new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "ID to update was missing. Please review your input and try again."),
                     "ID %d to update was missing.".formatted(update.getId()));
         }
-        var originalRecord = fetchById(update.getId()).orElseThrow(() -> new TransactionException(
-                new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "Record to update was not found. Please review your input and try again."),
-                "Record %d to update was not found.".formatted(update.getId())));
-        int updatedRecords = jooq
-                .update(getTable())
-                .set(getTable().ACTOR_ID, update.getActorId())
-                .set(getTable().RECIPIENT_ID, update.getRecipientId())
-                .set(getTable().TRANSACTION_TYPE, update.getTransactionType())
-                .set(getTable().INSTRUMENT_TYPE, update.getInstrumentType())
-                .set(getTable().AMOUNT, update.getAmount())
-                .set(getTable().MEMO, update.getMemo())
-                .set(getTable().EVENT_INFO_ID, update.getEventInfoId())
-                .where(getIdColumn().eq(update.getId()))
-                .and(
-                        getTable().ACTOR_ID.notEqual(update.getActorId())
-                                .or(getTable().RECIPIENT_ID.notEqual(update.getRecipientId()))
-                                .or(getTable().TRANSACTION_TYPE.notEqual(update.getTransactionType()))
-                                .or(getTable().INSTRUMENT_TYPE.notEqual(update.getInstrumentType()))
-                                .or(getTable().AMOUNT.notEqual(update.getAmount()))
-                                .or(DSL.coalesce(getTable().MEMO, "").notEqual(update.getMemo()))
-                                .or(getTable().EVENT_INFO_ID.notEqual(update.getEventInfoId()))
-                ).execute();
-        if (updatedRecords > 0) {
-            recordHistoryForUpdate(historyLogic, actorId, convertToJson(originalRecord), convertToJson(update));
-        }
-        return updatedRecords;
+        return updateChangedFields(historyLogic, actorId, update.getId(), update);
+    }
+
+    @Override
+    void onUpdated(Change<Transaction_> change) {
+        EventStatisticsLogic.LATEST.invalidate();
     }
 
     @Override
@@ -103,7 +99,8 @@ public class TransactionLogic extends WriteAndDeleteLogic<Transaction_Record, Tr
                 "Transaction with ID %d to be deleted was not found.".formatted(idToDelete)));
         var deletedRecords = jooq.deleteFrom(getTable()).where(getTable().ID.eq(idToDelete)).execute();
         if (deletedRecords > 0) {
-            recordHistoryForDeletion(historyLogic, actorId, convertToJson(originalRecord));
+            recordHistoryForDeletion(historyLogic, actorId, idToDelete, () -> convertToJson(originalRecord));
+            EventStatisticsLogic.LATEST.invalidate();
         }
     }
 
@@ -112,16 +109,6 @@ public class TransactionLogic extends WriteAndDeleteLogic<Transaction_Record, Tr
         return TransactionValidator.of(pojo).getMessages();
     }
 
-    /**
-     * Retrieves the list of transaction IDs associated with the given event ID.
-     *
-     * @param eventId the ID of the event for which transaction IDs need to be retrieved.
-     * @return a list of transaction IDs linked to the specified event ID.
-     */
-    public List<Long> getTransactionIdsByEventId(long eventId) {
-        return jooq.select(getIdColumn()).from(getTable()).where(getTable().EVENT_INFO_ID.eq(eventId)).fetchInto(Long.class);
-    }
-
     /**
      * Special logic class that works with a view instead of the raw table. The view provides useful label information for rows which, in the table, are simply FKs.
      */
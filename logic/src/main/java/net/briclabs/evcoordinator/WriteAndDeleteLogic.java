@@ -2,10 +2,12 @@ package net.briclabs.evcoordinator;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.briclabs.evcoordinator.generated.enums.DataHistoryType;
+import net.briclabs.evcoordinator.generated.enums.HistoryDataFormat;
 import net.briclabs.evcoordinator.generated.enums.TableRef;
-import net.briclabs.evcoordinator.generated.tables.pojos.DataHistory;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.JSON;
+import org.jooq.Result;
 import org.jooq.TableField;
 import org.jooq.impl.TableImpl;
 import org.jooq.impl.TableRecordImpl;
@@ -13,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.util.function.Supplier;
 
 public abstract class WriteAndDeleteLogic<R extends TableRecordImpl<R>, P extends Serializable, T extends TableImpl<R>> extends WriteLogic<R, P, T> implements DeletableRecord {
 
@@ -30,24 +33,44 @@ public abstract class WriteAndDeleteLogic<R extends TableRecordImpl<R>, P extend
      *
      * @param historyLogic the history logic instance to use to perform the history record insertion.
      * @param actorId The unique identifier of the user or system performing the deletion.
-     * @param deletedRecord A JSON object containing the details of the record that was deleted.
+     * @param recordId The ID of the deleted record.
+     * @param deletedRecord Supplies a JSON object containing the details of the record that was deleted, once the entry is written.
      */
-    void recordHistoryForDeletion(HistoryLogic historyLogic, long actorId, JSON deletedRecord) {
+    void recordHistoryForDeletion(HistoryLogic historyLogic, long actorId, long recordId, Supplier<JSON> deletedRecord) {
         var tableReference = TableRef.lookupLiteral(getTable().getName().toUpperCase());
         if (tableReference == null) {
             LOGGER.error("Unable to find table reference for table '{}'. Actor '{}' attempted to delete a record '{}'.",
-                    getTable().getName().toUpperCase(), actorId, deletedRecord
+                    getTable().getName().toUpperCase(), actorId, deletedRecord.get()
             );
         } else {
-            historyLogic.insertNew(actorId, new DataHistory(
-                    null,
+            historyLogic.record(new HistoryWriter.PendingEntry(
                     actorId,
                     DataHistoryType.DELETED,
                     tableReference,
-                    JSON.json("{}"),
-                    deletedRecord,
-                    null
+                    recordId,
+                    HistoryDataFormat.SNAPSHOT,
+                    EMPTY_JSON,
+                    deletedRecord
             ));
         }
     }
+
+    /**
+     * Deletes every record matching the given condition in a single {@code DELETE ... RETURNING} statement, and
+     * records the deletion of each returned record.
+     *
+     * @param transaction the DSL context through which to delete, typically bound to the caller's transaction.
+     * @param historyLogic the history logic instance to use to record the deletions.
+     * @param actorId The unique identifier of the user or system performing the deletion.
+     * @param condition the condition the records to delete match.
+     * @return the number of records deleted.
+     */
+    int deleteAllWhere(DSLContext transaction, HistoryLogic historyLogic, long actorId, Condition condition) {
+        Result<R> deletedRecords = transaction.deleteFrom(getTable()).where(condition).returning().fetch();
+        for (R deletedRecord : deletedRecords) {
+            P deletedPojo = deletedRecord.into(getRecordType());
+            recordHistoryForDeletion(historyLogic, actorId, deletedRecord.get(getIdColumn()), () -> convertToJson(deletedPojo));
+        }
+        return deletedRecords.size();
+    }
 }
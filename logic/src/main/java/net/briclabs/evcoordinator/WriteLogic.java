@@ -1,25 +1,61 @@
 package net.briclabs.evcoordinator;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import net.briclabs.evcoordinator.generated.enums.DataHistoryType;
+import net.briclabs.evcoordinator.generated.enums.HistoryDataFormat;
 import net.briclabs.evcoordinator.generated.enums.TableRef;
-import net.briclabs.evcoordinator.generated.tables.pojos.DataHistory;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 import org.jooq.JSON;
+import org.jooq.Name;
+import org.jooq.Record;
+import org.jooq.SelectFieldOrAsterisk;
+import org.jooq.Table;
 import org.jooq.TableField;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.jooq.impl.TableImpl;
 import org.jooq.impl.TableRecordImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static net.briclabs.evcoordinator.generated.tables.DataHistory.DATA_HISTORY;
 
 public abstract class WriteLogic<R extends TableRecordImpl<R>, P extends Serializable, T extends TableImpl<R>> extends Logic<R, P, T> implements Validatable<P> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(WriteLogic.class);
 
+    static final Supplier<JSON> EMPTY_JSON = () -> JSON.json("{}");
+
+    /**
+     * The name of the column, and suffix of the function computing it, holding the fingerprint of each record.
+     */
+    private static final String FINGERPRINT = "fingerprint";
+
+    private static final Name INSERTED = DSL.name("inserted");
+    private static final Name HISTORY = DSL.name("history");
+    private static final String ORIGINAL = "original";
+
     public WriteLogic(ObjectMapper objectMapper, DSLContext jooq, Class<P> recordType, T table, TableField<R, Long> idColumn
     ) {
         super(objectMapper, jooq, recordType, table, idColumn);
@@ -33,6 +69,121 @@ public abstract class WriteLogic<R extends TableRecordImpl<R>, P extends Seriali
      */
     abstract public boolean isAlreadyRecorded(P pojo);
 
+    /**
+     * Determines whether a record with the same content as the given one is already recorded, with a single probe of
+     * the index on the fingerprints the database keeps for every record. The fingerprint of the given record is computed
+     * by the same SQL function which computes the stored ones, so the two can't drift.
+     *
+     * @param pojo the POJO being considered.
+     * @return whether a record with the same content already exists in the database.
+     */
+    boolean isFingerprintRecorded(P pojo) {
+        return jooq.fetchExists(DSL
+                .selectOne()
+                .from(getTable())
+                .where(fingerprintMatches(boundBusinessValues(pojo))));
+    }
+
+    /**
+     * Retrieves the fields making up the content of a record: the ones an insert sets, which are also the ones the
+     * table's fingerprint function takes, in the order it takes them.
+     *
+     * @return the business fields of the table.
+     */
+    abstract List<TableField<R, ?>> getBusinessFields();
+
+    /**
+     * Retrieves the history logic through which changes to the records of the table are recorded. Logic created to
+     * share one, such as the logic registering a packet, records through it, so its entries are written along with
+     * the others.
+     *
+     * @return the history logic of this logic.
+     */
+    HistoryLogic getHistoryLogic() {
+        return new HistoryLogic(getObjectMapper(), jooq);
+    }
+
+    /**
+     * Called once a record was inserted, so that whatever depends on the table can be invalidated.
+     *
+     * @param pojo the inserted record.
+     */
+    void onInserted(P pojo) {
+    }
+
+    /**
+     * Called once a record was updated, so that whatever depends on the table can be invalidated.
+     *
+     * @param change the record before and after the update.
+     */
+    void onUpdated(Change<P> change) {
+    }
+
+    /**
+     * Adds a new record to the database unless one with the same content is already recorded, in a single statement.
+     * <p>
+     * The insert skips a record whose fingerprint is already recorded, and does nothing should it conflict with any of
+     * the table's unique constraints, so two concurrent creates of the same record can't both succeed. When history is
+     * written durably, the history entry is inserted by the same statement, through a data-modifying common table
+     * expression which only sees the row if one was inserted.
+     *
+     * @param actorId the ID of the participant performing the action.
+     * @param pojo the POJO representation of the object to be written to the database.
+     * @return the Primary Key ID of the object that has been written to the database, or an empty {@code Optional} if
+     *         it was already recorded.
+     */
+    public Optional<Long> insertNewIfAbsent(long actorId, P pojo) {
+        Field<?>[] values = boundBusinessValues(pojo);
+        var insert = jooq
+                .insertInto(getTable())
+                .columns(getBusinessFields())
+                .select(DSL.select(values).whereNotExists(DSL.selectOne().from(getTable()).where(fingerprintMatches(values))))
+                .onConflictDoNothing()
+                .returning(getIdColumn());
+        var tableReference = TableRef.lookupLiteral(getTable().getName().toUpperCase());
+        Optional<Long> insertedId;
+        if (actorId > 0 && tableReference != null && HistoryWriter.installed().isDurable()) {
+            var history = DSL
+                    .insertInto(DATA_HISTORY, DATA_HISTORY.ACTOR_ID, DATA_HISTORY.ACTION_NAME, DATA_HISTORY.TABLE_SOURCE, DATA_HISTORY.RECORD_ID, DATA_HISTORY.DATA_FORMAT, DATA_HISTORY.NEW_DATA, DATA_HISTORY.OLD_DATA)
+                    .select(DSL
+                            .select(
+                                    DSL.val(actorId, DATA_HISTORY.ACTOR_ID),
+                                    DSL.val(DataHistoryType.INSERTED, DATA_HISTORY.ACTION_NAME),
+                                    DSL.val(tableReference, DATA_HISTORY.TABLE_SOURCE),
+                                    DSL.field(getIdColumn().getUnqualifiedName(), DATA_HISTORY.RECORD_ID.getDataType()),
+                                    DSL.val(HistoryDataFormat.SNAPSHOT, DATA_HISTORY.DATA_FORMAT),
+                                    DSL.val(convertToJson(pojo), DATA_HISTORY.NEW_DATA),
+                                    DSL.val(EMPTY_JSON.get(), DATA_HISTORY.OLD_DATA))
+                            .from(DSL.table(INSERTED)));
+            insertedId = jooq
+                    .resultQuery("WITH {0} AS ({1}), {2} AS ({3}) SELECT {4} FROM {0}", INSERTED, insert, HISTORY, history, DSL.field(getIdColumn().getUnqualifiedName()))
+                    .fetchOptional(0, Long.class);
+        } else {
+            insertedId = insert.fetchOptional().map(inserted -> inserted.get(getIdColumn()));
+            if (insertedId.isPresent()) {
+                recordHistoryForInsert(getHistoryLogic(), actorId, insertedId.get(), () -> convertToJson(pojo));
+            }
+        }
+        if (insertedId.isPresent()) {
+            onInserted(pojo);
+        }
+        return insertedId;
+    }
+
+    private Field<?>[] boundBusinessValues(P pojo) {
+        R record = jooq.newRecord(getTable(), pojo);
+        return getBusinessFields().stream().map(field -> boundValue(record, field)).toArray(Field[]::new);
+    }
+
+    private Condition fingerprintMatches(Field<?>[] businessValues) {
+        return DSL.field(DSL.name(getTable().getName(), FINGERPRINT), SQLDataType.VARBINARY)
+                .eq(DSL.function(DSL.name(getTable().getName() + "_" + FINGERPRINT), SQLDataType.VARBINARY, businessValues));
+    }
+
+    private static <T> Field<T> boundValue(Record record, Field<T> field) {
+        return DSL.val(record.get(field), field);
+    }
+
     /**
      * Adds a new record to the database.
      * @param actorId the ID of the participant performing the action.
@@ -50,59 +201,271 @@ public abstract class WriteLogic<R extends TableRecordImpl<R>, P extends Seriali
      */
     abstract public int updateExisting(long actorId, P update) throws LogicException;
 
+    /**
+     * Updates the given record, setting its business fields to the values of the given POJO, should any of them
+     * differ. Only the fields which changed go to history.
+     *
+     * @param historyLogic the history logic through which the change is recorded.
+     * @param actorId the ID of the participant performing the action.
+     * @param id the ID of the record to update.
+     * @param update the POJO holding the values to set.
+     * @return the number of records updated: none if the record wasn't found, or if nothing differed.
+     */
+    int updateChangedFields(HistoryLogic historyLogic, long actorId, long id, P update) {
+        var change = updateFields(jooq, id, jooq.newRecord(getTable(), update), getBusinessFields());
+        change.ifPresent(updated -> {
+            recordHistoryForUpdate(historyLogic, actorId, id, updated);
+            onUpdated(updated);
+        });
+        return change.isPresent() ? 1 : 0;
+    }
+
+    /**
+     * Partially updates a record, setting only the fields present in the given changes. The changes are keyed by the
+     * properties of the POJO, as it's serialized. The record is validated as it stands after the update, which is
+     * rolled back should it not be valid.
+     *
+     * @param actorId the ID of the participant performing the action.
+     * @param id the ID of the record to update.
+     * @param changes the values of the fields to change.
+     * @return the number of records updated: none if the record wasn't found, or if nothing differed.
+     * @throws InvalidChangesException if the changes can't be applied, or if the updated record isn't valid.
+     */
+    public int patchExisting(long actorId, long id, ObjectNode changes) throws InvalidChangesException {
+        Map<String, String> errors = new LinkedHashMap<>();
+        List<TableField<R, ?>> fields = new ArrayList<>();
+        for (Iterator<String> properties = changes.fieldNames(); properties.hasNext(); ) {
+            String property = properties.next();
+            getBusinessFields().stream()
+                    .filter(field -> normalized(field.getName()).equals(normalized(property)))
+                    .findFirst()
+                    .ifPresentOrElse(fields::add, () -> errors.put(property, "This field cannot be changed."));
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidChangesException(errors, "Unknown or read-only fields %s were to be changed on record %d.".formatted(errors.keySet(), id));
+        }
+        R values;
+        try {
+            values = jooq.newRecord(getTable(), getObjectMapper().treeToValue(changes, getRecordType()));
+        } catch (JsonProcessingException e) {
+            throw new InvalidChangesException(
+                    Map.of(GENERAL_MESSAGE_KEY, "The changes could not be read. Please review your input and try again."),
+                    "Changes to record %d could not be read: %s".formatted(id, e.getMessage()));
+        }
+        Optional<Change<P>> change;
+        try {
+            change = jooq.transactionResult(configuration -> {
+                var updated = updateFields(configuration.dsl(), id, values, fields);
+                if (updated.isPresent()) {
+                    var validationErrors = validate(updated.get().after());
+                    if (!validationErrors.isEmpty()) {
+                        throw new InvalidChangesException(validationErrors, "Changes to record %d left it invalid.".formatted(id));
+                    }
+                    recordHistoryForUpdate(getHistoryLogic().within(configuration.dsl()), actorId, id, updated.get());
+                }
+                return updated;
+            });
+        } catch (DataAccessException e) {
+            // Checked exceptions thrown within the transaction come back wrapped, after it was rolled back.
+            if (e.getCause() instanceof InvalidChangesException invalidChanges) {
+                throw invalidChanges;
+            }
+            throw e;
+        }
+        change.ifPresent(this::onUpdated);
+        return change.isPresent() ? 1 : 0;
+    }
+
+    /**
+     * Sets the given fields of a record to the values of the given record, should any of them differ, in a single
+     * statement. The record is locked and read by a subquery of the update, which returns it both as it was and as it
+     * now is.
+     *
+     * @param jooq the DSL context through which the update is run.
+     * @param id the ID of the record to update.
+     * @param values the record holding the values to set.
+     * @param fields the fields to set.
+     * @return the record before and after the update, or an empty {@code Optional} if it wasn't found, or if nothing
+     *         differed.
+     */
+    Optional<Change<P>> updateFields(DSLContext jooq, long id, R values, List<TableField<R, ?>> fields) {
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        Table<?> original = DSL
+                .select(getTable().fields())
+                .from(getTable())
+                .where(getIdColumn().eq(id))
+                .forUpdate()
+                .asTable(ORIGINAL);
+        Map<Field<?>, Field<?>> assignments = new LinkedHashMap<>();
+        List<Condition> differences = new ArrayList<>();
+        for (TableField<R, ?> field : fields) {
+            assignments.put(field, boundValue(values, field));
+            differences.add(differs(original, values, field));
+        }
+        int width = getTable().fields().length;
+        return jooq
+                .update(getTable())
+                .set(assignments)
+                .from(original)
+                .where(getIdColumn().eq(original.field(getIdColumn())))
+                .and(DSL.or(differences))
+                .returningResult(Stream.concat(Arrays.stream(original.fields()), Arrays.stream(getTable().fields())).toArray(SelectFieldOrAsterisk[]::new))
+                .fetchOptional()
+                .map(row -> {
+                    Object[] columns = row.intoArray();
+                    R before = jooq.newRecord(getTable());
+                    before.fromArray(Arrays.copyOfRange(columns, 0, width));
+                    R after = jooq.newRecord(getTable());
+                    after.fromArray(Arrays.copyOfRange(columns, width, 2 * width));
+                    return new Change<>(before.into(getRecordType()), after.into(getRecordType()));
+                });
+    }
+
+    private static <T> Condition differs(Table<?> original, Record values, Field<T> field) {
+        // JSON has no equality operator, so JSON values are compared as JSONB.
+        if (field.getType() == JSON.class) {
+            return original.field(field).cast(SQLDataType.JSONB).isDistinctFrom(boundValue(values, field).cast(SQLDataType.JSONB));
+        }
+        return original.field(field).isDistinctFrom(boundValue(values, field));
+    }
+
+    private static String normalized(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+
+    /**
+     * Rebuilds a record as it was at the given time from its history.
+     *
+     * @param id the ID of the record.
+     * @param asOf the time at which to rebuild it.
+     * @return the record as it was, or an empty {@code Optional} if it didn't exist then, or its history doesn't go
+     *         back that far.
+     */
+    public Optional<P> fetchAsOf(long id, OffsetDateTime asOf) {
+        return fetchAllAsOf(List.of(id), asOf).stream().findFirst();
+    }
+
+    /**
+     * Rebuilds records as they were at the given time from their history, all at once.
+     *
+     * @param ids the IDs of the records.
+     * @param asOf the time at which to rebuild them.
+     * @return the records as they were, ordered by their ID, leaving out those which didn't exist then, or whose
+     *         history doesn't go back that far.
+     */
+    public List<P> fetchAllAsOf(Collection<Long> ids, OffsetDateTime asOf) {
+        var tableReference = TableRef.lookupLiteral(getTable().getName().toUpperCase());
+        if (tableReference == null) {
+            LOGGER.error("Unable to find table reference for table '{}'. Records {} could not be rebuilt as of {}.",
+                    getTable().getName().toUpperCase(), ids, asOf
+            );
+            return List.of();
+        }
+        // Records are rebuilt from entries recorded under earlier versions of the POJO, which may hold fields since removed.
+        var reader = getObjectMapper().readerFor(getRecordType()).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return getHistoryLogic().rebuildAsOf(tableReference, ids, asOf).values().stream()
+                .map(document -> {
+                    try {
+                        return reader.<P>readValue(document);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Failed to read record %s rebuilt from history.".formatted(document), e);
+                    }
+                })
+                .toList();
+    }
+
     /**
      * Records the history of an insert operation by logging the changes into the data history table.
      *
      * @param historyLogic the history logic instance to use to perform the history record insertion.
      * @param actorId the ID of the actor performing the insert operation.
-     * @param insertedRecord the JSON representation of the newly inserted record.
+     * @param recordId the ID of the inserted record.
+     * @param insertedRecord supplies the JSON representation of the newly inserted record, once the entry is written.
      */
-    void recordHistoryForInsert(HistoryLogic historyLogic, long actorId, JSON insertedRecord) {
+    void recordHistoryForInsert(HistoryLogic historyLogic, long actorId, long recordId, Supplier<JSON> insertedRecord) {
         var tableReference = TableRef.lookupLiteral(getTable().getName().toUpperCase());
         if (tableReference == null) {
             LOGGER.error("Unable to find table reference for table '{}'. Actor '{}' attempted to insert new record '{}'.",
-                    getTable().getName().toUpperCase(), actorId, insertedRecord
+                    getTable().getName().toUpperCase(), actorId, insertedRecord.get()
             );
         } else {
-            historyLogic.insertNew(actorId, new DataHistory(
-                    null,
+            historyLogic.record(new HistoryWriter.PendingEntry(
                     actorId,
                     DataHistoryType.INSERTED,
                     tableReference,
+                    recordId,
+                    HistoryDataFormat.SNAPSHOT,
                     insertedRecord,
-                    JSON.json("{}"),
-                    null
+                    EMPTY_JSON
             ));
         }
     }
 
     /**
-     * Records the history of an update operation by logging the changes into the data history table.
+     * Records the history of an update as a delta: the fields which changed, as JSON Patch "replace" operations, with
+     * their new values as the new data and their old values as the old data.
      *
      * @param historyLogic the history logic instance to use to perform the history record insertion.
      * @param actorId the ID of the actor performing the update operation.
-     * @param originalRecord the JSON representation of the record before the update.
-     * @param update the JSON representation of the record after the update.
+     * @param recordId the ID of the updated record.
+     * @param change the record before and after the update.
      */
-    void recordHistoryForUpdate(HistoryLogic historyLogic, long actorId, JSON originalRecord, JSON update) {
+    void recordHistoryForUpdate(HistoryLogic historyLogic, long actorId, long recordId, Change<P> change) {
         var tableReference = TableRef.lookupLiteral(getTable().getName().toUpperCase());
         if (tableReference == null) {
-            LOGGER.error("Unable to find table reference for table '{}'. Actor '{}' attempted to update a record from '{}' to '{}'.",
-                    getTable().getName().toUpperCase(), actorId, originalRecord, update
+            LOGGER.error("Unable to find table reference for table '{}'. Actor '{}' attempted to update record {} from '{}' to '{}'.",
+                    getTable().getName().toUpperCase(), actorId, recordId, change.before(), change.after()
             );
         } else {
-            historyLogic.insertNew(actorId, new DataHistory(
-                    null,
+            ObjectNode before = getObjectMapper().valueToTree(change.before());
+            ObjectNode after = getObjectMapper().valueToTree(change.after());
+            String idProperty = getIdColumn().getName();
+            var newValues = JsonPatch.replaceOperations(before, after, idProperty);
+            var oldValues = JsonPatch.replaceOperations(after, before, idProperty);
+            historyLogic.record(new HistoryWriter.PendingEntry(
                     actorId,
                     DataHistoryType.UPDATED,
                     tableReference,
-                    update,
-                    originalRecord,
-                    null
+                    recordId,
+                    HistoryDataFormat.DELTA,
+                    () -> JSON.json(newValues.toString()),
+                    () -> JSON.json(oldValues.toString())
             ));
         }
     }
 
+    /**
+     * A record as it was before an update, and as it is after.
+     *
+     * @param before the record before the update.
+     * @param after the record after the update.
+     */
+    record Change<P>(P before, P after) {
+    }
+
+    /**
+     * Thrown when changes to a record can't be applied, or would leave it invalid.
+     */
+    public static class InvalidChangesException extends LogicException {
+        private final Map<String, String> messages;
+
+        public InvalidChangesException(Map<String, String> messages, String troubleshootingMessage) {
+            super(new AbstractMap.SimpleImmutableEntry<>(GENERAL_MESSAGE_KEY, "Please review your input and try again."), troubleshootingMessage);
+            this.messages = messages;
+        }
+
+        /**
+         * Retrieves the messages describing why the changes couldn't be applied.
+         *
+         * @return a map whose keys are the names of fields, and whose values are the messages specific to them.
+         */
+        public Map<String, String> getMessages() {
+            return messages;
+        }
+    }
+
     /**
      * Represents an exception that occurs during the execution of logic operations.
      * This exception is designed to provide both a public-facing message and a
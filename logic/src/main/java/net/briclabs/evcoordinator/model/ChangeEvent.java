@@ -0,0 +1,13 @@
+package net.briclabs.evcoordinator.model;
+
+/**
+ * Represents a change to a record, as notified by the database once the history entry recording it is committed.
+ * <p>
+ * Fields:
+ * @param table the table of the record, as recorded in the history.
+ * @param action whether the record was inserted, updated, or deleted.
+ * @param id the ID of the record.
+ * @param eventInfoId the ID of the event the record belongs to, if any.
+ */
+public record ChangeEvent(String table, String action, Long id, Long eventInfoId) {
+}
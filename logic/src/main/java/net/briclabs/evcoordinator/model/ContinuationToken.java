@@ -0,0 +1,14 @@
+package net.briclabs.evcoordinator.model;
+
+/**
+ * The decoded form of the opaque continuation token handed out with a page of search results.
+ * It captures the position of the last row of the page so the next page can be fetched by seeking
+ * past it rather than by skipping an offset.
+ *
+ * @param sortColumn the name of the column the results were sorted on.
+ * @param sortAsc whether the results were sorted in ascending order.
+ * @param sortValue the sort column's value in the last row of the page, or {@code null} if it was empty.
+ * @param id the ID of the last row of the page, used as a tie-breaker between rows sharing the same sort value.
+ */
+public record ContinuationToken(String sortColumn, boolean sortAsc, String sortValue, long id) {
+}
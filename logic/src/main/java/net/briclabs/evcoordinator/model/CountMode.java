@@ -0,0 +1,23 @@
+package net.briclabs.evcoordinator.model;
+
+/**
+ * Determines how the total number of records matching a search is reported.
+ */
+public enum CountMode {
+    /**
+     * Counts every matching record. The count is taken in the same statement as the page wherever possible.
+     */
+    EXACT,
+    /**
+     * Reports the query planner's estimate of the matching records, which is cheap but approximate.
+     */
+    ESTIMATED,
+    /**
+     * Skips counting and only reports whether another page follows the current one.
+     */
+    HAS_MORE,
+    /**
+     * Skips counting altogether.
+     */
+    NONE
+}
@@ -0,0 +1,15 @@
+package net.briclabs.evcoordinator.model;
+
+/**
+ * The formats search results can be exported in.
+ */
+public enum ExportFormat {
+    /**
+     * Newline-delimited JSON: one JSON object per record, each on its own line.
+     */
+    NDJSON,
+    /**
+     * Comma-separated values, preceded by a header row naming the columns.
+     */
+    CSV
+}
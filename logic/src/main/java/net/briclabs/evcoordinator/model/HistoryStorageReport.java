@@ -0,0 +1,14 @@
+package net.briclabs.evcoordinator.model;
+
+/**
+ * Represents how much storage the history takes, and how much compacting it into deltas saved.
+ * <p>
+ * Fields:
+ * @param snapshots the number of entries holding a full snapshot of the record.
+ * @param deltas the number of entries holding only the fields which changed.
+ * @param dataBytes the number of bytes the recorded data of every entry takes.
+ * @param rowsCompacted the number of entries compacted from snapshots into deltas.
+ * @param bytesSavedByCompaction the number of bytes compacting those entries saved.
+ */
+public record HistoryStorageReport(Long snapshots, Long deltas, Long dataBytes, Long rowsCompacted, Long bytesSavedByCompaction) {
+}
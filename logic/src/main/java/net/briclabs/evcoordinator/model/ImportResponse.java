@@ -0,0 +1,15 @@
+package net.briclabs.evcoordinator.model;
+
+import java.util.Map;
+
+/**
+ * Represents the response to a bulk import.
+ * <p>
+ * Fields:
+ * @param numberOfRecordsImported the number of records imported.
+ * @param messages A map containing the messages of the rows which weren't imported. The map's keys are the number of
+ *                 the row, starting at 1 for the first row after any header, followed by a pipe and the name of the
+ *                 field concerned. The values are the messages specific to those fields.
+ */
+public record ImportResponse(Integer numberOfRecordsImported, Map<String, String> messages) {
+}
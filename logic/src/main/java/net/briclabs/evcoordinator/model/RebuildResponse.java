@@ -0,0 +1,11 @@
+package net.briclabs.evcoordinator.model;
+
+/**
+ * Represents the response to rebuilding derived data from scratch.
+ * <p>
+ * Fields:
+ * @param numberOfRecordsDrifted The number of records whose stored values differed from what the rebuild produced.
+ *                               Anything other than zero means the incremental maintenance missed a change.
+ */
+public record RebuildResponse(Integer numberOfRecordsDrifted) {
+}
@@ -5,8 +5,11 @@ package net.briclabs.evcoordinator.model;
  * @param exactMatch whether the results should be exact matches (`equals` and `and` vs `contains` and `or`).
  * @param sortColumn the column on which the results are to be sorted.
  * @param sortAsc whether to sort the results in ascending order.
- * @param offset how many records to skip before returning the rest.
+ * @param offset how many records to skip before returning the rest. Ignored when a continuation token is provided.
  * @param max the maximum number of records to return.
+ * @param continuationToken the opaque token returned with the previous page, used to continue paging from where that page ended (optional).
+ * @param countMode how the total number of matching records should be determined (optional, defaults to exact).
+ * @param rankBySimilarity whether to put the results most similar to the criteria first. Only applies to non-exact searches, which then page by offset.
  */
-public record SearchConfiguration(boolean exactMatch, String sortColumn, boolean sortAsc, int offset, int max) {
+public record SearchConfiguration(boolean exactMatch, String sortColumn, boolean sortAsc, int offset, int max, String continuationToken, CountMode countMode, boolean rankBySimilarity) {
 }
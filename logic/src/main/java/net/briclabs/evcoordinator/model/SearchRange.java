@@ -0,0 +1,10 @@
+package net.briclabs.evcoordinator.model;
+
+/**
+ * A range of values to which the results of a search are restricted, on top of the search criteria.
+ *
+ * @param from the lowest value, included (optional).
+ * @param to the value at which the range ends, excluded (optional).
+ */
+public record SearchRange(String from, String to) {
+}
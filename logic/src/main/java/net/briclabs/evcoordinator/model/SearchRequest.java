@@ -8,6 +8,12 @@ import java.util.Map;
  *
  * @param searchConfiguration the configuration details for the search, such as sorting, offset, and matching preferences.
  * @param searchCriteria a map of key-value pairs representing the fields and their corresponding values to filter the search results.
+ * @param searchRanges a map of fields to the ranges their values must fall within, which always apply, whether the
+ *                     search is exact or not (optional).
  */
-public record SearchRequest(SearchConfiguration searchConfiguration, Map<String, String> searchCriteria) {
+public record SearchRequest(SearchConfiguration searchConfiguration, Map<String, String> searchCriteria, Map<String, SearchRange> searchRanges) {
+
+    public SearchRequest(SearchConfiguration searchConfiguration, Map<String, String> searchCriteria) {
+        this(searchConfiguration, searchCriteria, Map.of());
+    }
 }
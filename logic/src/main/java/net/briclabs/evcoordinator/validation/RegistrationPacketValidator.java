@@ -6,6 +6,7 @@ import net.briclabs.evcoordinator.model.RegistrationPacket;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 public class RegistrationPacketValidator implements Validator {
 
@@ -14,6 +15,8 @@ public class RegistrationPacketValidator implements Validator {
 
     private final Map<String, String> messages = new HashMap<>();
 
+    private Long preexistingAttendeeId;
+
     private RegistrationPacketValidator(RegistrationPacket pojo, ParticipantLogic participantLogic) {
         this.pojo = pojo;
         this.participantLogic = participantLogic;
@@ -29,7 +32,8 @@ public class RegistrationPacketValidator implements Validator {
             this.addMessageOverallIncomplete();
             return;
         }
-        if (!participantLogic.attendeePreexists(pojo.participant().getNameFirst(), pojo.participant().getNameLast(), pojo.participant().getAddrEmail())) {
+        preexistingAttendeeId = participantLogic.fetchAttendeeIdByNameAndEmail(pojo.participant().getNameFirst(), pojo.participant().getNameLast(), pojo.participant().getAddrEmail()).orElse(null);
+        if (preexistingAttendeeId == null) {
             this.addMessage(RegistrationPacketLogic.PACKET_SECTION.PARTICIPANT, ParticipantValidator.of(pojo.participant(), true).getMessages());
         }
         addIndexedGuestsMessages();
@@ -59,4 +63,13 @@ public class RegistrationPacketValidator implements Validator {
     public Map<String, String> getMessages() {
         return Map.copyOf(messages);
     }
+
+    /**
+     * Retrieves the ID of the preexisting attendee the packet's participant was found to be while validating.
+     *
+     * @return an {@code Optional} containing the attendee's ID, or an empty {@code Optional} if the participant is new.
+     */
+    public Optional<Long> getPreexistingAttendeeId() {
+        return Optional.ofNullable(preexistingAttendeeId);
+    }
 }
@@ -0,0 +1,170 @@
+package net.briclabs.evcoordinator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.briclabs.evcoordinator.generated.enums.TableRef;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.SQLDialect;
+import org.jooq.conf.ParamType;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY;
+import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY_CHECKPOINT;
+import static net.briclabs.evcoordinator.generated.Tables.DATA_HISTORY_WITH_LABELS;
+import static net.briclabs.evcoordinator.generated.Tables.EVENT_INFO;
+import static net.briclabs.evcoordinator.generated.Tables.GUEST;
+import static net.briclabs.evcoordinator.generated.Tables.GUEST_WITH_LABELS;
+import static net.briclabs.evcoordinator.generated.Tables.PARTICIPANT;
+import static net.briclabs.evcoordinator.generated.Tables.REGISTRATION;
+import static net.briclabs.evcoordinator.generated.Tables.REGISTRATION_WITH_LABELS;
+import static net.briclabs.evcoordinator.generated.Tables.TRANSACTION_;
+import static net.briclabs.evcoordinator.generated.Tables.TRANSACTION_WITH_LABELS;
+
+/**
+ * Guards the hot queries against plan regressions.
+ * <p>
+ * Seeds a local database with enough rows for the planner to prefer indexes, then runs {@code EXPLAIN (FORMAT JSON)}
+ * for each hot query and fails when any of them sequentially scans a table holding more rows than the threshold.
+ * Everything runs in a single transaction which is rolled back at the end, so the database is left as it was found.
+ * <p>
+ * Run it through the {@code checkQueryPlans} Gradle task. The connection and sizing can be overridden with the
+ * {@code planCheck.url}, {@code planCheck.user}, {@code planCheck.password}, {@code planCheck.participants} and
+ * {@code planCheck.seqScanRowThreshold} system properties.
+ */
+public class QueryPlanCheck {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryPlanCheck.class);
+
+    private static final String URL = System.getProperty("planCheck.url", "jdbc:postgresql://localhost:5432/evcoordinator");
+    private static final String USER = System.getProperty("planCheck.user", "postgres-user");
+    private static final String PASSWORD = System.getProperty("planCheck.password", "postgres-pass");
+    private static final int PARTICIPANTS = Integer.getInteger("planCheck.participants", 20_000);
+    private static final int EVENTS = 50;
+    private static final int GUESTS_PER_REGISTRATION = 2;
+    private static final int HISTORY_PER_REGISTRATION = 3;
+    private static final long SEQ_SCAN_ROW_THRESHOLD = Long.getLong("planCheck.seqScanRowThreshold", 1_000L);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        List<String> regressions;
+        try (Connection connection = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            connection.setAutoCommit(false);
+            try {
+                regressions = new QueryPlanCheck().check(DSL.using(connection, SQLDialect.POSTGRES));
+            } finally {
+                connection.rollback();
+            }
+        }
+        if (regressions.isEmpty()) {
+            LOGGER.info("No hot query sequentially scans a table of more than {} rows.", SEQ_SCAN_ROW_THRESHOLD);
+        } else {
+            regressions.forEach(LOGGER::error);
+            System.exit(1);
+        }
+    }
+
+    private List<String> check(DSLContext jooq) throws Exception {
+        seed(jooq);
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Query> hotQuery : hotQueries(jooq).entrySet()) {
+            JsonNode plan = explain(jooq, hotQuery.getValue());
+            List<String> scanned = new ArrayList<>();
+            collectSequentialScans(plan, scanned);
+            for (String relation : scanned) {
+                long relationRows = estimatedRows(jooq, relation);
+                if (relationRows > SEQ_SCAN_ROW_THRESHOLD) {
+                    regressions.add("'%s' sequentially scans %s (~%d rows): %s".formatted(hotQuery.getKey(), relation, relationRows, hotQuery.getValue().getSQL(ParamType.INLINED)));
+                }
+            }
+            LOGGER.info("Checked '{}'{}.", hotQuery.getKey(), scanned.isEmpty() ? "" : ", which sequentially scans " + scanned);
+        }
+        return regressions;
+    }
+
+    /**
+     * The queries behind the lookups and views which are hit the most or which touch the most rows.
+     */
+    private Map<String, Query> hotQueries(DSLContext jooq) {
+        long eventId = jooq.select(DSL.max(EVENT_INFO.ID)).from(EVENT_INFO).fetchOne(0, Long.class);
+        long registrationId = jooq.select(DSL.max(REGISTRATION.ID)).from(REGISTRATION).fetchOne(0, Long.class);
+        long participantId = jooq.select(DSL.max(PARTICIPANT.ID)).from(PARTICIPANT).fetchOne(0, Long.class);
+        List<Long> registrationIds = jooq.select(REGISTRATION.ID).from(REGISTRATION).where(REGISTRATION.EVENT_INFO_ID.eq(eventId)).limit(20).fetchInto(Long.class);
+
+        Map<String, Query> queries = new LinkedHashMap<>();
+        queries.put("registrations of an event", jooq.select(REGISTRATION.ID).from(REGISTRATION).where(REGISTRATION.EVENT_INFO_ID.eq(eventId)));
+        queries.put("registrations of a participant", jooq.selectFrom(REGISTRATION).where(REGISTRATION.PARTICIPANT_ID.eq(participantId)));
+        queries.put("guests of registrations", jooq.select(GUEST.ID).from(GUEST).where(GUEST.REGISTRATION_ID.in(registrationIds)));
+        queries.put("transactions of an event", jooq.select(TRANSACTION_.ID).from(TRANSACTION_).where(TRANSACTION_.EVENT_INFO_ID.eq(eventId)));
+        queries.put("registration with labels", jooq.selectFrom(REGISTRATION_WITH_LABELS).where(REGISTRATION_WITH_LABELS.ID.eq(registrationId)));
+        queries.put("guests with labels of a registration", jooq.selectFrom(GUEST_WITH_LABELS).where(GUEST_WITH_LABELS.REGISTRATION_ID.eq(registrationId)));
+        queries.put("transactions with labels of an event", jooq.selectFrom(TRANSACTION_WITH_LABELS).where(TRANSACTION_WITH_LABELS.EVENT_INFO_ID.eq(eventId)));
+        queries.put("history of an actor", jooq.selectFrom(DATA_HISTORY_WITH_LABELS).where(DATA_HISTORY_WITH_LABELS.ACTOR_ID.eq(participantId)).orderBy(DATA_HISTORY_WITH_LABELS.ID.desc()).limit(25));
+        queries.put("history of a table", jooq.selectFrom(DATA_HISTORY).where(DATA_HISTORY.TABLE_SOURCE.eq(TableRef.REGISTRATION)).orderBy(DATA_HISTORY.ID.desc()).limit(25));
+        queries.put("history of a record", jooq.selectFrom(DATA_HISTORY).where(DATA_HISTORY.TABLE_SOURCE.eq(TableRef.REGISTRATION)).and(DATA_HISTORY.RECORD_ID.eq(registrationId)).orderBy(DATA_HISTORY.ID));
+        queries.put("latest checkpoint of a record", jooq.selectFrom(DATA_HISTORY_CHECKPOINT).where(DATA_HISTORY_CHECKPOINT.TABLE_SOURCE.eq(TableRef.REGISTRATION)).and(DATA_HISTORY_CHECKPOINT.RECORD_ID.eq(registrationId)).orderBy(DATA_HISTORY_CHECKPOINT.HISTORY_ID.desc()).limit(1));
+        queries.put("recent history", jooq.selectFrom(DATA_HISTORY).where(DATA_HISTORY.TIME_RECORDED.ge(OffsetDateTime.now().minusDays(1))));
+        queries.put("participants by partial name", jooq.selectFrom(PARTICIPANT).where(PARTICIPANT.NAME_LAST.likeIgnoreCase("%ast1999%")));
+        return queries;
+    }
+
+    private void seed(DSLContext jooq) {
+        jooq.execute("""
+                INSERT INTO participant (participant_type, name_first, name_last, sponsor, dob, addr_street_1, addr_city, addr_state_abbr, addr_zip, addr_email, phone_digits, emergency_contact_relationship_type, name_emergency, phone_emergency)
+                SELECT 'ATTENDEE', 'First' || n, 'Last' || n, 'Sponsor' || (n % 100), DATE '1970-01-01' + (n % 15000), n || ' Main St', 'City' || (n % 500), 'TX', '75001', 'plan-check-' || n || '@example.com', 5550000000 + n, 'FRIEND', 'Contact' || n, 5550000000 + n
+                FROM generate_series(1, ?) AS n""", PARTICIPANTS);
+        jooq.execute("""
+                INSERT INTO event_info (event_name, event_title, date_start, date_end, event_status)
+                SELECT 'Event ' || n, 'Title ' || n, DATE '2000-01-01' + n * 7, DATE '2000-01-03' + n * 7, 'PAST'
+                FROM generate_series(1, ?) AS n""", EVENTS);
+        jooq.execute("""
+                WITH events AS (SELECT ARRAY_AGG(id) AS ids FROM event_info)
+                INSERT INTO registration (participant_id, donation_pledge, signature, event_info_id)
+                SELECT p.id, 20, p.name_first || ' ' || p.name_last, events.ids[1 + p.id % ARRAY_LENGTH(events.ids, 1)]
+                FROM participant p, events""");
+        jooq.execute("""
+                INSERT INTO guest (registration_id, raw_guest_name, relationship)
+                SELECT r.id, 'Guest ' || r.id || '-' || n, 'ADULT'
+                FROM registration r, generate_series(1, ?) AS n""", GUESTS_PER_REGISTRATION);
+        jooq.execute("""
+                WITH people AS (SELECT ARRAY_AGG(id) AS ids FROM participant)
+                INSERT INTO transaction_ (event_info_id, actor_id, recipient_id, amount, transaction_type, instrument_type, memo)
+                SELECT r.event_info_id, r.participant_id, people.ids[1 + r.id % ARRAY_LENGTH(people.ids, 1)], 25, 'INCOME', 'CASH', 'Memo ' || r.id
+                FROM registration r, people""");
+        jooq.execute("""
+                INSERT INTO data_history (actor_id, action_name, table_source, new_data, old_data, time_recorded)
+                SELECT r.participant_id, 'INSERTED', 'REGISTRATION', JSON_BUILD_OBJECT('id', r.id), '{}'::json, now() - (r.id % 365) * INTERVAL '1 day'
+                FROM registration r, generate_series(1, ?) AS n""", HISTORY_PER_REGISTRATION);
+        for (String table : List.of("participant", "event_info", "registration", "guest", "transaction_", "data_history")) {
+            jooq.execute("ANALYZE " + table);
+        }
+    }
+
+    private JsonNode explain(DSLContext jooq, Query query) throws Exception {
+        String plan = jooq.fetchOne("EXPLAIN (FORMAT JSON) " + query.getSQL(ParamType.INLINED)).get(0, String.class);
+        return objectMapper.readTree(plan).get(0).get("Plan");
+    }
+
+    private static void collectSequentialScans(JsonNode plan, List<String> scanned) {
+        if ("Seq Scan".equals(plan.path("Node Type").asText())) {
+            scanned.add(plan.path("Relation Name").asText());
+        }
+        for (JsonNode child : plan.path("Plans")) {
+            collectSequentialScans(child, scanned);
+        }
+    }
+
+    private static long estimatedRows(DSLContext jooq, String relation) {
+        return jooq.fetchOne("SELECT reltuples::bigint FROM pg_class WHERE oid = ?::regclass", relation).get(0, Long.class);
+    }
+}